@@ -0,0 +1,235 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Scores a stream of positions with OthelloSearch on several threads.
+//
+//   java BatchAnalyzer [-depth d] [-time ms] [-threads n] [-window n] [-hash megabytes] [file]
+//
+// Positions are read from the file, or from standard input when there is none
+// or it is "-", one per line: the 64 squares row by row as '-', 'B' and 'W'
+// (a '/' between rows is allowed), a space, and the side to move. Blank lines
+// and lines starting with '#' are skipped. Every position gets one line of
+// output, in input order:
+//
+//   number row col score depth    the best move, its score for the side to move, the depth reached
+//   number PASS score depth       when the side to move has no move, scored by searching
+//                                 the opponent's reply; a finished game gets its final score
+//                                 at depth 0
+//   number ERROR reason           when the line is not a position
+//
+// where number counts positions from 1 and scores are those of OthelloSearch,
+// so the end of a game scores its disc margin plus WIN for a win or minus WIN
+// for a loss. At most 'window' positions are queued or being searched at once,
+// so memory stays the same however long the input is. Each thread searches with its own table, cleared before every
+// position, so the same input always gives the same output when searching to
+// a depth.
+public class BatchAnalyzer implements OthelloConstants {
+
+    // long enough that only the depth limit ends a search
+    private static final long NO_TIME_LIMIT = 1L << 40;
+
+    private final int depth;
+    private final long timeLimit;
+    private final int threads;
+    private final int window;
+    private final int hashSize;
+
+    // the searcher of each pool thread
+    private final ThreadLocal<OthelloSearch> searches;
+
+    // pre: 1 <= depth < 128, timeLimit > 0, threads > 0, window >= threads, hashSize > 0
+    public BatchAnalyzer(int depth, long timeLimit, int threads, int window, int hashSize) {
+        if (depth < 1 || depth >= 128) {
+            throw new IllegalArgumentException("depth must be between 1 and 127");
+        }
+        if (threads <= 0) {
+            throw new IllegalArgumentException("thread count must be positive");
+        }
+        if (window < threads) {
+            throw new IllegalArgumentException("window must hold at least one position per thread");
+        }
+        if (timeLimit <= 0) {
+            throw new IllegalArgumentException("time limit must be positive");
+        }
+        if (hashSize <= 0) {
+            throw new IllegalArgumentException("hash size must be positive");
+        }
+
+        this.depth = depth;
+        this.timeLimit = timeLimit;
+        this.threads = threads;
+        this.window = window;
+        this.hashSize = hashSize;
+
+        searches = ThreadLocal.withInitial(() -> {
+            OthelloSearch search = new OthelloSearch(new TranspositionTable(this.hashSize));
+            search.setMaxDepth(this.depth);
+            return search;
+        });
+    }
+
+    // pre: none
+    // post: analyses every position of 'input' and prints a line for each to 'output',
+    //  in input order; returns how many positions there were
+    public long analyze(BufferedReader input, PrintStream output) throws IOException, InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        ArrayDeque<Future<String>> pending = new ArrayDeque<>();
+        long positions = 0;
+
+        try {
+            String line;
+            while ((line = input.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+
+                // the oldest position is printed before another one is read in
+                if (pending.size() == window) {
+                    output.println(result(pending.poll()));
+                }
+
+                long number = ++positions;
+                String position = line;
+                pending.add(pool.submit(() -> number + " " + analyze(position)));
+            }
+
+            while (!pending.isEmpty()) {
+                output.println(result(pending.poll()));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        output.flush();
+        return positions;
+    }
+
+    private static String result(Future<String> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("an analysis thread failed", e.getCause());
+        }
+    }
+
+    // the work of one position, run on a pool thread
+    private String analyze(String line) {
+        OthelloBoard board;
+        try {
+            board = parse(line);
+        } catch (IllegalArgumentException e) {
+            return "ERROR " + e.getMessage();
+        }
+
+        if (board.isGameOver()) {
+            return "PASS " + OthelloSearch.finalScore(board, board.currentTurn(), board.nextTurn()) + " 0";
+        }
+
+        OthelloSearch search = searches.get();
+        search.getTable().clear();
+
+        // a forced pass is worth what the opponent's reply is worth to the opponent, negated
+        if (board.legalMoves(board.currentTurn()) == 0) {
+            board.makeMove(PASS);
+            search.search(board, timeLimit);
+            board.undoMove();
+            return "PASS " + -search.getBestScore() + " " + search.getDepthReached();
+        }
+
+        int move = search.search(board, timeLimit);
+        return BitBoard.row(move) + " " + BitBoard.col(move) + " " + search.getBestScore() + " " + search.getDepthReached();
+    }
+
+    // pre: line is the 64 squares (with or without '/' between rows), a space and the side to move
+    // post: returns the position as a board
+    static OthelloBoard parse(String line) {
+        String[] words = line.split("\\s+");
+        if (words.length != 2) {
+            throw new IllegalArgumentException("expected the squares and the side to move");
+        }
+
+        String squares = words[0].replace("/", "");
+        if (squares.length() != SIZE * SIZE) {
+            throw new IllegalArgumentException("expected " + SIZE * SIZE + " squares, got " + squares.length());
+        }
+        if (words[1].length() != 1) {
+            throw new IllegalArgumentException("side to move must be " + BLACK_PIECE + " or " + WHITE_PIECE);
+        }
+
+        char[][] board = new char[SIZE][SIZE];
+        for (int row = 0; row < SIZE; row++) {
+            squares.getChars(row * SIZE, (row + 1) * SIZE, board[row], 0);
+        }
+
+        return new OthelloBoard(board, words[1].charAt(0));
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int depth = 8;
+        long timeLimit = NO_TIME_LIMIT;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int window = -1;
+        int hashSize = 4;
+        String file = "-";
+
+        try {
+            int i = 0;
+            for (; i + 1 < args.length && args[i].startsWith("-") && args[i].length() > 1; i += 2) {
+                String value = args[i + 1];
+
+                switch (args[i]) {
+                    case "-depth": depth = Integer.parseInt(value); break;
+                    case "-time": timeLimit = Long.parseLong(value); break;
+                    case "-threads": threads = Integer.parseInt(value); break;
+                    case "-window": window = Integer.parseInt(value); break;
+                    case "-hash": hashSize = Integer.parseInt(value); break;
+                    default: throw new IllegalArgumentException("unknown option " + args[i]);
+                }
+            }
+
+            if (i < args.length) {
+                file = args[i++];
+            }
+            if (i < args.length) {
+                throw new IllegalArgumentException("unexpected argument " + args[i]);
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Something went wrong with the formatting: " + e.getMessage());
+            System.err.println("usage: java BatchAnalyzer [-depth d] [-time ms] [-threads n] [-window n] "
+                + "[-hash megabytes] [file]");
+            System.exit(2);
+        }
+
+        // enough positions in flight to keep every thread busy while the oldest is printed
+        if (window < 0) {
+            window = 4 * threads;
+        }
+
+        BatchAnalyzer analyzer = new BatchAnalyzer(depth, timeLimit, threads, window, hashSize);
+        BufferedReader input = file.equals("-")
+            ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.US_ASCII))
+            : Files.newBufferedReader(Paths.get(file), StandardCharsets.US_ASCII);
+
+        long start = System.nanoTime();
+        long positions;
+
+        try (BufferedReader reader = input) {
+            positions = analyzer.analyze(reader, System.out);
+        }
+
+        // the results go to standard output, so the summary goes elsewhere
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.err.printf("Analysed %d positions in %.1f s (%.1f positions/sec)\n", positions, seconds, positions / seconds);
+    }
+}
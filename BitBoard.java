@@ -0,0 +1,102 @@
+// Move generation for an 8 x 8 Othello board stored as two 64-bit masks.
+//
+// Square (row, col) is bit (row * 8 + col), so bit 0 is the top left corner
+// and bit 63 is the bottom right corner. Every method works on a pair of
+// masks: the pieces of the side we are asking about ("player") and the
+// pieces of the other side ("opponent"). Nothing here allocates.
+public final class BitBoard {
+
+    public static final int SQUARES = 64;
+
+    // the two start masks used by resetBoard()
+    public static final long START_BLACK = bit(3, 3) | bit(4, 4);
+    public static final long START_WHITE = bit(4, 3) | bit(3, 4);
+
+    // masks used to stop a shifted piece from wrapping around to the other edge
+    private static final long NOT_COL_0 = 0xFEFEFEFEFEFEFEFEL;
+    private static final long NOT_COL_7 = 0x7F7F7F7F7F7F7F7FL;
+
+    // the eight directions as shift amounts, positive meaning "towards bit 63"
+    private static final int[] SHIFTS = {1, -1, 8, -8, 9, -9, 7, -7};
+    private static final long[] SHIFT_MASKS = {
+        NOT_COL_0, NOT_COL_7, -1L, -1L, NOT_COL_0, NOT_COL_7, NOT_COL_7, NOT_COL_0
+    };
+
+    private BitBoard() {
+    }
+
+    public static int square(int row, int col) {
+        return row * 8 + col;
+    }
+
+    public static long bit(int row, int col) {
+        return 1L << square(row, col);
+    }
+
+    public static int row(int square) {
+        return square >>> 3;
+    }
+
+    public static int col(int square) {
+        return square & 7;
+    }
+
+    // moves every piece in 'pieces' one square in direction 'dir'
+    private static long shift(long pieces, int dir) {
+        int amount = SHIFTS[dir];
+        long shifted = amount > 0? pieces << amount: pieces >>> -amount;
+        return shifted & SHIFT_MASKS[dir];
+    }
+
+    // pre: player and opponent do not overlap
+    // post: returns a mask of every empty square 'player' can legally play on
+    public static long legalMoves(long player, long opponent) {
+        if (Metrics.ENABLED) {
+            Metrics.MOVE_GENERATIONS.increment();
+        }
+
+        long empty = ~(player | opponent);
+        long moves = 0;
+
+        for (int dir = 0; dir < 8; dir++) {
+            // a run of at most six opponent pieces can sit between the player and an empty square
+            long run = shift(player, dir) & opponent;
+            run |= shift(run, dir) & opponent;
+            run |= shift(run, dir) & opponent;
+            run |= shift(run, dir) & opponent;
+            run |= shift(run, dir) & opponent;
+            run |= shift(run, dir) & opponent;
+
+            moves |= shift(run, dir) & empty;
+        }
+
+        return moves;
+    }
+
+    // pre: square is empty
+    // post: returns the opponent pieces that would be flipped if 'player' played on 'square'
+    public static long flips(long player, long opponent, int square) {
+        long start = 1L << square;
+        long flipped = 0;
+
+        for (int dir = 0; dir < 8; dir++) {
+            long run = 0;
+            long next = shift(start, dir);
+
+            while ((next & opponent) != 0) {
+                run |= next;
+                next = shift(next, dir);
+            }
+
+            if ((next & player) != 0) {
+                flipped |= run;
+            }
+        }
+
+        return flipped;
+    }
+
+    public static int count(long pieces) {
+        return Long.bitCount(pieces);
+    }
+}
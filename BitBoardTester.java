@@ -0,0 +1,523 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+public class BitBoardTester {
+    public static void main(String[] args) throws IOException {
+
+        int N = 1_000; // games to cross-check
+        long seed = 42;
+
+        // check if args passed into command line
+        // first argument will be N, second argument will be the random seed
+        if (args.length == 2) {
+            try {
+                N = Integer.parseInt(args[0]);
+                seed = Long.parseLong(args[1]);
+            } catch (Exception e) {
+                System.out.println("Something went wrong with the formatting");
+                System.out.println("Going back to default settings");
+            }
+        }
+
+        Random random = new Random(seed);
+        OthelloBoard board = new OthelloBoard();
+        CharArrayBoard reference = new CharArrayBoard();
+        OthelloBoard explorer = new OthelloBoard(); // follows the same games with makeMove/undoMove
+        String startingBoard = explorer.toString();
+        long startingHash = explorer.hashKey();
+
+        // both boards keep their pattern codes up to date, checked against a fresh computation
+        board.trackPatterns(true);
+        explorer.trackPatterns(true);
+        int[] expectedCodes = new int[Patterns.INSTANCES];
+
+        OthelloBoard image = new OthelloBoard(); // a rotated or reflected copy of the board
+        long[] canonical = new long[2];
+        long[] imageCanonical = new long[2];
+
+        Position position = Position.START; // follows the same games one immutable snapshot at a time
+        OthelloBoard restored = new OthelloBoard();
+
+        // positions and the moves played on them, checked a batch at a time
+        BoardBatch batch = new BoardBatch(256);
+        int[] batchMoves = new int[batch.capacity()];
+
+        // the multi-word move generator must agree with BitBoard on the 8 x 8 board too
+        WideBitBoard wide = new WideBitBoard(OthelloConstants.SIZE);
+        long[] wideMoves = wide.newSet();
+
+        // every position goes through PositionCodec and back, and every game through a game-record file
+        ByteBuffer codecBuffer = ByteBuffer.allocate(PositionCodec.POSITION_BYTES);
+        byte[][] records = new byte[N][];
+        long[] finalBlack = new long[N];
+        long[] finalWhite = new long[N];
+        byte[] gameMoves = new byte[GameRecordWriter.MAX_MOVES];
+
+        int plies = 0;
+        int[] moves = new int[BitBoard.SQUARES];
+
+        // play both boards through the same random games and compare them after every move
+        for (int i = 1; i <= N; i++) {
+            board.resetBoard();
+            reference.resetBoard();
+            explorer.resetBoard();
+            position = Position.START;
+            int gameLength = 0;
+
+            while (true) {
+                if (!matches(board, reference)) {
+                    System.out.printf("Boards disagree in game %d after %d plies\n", i, plies);
+                    System.out.println("BitBoard:\n" + board);
+                    System.out.println("Reference:\n" + reference);
+                    System.exit(1);
+                }
+
+                if (!explorer.toString().equals(board.toString()) || explorer.currentTurn() != board.currentTurn()) {
+                    System.out.printf("makeMove disagrees with placePiece in game %d after %d plies\n", i, plies);
+                    System.exit(1);
+                }
+
+                long expectedHash = Zobrist.hash(board.piecesOf(OthelloConstants.BLACK_PIECE),
+                    board.piecesOf(OthelloConstants.WHITE_PIECE), board.currentTurn() == OthelloConstants.WHITE_PIECE);
+                if (board.hashKey() != expectedHash || explorer.hashKey() != expectedHash) {
+                    System.out.printf("Incremental hash is wrong in game %d after %d plies\n", i, plies);
+                    System.exit(1);
+                }
+
+                Patterns.compute(board.piecesOf(OthelloConstants.BLACK_PIECE),
+                    board.piecesOf(OthelloConstants.WHITE_PIECE), expectedCodes);
+                if (!Arrays.equals(board.patternCodes(), expectedCodes) || !Arrays.equals(explorer.patternCodes(), expectedCodes)) {
+                    System.out.printf("Incremental pattern codes are wrong in game %d after %d plies\n", i, plies);
+                    System.exit(1);
+                }
+
+                if (!positionMatches(position, board, restored)) {
+                    System.out.printf("Position snapshot disagrees in game %d after %d plies\n", i, plies);
+                    System.exit(1);
+                }
+
+                long player = board.piecesOf(board.currentTurn());
+                long opponent = board.piecesOf(board.nextTurn());
+                wide.legalMoves(new long[] {player}, new long[] {opponent}, wideMoves);
+                if (wideMoves[0] != BitBoard.legalMoves(player, opponent)) {
+                    System.out.printf("WideBitBoard disagrees with BitBoard in game %d after %d plies\n", i, plies);
+                    System.exit(1);
+                }
+
+                if (!symmetryMatches(board, image, random.nextInt(Symmetry.TRANSFORMS), canonical, imageCanonical)) {
+                    System.out.printf("Symmetric positions disagree in game %d after %d plies\n", i, plies);
+                    System.exit(1);
+                }
+
+                // also with random squares emptied, which real games never have in the centre
+                long black = board.piecesOf(OthelloConstants.BLACK_PIECE);
+                long white = board.piecesOf(OthelloConstants.WHITE_PIECE);
+                long kept = random.nextLong();
+                if (!codecMatches(black, white, board.currentTurn(), codecBuffer)
+                        || !codecMatches(black & kept, white & kept, board.nextTurn(), codecBuffer)) {
+                    System.out.printf("PositionCodec does not give back the position in game %d after %d plies\n", i, plies);
+                    System.exit(1);
+                }
+
+                if (reference.isGameOver()) {
+                    break;
+                }
+
+                // collect the moves the reference board allows and pick one of them
+                char piece = reference.currentTurn();
+                int count = 0;
+                for (int r = 0; r < OthelloConstants.SIZE; r++) {
+                    for (int c = 0; c < OthelloConstants.SIZE; c++) {
+                        if (reference.canBePlaced(r, c, piece)) {
+                            moves[count++] = BitBoard.square(r, c);
+                        }
+                    }
+                }
+
+                int played = count > 0? moves[random.nextInt(count)]: OthelloConstants.PASS;
+                gameMoves[gameLength++] = PositionCodec.encodeMove(played);
+                batchMoves[batch.add(board)] = played;
+                if (batch.size() == batch.capacity()) {
+                    if (!batchMatches(batch, batchMoves)) {
+                        System.out.printf("The board batch disagrees with BitBoard by game %d\n", i);
+                        System.exit(1);
+                    }
+                    batch.clear();
+                }
+
+                if (count > 0) {
+                    int move = played;
+                    board.placePiece(BitBoard.row(move), BitBoard.col(move), piece);
+                    reference.placePiece(BitBoard.row(move), BitBoard.col(move), piece);
+                    explorer.makeMove(move);
+                    position = position.play(move);
+                    plies++;
+                } else {
+                    explorer.makeMove(OthelloConstants.PASS);
+                    position = position.play(OthelloConstants.PASS);
+                }
+
+                board.switchTurns();
+                reference.switchTurns();
+            }
+
+            records[i - 1] = Arrays.copyOf(gameMoves, gameLength);
+            finalBlack[i - 1] = board.piecesOf(OthelloConstants.BLACK_PIECE);
+            finalWhite[i - 1] = board.piecesOf(OthelloConstants.WHITE_PIECE);
+
+            // taking back every move and pass should land on the starting position with black to move
+            while (explorer.undoDepth() > 0) {
+                explorer.undoMove();
+            }
+
+            Patterns.compute(BitBoard.START_BLACK, BitBoard.START_WHITE, expectedCodes);
+            if (!explorer.toString().equals(startingBoard) || explorer.currentTurn() != OthelloConstants.BLACK_PIECE
+                || explorer.hashKey() != startingHash || !Arrays.equals(explorer.patternCodes(), expectedCodes)) {
+                System.out.printf("undoMove did not restore the starting position in game %d\n", i);
+                System.exit(1);
+            }
+        }
+
+        if (!batchMatches(batch, batchMoves)) {
+            System.out.println("The board batch disagrees with BitBoard in the last games");
+            System.exit(1);
+        }
+
+        if (!recordsMatch(records, finalBlack, finalWhite)) {
+            System.out.println("Games read back from a game-record file differ from the games written");
+            System.exit(1);
+        }
+
+        System.out.printf("All %d games (%d plies) matched the reference board.\n", N, plies);
+
+        // larger boards against the reference board made just as large; it is much slower there
+        int[] sizes = {10, 12, 16};
+        for (int size: sizes) {
+            int games = Math.max(1, N / (size * 10));
+            int sizePlies = playOtherSize(size, games, random);
+            System.out.printf("All %d games (%d plies) on %d x %d boards matched the reference board.\n",
+                games, sizePlies, size, size);
+        }
+    }
+
+    // post: plays random games on a size x size OthelloBoard and reference board, exiting when they
+    //  disagree, and returns how many plies were played
+    private static int playOtherSize(int size, int games, Random random) {
+        OthelloBoard board = new OthelloBoard(size);
+        CharArrayBoard reference = new CharArrayBoard(size);
+        OthelloBoard copy = new OthelloBoard(size);
+        OthelloAI ai = new OthelloAI(OthelloConstants.BLACK_PIECE, size);
+        ai.showMessages(false);
+        ai.setDifficulty(random.nextBoolean()? OthelloAI.AIDifficulty.BEST_MOVE: OthelloAI.AIDifficulty.RANDOM);
+        ai.setSeed(random.nextLong());
+
+        int[] moves = new int[size * size];
+        int plies = 0;
+
+        if (!unsupportedOnOtherSizes(board)) {
+            System.out.printf("A %d x %d board allowed an 8 x 8 only operation\n", size, size);
+            System.exit(1);
+        }
+
+        for (int i = 1; i <= games; i++) {
+            board.resetBoard();
+            reference.resetBoard();
+
+            while (true) {
+                copy.copyPosition(board);
+                if (!otherSizeMatches(board, reference) || !copy.toString().equals(board.toString())) {
+                    System.out.printf("%d x %d boards disagree in game %d after %d plies\n", size, size, i, plies);
+                    System.out.println("OthelloBoard:\n" + board);
+                    System.out.println("Reference:\n" + reference);
+                    System.exit(1);
+                }
+
+                if (reference.isGameOver()) {
+                    break;
+                }
+
+                // black is the AI, white plays random moves
+                char piece = board.currentTurn();
+                int count = board.legalMoves(piece, moves);
+
+                if (piece == ai.getPiece()) {
+                    ai.playPiece(board);
+                    if (count > 0) {
+                        int move = ai.getLastMove();
+                        reference.placePiece(move / size, move % size, piece);
+                        plies++;
+                    }
+                } else if (count > 0) {
+                    int move = moves[random.nextInt(count)];
+                    board.placePiece(move / size, move % size, piece);
+                    reference.placePiece(move / size, move % size, piece);
+                    plies++;
+                }
+
+                board.switchTurns();
+                reference.switchTurns();
+            }
+        }
+
+        return plies;
+    }
+
+    // post: returns whether both boards of the same size agree on every public query
+    private static boolean otherSizeMatches(OthelloBoard board, CharArrayBoard reference) {
+        char[] pieces = {OthelloConstants.BLACK_PIECE, OthelloConstants.WHITE_PIECE};
+        int size = board.size();
+        int[] moves = new int[size * size];
+
+        for (char piece: pieces) {
+            int count = board.legalMoves(piece, moves);
+            int next = 0;
+
+            for (int r = 0; r < size; r++) {
+                for (int c = 0; c < size; c++) {
+                    boolean legal = reference.canBePlaced(r, c, piece);
+                    if (board.canBePlaced(r, c, piece) != legal) {
+                        return false;
+                    }
+                    if (legal && (next >= count || moves[next++] != r * size + c)) {
+                        return false;
+                    }
+                    if (board.findMaxPieces(r, c, piece) != reference.findMaxPieces(r, c, piece)) {
+                        return false;
+                    }
+                }
+            }
+
+            if (next != count || board.countPieces(piece) != reference.countPieces(piece)) {
+                return false;
+            }
+        }
+
+        return board.currentTurn() == reference.currentTurn()
+            && board.isGameOver() == reference.isGameOver()
+            && board.mustPass() == (board.legalMoves(board.currentTurn(), moves) == 0 && !reference.isGameOver())
+            && board.countPieces(OthelloConstants.BLANK_PIECE) == reference.countPieces(OthelloConstants.BLANK_PIECE)
+            && board.toString().equals(reference.toString());
+    }
+
+    // post: returns whether every 8 x 8 only operation refuses to run on 'board'
+    private static boolean unsupportedOnOtherSizes(OthelloBoard board) {
+        Runnable[] operations = {
+            () -> board.piecesOf(OthelloConstants.BLACK_PIECE),
+            () -> board.legalMoves(OthelloConstants.BLACK_PIECE),
+            () -> board.hashKey(),
+            () -> board.transform(1),
+            () -> board.canonicalize(),
+            () -> board.trackPatterns(true),
+            () -> board.makeMove(OthelloConstants.PASS),
+            () -> board.copyPosition(Position.START)
+        };
+
+        for (Runnable operation: operations) {
+            try {
+                operation.run();
+                return false;
+            } catch (UnsupportedOperationException e) {
+                // expected
+            }
+        }
+
+        return true;
+    }
+
+    // post: returns whether the batch finds the same moves, flips and counts as BitBoard for every
+    //  board, and playing 'squares' on all of them gives the positions Position.play does
+    private static boolean batchMatches(BoardBatch batch, int[] squares) {
+        int size = batch.size();
+        long[] moves = new long[size];
+        long[] flips = new long[size];
+        int[] playerCounts = new int[size];
+        int[] opponentCounts = new int[size];
+        Position[] expected = new Position[size];
+
+        batch.legalMoves(moves);
+        batch.flips(squares, flips);
+        batch.countPieces(playerCounts, opponentCounts);
+
+        for (int i = 0; i < size; i++) {
+            long player = batch.player(i);
+            long opponent = batch.opponent(i);
+            long expectedFlips = squares[i] == OthelloConstants.PASS? 0: BitBoard.flips(player, opponent, squares[i]);
+
+            if (moves[i] != BitBoard.legalMoves(player, opponent) || flips[i] != expectedFlips
+                    || playerCounts[i] != BitBoard.count(player) || opponentCounts[i] != BitBoard.count(opponent)) {
+                return false;
+            }
+
+            expected[i] = batch.position(i).play(squares[i]);
+        }
+
+        batch.play(squares, flips);
+        for (int i = 0; i < size; i++) {
+            if (!batch.position(i).equals(expected[i])) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    // post: returns whether the snapshot has the board's pieces, side to move, hash and moves,
+    //  equals a fresh snapshot of the board, and turns back into the same board
+    private static boolean positionMatches(Position position, OthelloBoard board, OthelloBoard restored) {
+        Position snapshot = Position.of(board);
+        if (!position.equals(snapshot) || position.hashCode() != snapshot.hashCode()
+                || position.hashKey() != board.hashKey() || position.currentTurn() != board.currentTurn()
+                || position.legalMoves() != board.legalMoves(board.currentTurn())
+                || position.isGameOver() != board.isGameOver()
+                || position.countPieces(OthelloConstants.BLANK_PIECE) != board.countPieces(OthelloConstants.BLANK_PIECE)) {
+            return false;
+        }
+
+        restored.copyPosition(position);
+        return restored.toString().equals(board.toString()) && restored.hashKey() == board.hashKey()
+            && position.toBoard().hashKey() == board.hashKey();
+    }
+
+    // post: returns whether the position comes back unchanged from PositionCodec
+    private static boolean codecMatches(long black, long white, char turn, ByteBuffer buffer) {
+        buffer.clear();
+        PositionCodec.encode(black, white, turn == OthelloConstants.WHITE_PIECE, buffer);
+        if (buffer.position() != PositionCodec.POSITION_BYTES) {
+            return false;
+        }
+
+        buffer.flip();
+        OthelloBoard decoded = PositionCodec.decode(buffer);
+        return decoded.piecesOf(OthelloConstants.BLACK_PIECE) == black
+            && decoded.piecesOf(OthelloConstants.WHITE_PIECE) == white && decoded.currentTurn() == turn;
+    }
+
+    // post: writes the games to a game-record file, the first half one at a time and the rest
+    //  through append, and returns whether reading them back gives the same moves and replaying
+    //  them the same final positions
+    private static boolean recordsMatch(byte[][] games, long[] finalBlack, long[] finalWhite) throws IOException {
+        Path path = Files.createTempFile("othello", ".games");
+
+        try {
+            try (GameRecordWriter writer = new GameRecordWriter(path)) {
+                ByteBuffer records = ByteBuffer.allocate(1 << 12);
+                int buffered = 0;
+
+                for (int i = 0; i < games.length / 2; i++) {
+                    writer.write(games[i], games[i].length);
+                }
+
+                for (int i = games.length / 2; i < games.length; i++) {
+                    if (!GameRecordWriter.append(records, games[i], games[i].length)) {
+                        writer.write(records, buffered);
+                        buffered = 0;
+                        GameRecordWriter.append(records, games[i], games[i].length);
+                    }
+                    buffered++;
+                }
+
+                writer.write(records, buffered);
+                if (writer.gamesWritten() != games.length) {
+                    return false;
+                }
+            }
+
+            try (GameRecordReader reader = new GameRecordReader(path)) {
+                byte[] moves = new byte[GameRecordWriter.MAX_MOVES];
+                OthelloBoard board = new OthelloBoard();
+
+                for (int i = 0; i < games.length; i++) {
+                    int length = reader.next(moves);
+                    if (length != games[i].length || !Arrays.equals(moves, 0, length, games[i], 0, length)) {
+                        return false;
+                    }
+
+                    GameRecordReader.replay(moves, length, board);
+                    if (board.piecesOf(OthelloConstants.BLACK_PIECE) != finalBlack[i]
+                            || board.piecesOf(OthelloConstants.WHITE_PIECE) != finalWhite[i]) {
+                        return false;
+                    }
+                }
+
+                return reader.next(moves) == -1;
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    // post: returns whether the board turned by 'transform' has the turned legal moves and
+    //  the same canonical form, and whether moves map to the canonical form and back
+    private static boolean symmetryMatches(OthelloBoard board, OthelloBoard image, int transform,
+            long[] canonical, long[] imageCanonical) {
+
+        char piece = board.currentTurn();
+        image.copyPosition(board);
+        image.transform(transform);
+
+        if (image.legalMoves(piece) != Symmetry.transform(board.legalMoves(piece), transform)) {
+            return false;
+        }
+
+        int boardTransform = Symmetry.canonicalize(board.piecesOf(piece), board.piecesOf(board.nextTurn()), canonical);
+        int imageTransform = Symmetry.canonicalize(image.piecesOf(piece), image.piecesOf(image.nextTurn()), imageCanonical);
+        if (canonical[0] != imageCanonical[0] || canonical[1] != imageCanonical[1]) {
+            return false;
+        }
+
+        // moves of the board are moves of the canonical form, and every square survives the trip there and back
+        if (BitBoard.legalMoves(canonical[0], canonical[1]) != Symmetry.transform(board.legalMoves(piece), boardTransform)) {
+            return false;
+        }
+
+        for (int square = 0; square < BitBoard.SQUARES; square++) {
+            int turned = Symmetry.transformSquare(square, transform);
+
+            if (Symmetry.fromCanonical(Symmetry.toCanonical(square, boardTransform), boardTransform) != square
+                    || Symmetry.fromCanonical(Symmetry.toCanonical(turned, imageTransform), imageTransform) != turned) {
+                return false;
+            }
+        }
+
+        // canonicalize on the board itself must land on the same pieces
+        image.canonicalize();
+        return image.piecesOf(piece) == canonical[0] && image.piecesOf(image.nextTurn()) == canonical[1]
+            && image.hashKey() == Zobrist.hash(image.piecesOf(OthelloConstants.BLACK_PIECE),
+                image.piecesOf(OthelloConstants.WHITE_PIECE), piece == OthelloConstants.WHITE_PIECE);
+    }
+
+    // post: returns whether both boards agree on every public query
+    private static boolean matches(OthelloBoard board, CharArrayBoard reference) {
+        char[] pieces = {OthelloConstants.BLACK_PIECE, OthelloConstants.WHITE_PIECE};
+
+        for (char piece: pieces) {
+            long legalMoves = board.legalMoves(piece);
+
+            for (int r = 0; r < OthelloConstants.SIZE; r++) {
+                for (int c = 0; c < OthelloConstants.SIZE; c++) {
+                    if (board.canBePlaced(r, c, piece) != reference.canBePlaced(r, c, piece)) {
+                        return false;
+                    }
+                    if (((legalMoves & BitBoard.bit(r, c)) != 0) != reference.canBePlaced(r, c, piece)) {
+                        return false;
+                    }
+                    if (board.findMaxPieces(r, c, piece) != reference.findMaxPieces(r, c, piece)) {
+                        return false;
+                    }
+                }
+            }
+
+            if (board.countPieces(piece) != reference.countPieces(piece)) {
+                return false;
+            }
+        }
+
+        return board.currentTurn() == reference.currentTurn()
+            && board.isGameOver() == reference.isGameOver()
+            && board.toString().equals(reference.toString());
+    }
+}
@@ -0,0 +1,245 @@
+// Many independent boards worked on together: legal moves, flips and piece
+// counts for all of them in one call.
+//
+// The boards are kept as a struct of arrays, one array of player masks and one
+// of opponent masks (player being the side to move), rather than an array of
+// OthelloBoard objects. Each batch operation is a loop over the boards whose
+// body is straight-line long arithmetic with fixed shifts and no branches:
+// every long already handles the 64 squares of one board at once, and a loop
+// of that shape is one the JIT can also turn into SIMD code handling several
+// boards per instruction where the processor has it. The same code runs
+// everywhere, so there is no separate path to keep in step; legalMovesScalar
+// does the work one board at a time through BitBoard for comparison.
+//
+// Moves are squares (row * 8 + col) or PASS. Nothing here allocates after the
+// batch is created.
+public final class BoardBatch implements OthelloConstants {
+
+    // every column but the two edges; a run sideways or diagonally cannot pass through an edge
+    private static final long INNER_COLS = 0x7E7E7E7E7E7E7E7EL;
+
+    private final long[] players;
+    private final long[] opponents;
+    private final boolean[] whiteTurns;
+    private int size;
+
+    // pre: capacity > 0
+    // post: creates an empty batch that can hold 'capacity' boards
+    public BoardBatch(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+
+        players = new long[capacity];
+        opponents = new long[capacity];
+        whiteTurns = new boolean[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return players.length;
+    }
+
+    // post: removes every board
+    public void clear() {
+        size = 0;
+    }
+
+    // pre: the batch is not full, player and opponent do not overlap, turn is a black or white piece
+    // post: adds a board where 'turn' is to move with 'player' against 'opponent' and returns its index
+    public int add(long player, long opponent, char turn) {
+        if (size == players.length) {
+            throw new IllegalStateException("the batch is full");
+        }
+        if ((player & opponent) != 0) {
+            throw new IllegalArgumentException("a square cannot hold both a black and a white piece");
+        }
+        if (turn != BLACK_PIECE && turn != WHITE_PIECE) {
+            throw new IllegalArgumentException("turn must be either black or white piece");
+        }
+
+        players[size] = player;
+        opponents[size] = opponent;
+        whiteTurns[size] = turn == WHITE_PIECE;
+        return size++;
+    }
+
+    // pre: the batch is not full
+    // post: adds the position on 'board' and returns its index
+    public int add(OthelloBoard board) {
+        return add(board.piecesOf(board.currentTurn()), board.piecesOf(board.nextTurn()), board.currentTurn());
+    }
+
+    // pre: the batch is not full
+    // post: adds 'position' and returns its index
+    public int add(Position position) {
+        return add(position.piecesOf(position.currentTurn()), position.piecesOf(position.nextTurn()),
+            position.currentTurn());
+    }
+
+    // pre: 0 <= index < size()
+    public long player(int index) {
+        checkIndex(index);
+        return players[index];
+    }
+
+    // pre: 0 <= index < size()
+    public long opponent(int index) {
+        checkIndex(index);
+        return opponents[index];
+    }
+
+    // pre: 0 <= index < size()
+    public char currentTurn(int index) {
+        checkIndex(index);
+        return whiteTurns[index]? WHITE_PIECE: BLACK_PIECE;
+    }
+
+    // pre: 0 <= index < size()
+    // post: returns the board at 'index' as an immutable Position
+    public Position position(int index) {
+        checkIndex(index);
+
+        long black = whiteTurns[index]? opponents[index]: players[index];
+        long white = whiteTurns[index]? players[index]: opponents[index];
+        return new Position(black, white, currentTurn(index));
+    }
+
+    // pre: moves.length >= size()
+    // post: moves[i] is the mask of squares the side to move can play on board i
+    public void legalMoves(long[] moves) {
+        checkLength(moves.length);
+
+        for (int i = 0; i < size; i++) {
+            long player = players[i];
+            long opponent = opponents[i];
+            long empty = ~(player | opponent);
+
+            // keeping runs off the edge columns stops the sideways and diagonal shifts wrapping around
+            long inner = opponent & INNER_COLS;
+
+            moves[i] = (fillLeft(player, inner, 1) << 1 & empty)
+                | (fillRight(player, inner, 1) >>> 1 & empty)
+                | (fillLeft(player, opponent, 8) << 8 & empty)
+                | (fillRight(player, opponent, 8) >>> 8 & empty)
+                | (fillLeft(player, inner, 9) << 9 & empty)
+                | (fillRight(player, inner, 9) >>> 9 & empty)
+                | (fillLeft(player, inner, 7) << 7 & empty)
+                | (fillRight(player, inner, 7) >>> 7 & empty);
+        }
+    }
+
+    // pre: moves.length >= size()
+    // post: the same as legalMoves, one board at a time through BitBoard
+    public void legalMovesScalar(long[] moves) {
+        checkLength(moves.length);
+
+        for (int i = 0; i < size; i++) {
+            moves[i] = BitBoard.legalMoves(players[i], opponents[i]);
+        }
+    }
+
+    // pre: squares.length >= size() and flips.length >= size(); squares[i] is an empty square or PASS
+    // post: flips[i] holds the opponent pieces that playing squares[i] on board i would flip,
+    //  0 for a pass or a square that flips nothing
+    public void flips(int[] squares, long[] flips) {
+        checkLength(squares.length);
+        checkLength(flips.length);
+
+        for (int i = 0; i < size; i++) {
+            long player = players[i];
+            long opponent = opponents[i];
+            long inner = opponent & INNER_COLS;
+
+            // PASS is negative, and shifting by its low six bits would place a piece, so mask it away
+            long move = (1L << squares[i]) & ~((long) squares[i] >> 63);
+
+            flips[i] = flipLeft(move, player, inner, 1) | flipRight(move, player, inner, 1)
+                | flipLeft(move, player, opponent, 8) | flipRight(move, player, opponent, 8)
+                | flipLeft(move, player, inner, 9) | flipRight(move, player, inner, 9)
+                | flipLeft(move, player, inner, 7) | flipRight(move, player, inner, 7);
+        }
+    }
+
+    // pre: squares.length >= size() and flips.length >= size(); squares[i] is a legal move
+    //  on board i, or PASS when it has none
+    // post: plays squares[i] on every board i, handing the move to the other side, and stores
+    //  the pieces flipped on each in 'flips'
+    public void play(int[] squares, long[] flips) {
+        flips(squares, flips);
+
+        for (int i = 0; i < size; i++) {
+            long move = (1L << squares[i]) & ~((long) squares[i] >> 63);
+            long player = players[i] | move | flips[i];
+
+            players[i] = opponents[i] & ~flips[i];
+            opponents[i] = player;
+            whiteTurns[i] = !whiteTurns[i];
+        }
+    }
+
+    // pre: playerCounts.length >= size() and opponentCounts.length >= size()
+    // post: stores how many pieces the side to move and the other side have on every board
+    public void countPieces(int[] playerCounts, int[] opponentCounts) {
+        checkLength(playerCounts.length);
+        checkLength(opponentCounts.length);
+
+        for (int i = 0; i < size; i++) {
+            playerCounts[i] = Long.bitCount(players[i]);
+            opponentCounts[i] = Long.bitCount(opponents[i]);
+        }
+    }
+
+    // the player's pieces and the runs of 'opponent' pieces going towards bit 63 from them,
+    // without the player's pieces themselves; a run is at most six pieces long
+    private static long fillLeft(long player, long opponent, int shift) {
+        long run = player << shift & opponent;
+        run |= run << shift & opponent;
+        run |= run << shift & opponent;
+        run |= run << shift & opponent;
+        run |= run << shift & opponent;
+        run |= run << shift & opponent;
+        return run;
+    }
+
+    private static long fillRight(long player, long opponent, int shift) {
+        long run = player >>> shift & opponent;
+        run |= run >>> shift & opponent;
+        run |= run >>> shift & opponent;
+        run |= run >>> shift & opponent;
+        run |= run >>> shift & opponent;
+        run |= run >>> shift & opponent;
+        return run;
+    }
+
+    // the run of opponent pieces going towards bit 63 from 'move', if a player piece closes it
+    private static long flipLeft(long move, long player, long opponent, int shift) {
+        long run = fillLeft(move, opponent, shift);
+        return run & nonZeroMask(run << shift & player);
+    }
+
+    private static long flipRight(long move, long player, long opponent, int shift) {
+        long run = fillRight(move, opponent, shift);
+        return run & nonZeroMask(run >>> shift & player);
+    }
+
+    // all ones if 'value' is not 0, otherwise 0, without a branch
+    private static long nonZeroMask(long value) {
+        return (value | -value) >> 63;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("no board at index " + index + " in a batch of " + size);
+        }
+    }
+
+    private void checkLength(int length) {
+        if (length < size) {
+            throw new IllegalArgumentException("array holds " + length + " entries for " + size + " boards");
+        }
+    }
+}
@@ -0,0 +1,449 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.LongSupplier;
+
+// Micro benchmarks for the board and AI hot paths.
+//
+// Every benchmark is run for a warm up period and then for several timed
+// iterations; the mean time per operation, the spread between iterations
+// and the bytes allocated per operation (0 where the JVM cannot count them)
+// are reported. Results can be saved to a file and later runs compared
+// against it, failing with exit status 1 when any benchmark got slower than
+// the allowed tolerance. The same benchmarks can be run under JMH through
+// operations(), see jmh/ and the jmh profile of the Maven build.
+//
+//   java BoardBenchmark [-w warmupMillis] [-i iterations] [-t iterationMillis]
+//                       [-f filter] [-save file] [-baseline file] [-tolerance percent]
+public class BoardBenchmark implements OthelloConstants {
+
+    private static long warmupMillis = 1000;
+    private static int iterations = 5;
+    private static long iterationMillis = 1000;
+    private static String filter = "";
+
+    // boards in the batch benchmarks, enough to leave the per-call cost behind
+    private static final int BATCH_SIZE = 1024;
+
+    // anything the operations return ends up here, so the JIT cannot drop the work
+    private static long sink;
+
+    // while operations() runs, where the benchmarks are collected instead of being measured
+    private static Map<String, LongSupplier> collected;
+
+    public static void main(String[] args) throws IOException {
+        String savePath = null;
+        String baselinePath = null;
+        double tolerance = 10;
+
+        try {
+            for (int i = 0; i < args.length; i += 2) {
+                String value = args[i + 1];
+
+                switch (args[i]) {
+                    case "-w": warmupMillis = Long.parseLong(value); break;
+                    case "-i": iterations = Integer.parseInt(value); break;
+                    case "-t": iterationMillis = Long.parseLong(value); break;
+                    case "-f": filter = value; break;
+                    case "-save": savePath = value; break;
+                    case "-baseline": baselinePath = value; break;
+                    case "-tolerance": tolerance = Double.parseDouble(value); break;
+                    default: throw new IllegalArgumentException("unknown option " + args[i]);
+                }
+            }
+        } catch (RuntimeException e) {
+            System.out.println("Something went wrong with the formatting: " + e.getMessage());
+            System.out.println("usage: java BoardBenchmark [-w ms] [-i n] [-t ms] [-f filter] "
+                + "[-save file] [-baseline file] [-tolerance percent]");
+            System.exit(2);
+        }
+
+        Map<String, Double> results = new LinkedHashMap<>();
+        System.out.printf("%-34s %14s %12s %12s\n", "Benchmark", "ns/op", "+/- ns", "B/op");
+
+        runAll(results);
+
+        if (savePath != null) {
+            save(Paths.get(savePath), results);
+        }
+
+        if (baselinePath != null && !compare(Paths.get(baselinePath), results, tolerance)) {
+            System.exit(1);
+        }
+    }
+
+    // pre: none
+    // post: returns every benchmark by name, in the order they run, without measuring any. One
+    //  call of a supplier is one run of its benchmark (a whole board of squares for canBePlaced
+    //  and findMaxPieces, BATCH_SIZE boards for the batch benchmarks); harnesses such as JMH
+    //  do their own timing with these.
+    public static synchronized Map<String, LongSupplier> operations() {
+        Map<String, LongSupplier> operations = new LinkedHashMap<>();
+
+        collected = operations;
+        try {
+            runAll(null);
+        } finally {
+            collected = null;
+        }
+
+        return operations;
+    }
+
+    // runs every benchmark in turn, 'results' is null while operations() collects them
+    private static void runAll(Map<String, Double> results) {
+        PatternWeights weights = PatternWeights.defaults();
+
+        String[] stages = {"opening", "midgame", "endgame"};
+        OthelloBoard[] fixtures = {PositionFixtures.opening(), PositionFixtures.midgame(), PositionFixtures.endgame()};
+
+        for (int f = 0; f < fixtures.length; f++) {
+            OthelloBoard fixture = fixtures[f];
+            OthelloBoard board = new OthelloBoard(fixture);
+            char piece = fixture.currentTurn();
+            int firstMove = Long.numberOfTrailingZeros(fixture.legalMoves(piece));
+            String stage = stages[f];
+
+            // one operation is one call on one square, averaged over the whole board
+            run(results, "canBePlaced/" + stage, SIZE * SIZE, () -> {
+                long count = 0;
+                for (int r = 0; r < SIZE; r++) {
+                    for (int c = 0; c < SIZE; c++) {
+                        if (board.canBePlaced(r, c, piece)) {
+                            count++;
+                        }
+                    }
+                }
+                return count;
+            });
+
+            run(results, "findMaxPieces/" + stage, SIZE * SIZE, () -> {
+                long total = 0;
+                for (int r = 0; r < SIZE; r++) {
+                    for (int c = 0; c < SIZE; c++) {
+                        total += board.findMaxPieces(r, c, piece);
+                    }
+                }
+                return total;
+            });
+
+            // copying resets the board and its move cache, copyPosition shows what that costs alone
+            run(results, "copyPosition/" + stage, 1, () -> {
+                board.copyPosition(fixture);
+                return board.hashKey();
+            });
+
+            run(results, "placePiece/" + stage, 1, () -> {
+                board.copyPosition(fixture);
+                board.placePiece(BitBoard.row(firstMove), BitBoard.col(firstMove), piece);
+                return board.hashKey();
+            });
+
+            run(results, "isGameOver/" + stage, 1, () -> {
+                board.copyPosition(fixture);
+                return board.isGameOver()? 1: 0;
+            });
+
+            run(results, "countPieces/" + stage, 3, () -> {
+                return board.countPieces(BLACK_PIECE) + board.countPieces(WHITE_PIECE) + board.countPieces(BLANK_PIECE);
+            });
+
+            // what a search pays per leaf: the move into it, the evaluation, and the undo
+            OthelloBoard patternBoard = new OthelloBoard(fixture);
+            patternBoard.trackPatterns(true);
+
+            run(results, "makeUndo/" + stage, 1, () -> {
+                board.makeMove(firstMove);
+                long key = board.hashKey();
+                board.undoMove();
+                return key;
+            });
+
+            run(results, "makeUndo.patterns/" + stage, 1, () -> {
+                patternBoard.makeMove(firstMove);
+                long key = patternBoard.hashKey();
+                patternBoard.undoMove();
+                return key;
+            });
+
+            run(results, "moveEvaluate.squares/" + stage, 1, () -> {
+                board.makeMove(firstMove);
+                int score = OthelloSearch.evaluate(board);
+                board.undoMove();
+                return score;
+            });
+
+            run(results, "moveEvaluate.patterns/" + stage, 1, () -> {
+                patternBoard.makeMove(firstMove);
+                int score = weights.evaluate(patternBoard);
+                patternBoard.undoMove();
+                return score;
+            });
+
+            // immutable snapshots: taking one, playing a move on one, and using one as a map key
+            Position position = Position.of(fixture);
+            Position other = position.play(firstMove);
+
+            run(results, "position.of/" + stage, 1, () -> Position.of(fixture).hashKey());
+
+            run(results, "position.play/" + stage, 1, () -> position.play(firstMove).hashKey());
+
+            run(results, "position.equals/" + stage, 2, () -> {
+                return position.hashCode() + (position.equals(other)? 1: 0);
+            });
+
+            // canonical forms as a book or cache would look them up, and a move mapped back
+            long player = fixture.piecesOf(piece);
+            long opponent = fixture.piecesOf(fixture.nextTurn());
+            long[] canonical = new long[2];
+
+            run(results, "canonicalize/" + stage, 1, () -> {
+                int transform = Symmetry.canonicalize(player, opponent, canonical);
+                return canonical[0] ^ canonical[1] ^ Symmetry.fromCanonical(firstMove, transform);
+            });
+
+            run(results, "canonicalize.board/" + stage, 1, () -> {
+                board.copyPosition(fixture);
+                return board.canonicalize();
+            });
+
+            for (OthelloAI.AIDifficulty difficulty: OthelloAI.AIDifficulty.values()) {
+                OthelloAI ai = new OthelloAI(piece);
+                ai.showMessages(false);
+                ai.setDifficulty(difficulty);
+                ai.setSeed(1);
+
+                // searches are limited by depth or playouts rather than time so the work is the same every run
+                ai.setThinkingTime(60_000);
+                ai.setHashSize(1);
+                ai.setMaxDepth(4);
+                ai.setPlayoutLimit(1000);
+
+                run(results, "playPiece." + difficulty + "/" + stage, 1, () -> {
+                    board.copyPosition(fixture);
+                    if (difficulty == OthelloAI.AIDifficulty.SEARCH || difficulty == OthelloAI.AIDifficulty.ENDGAME) {
+                        ai.clearHash();
+                    }
+                    ai.playPiece(board);
+                    return board.hashKey();
+                });
+            }
+
+            board.copyPosition(fixture);
+        }
+
+        runBatch(results);
+
+        OthelloBoard gameBoard = new OthelloBoard();
+        OthelloAI black = new OthelloAI(BLACK_PIECE);
+        OthelloAI white = new OthelloAI(WHITE_PIECE);
+        black.showMessages(false);
+        white.showMessages(false);
+        black.setSeed(1);
+        white.setSeed(2);
+
+        run(results, "randomGame", 1, () -> {
+            gameBoard.resetBoard();
+
+            while (!gameBoard.isGameOver()) {
+                if (black.getPiece() == gameBoard.currentTurn()) {
+                    black.playPiece(gameBoard);
+                } else {
+                    white.playPiece(gameBoard);
+                }
+
+                gameBoard.switchTurns();
+            }
+
+            return gameBoard.countPieces(BLACK_PIECE);
+        });
+    }
+
+    // one operation is one board, so these compare boards/sec in a batch against one board at a time
+    private static void runBatch(Map<String, Double> results) {
+        BoardBatch batch = new BoardBatch(BATCH_SIZE);
+        Random random = new Random(1);
+        int[] squares = new int[BATCH_SIZE];
+
+        // positions from every stage of seeded random games, each with one of its moves chosen
+        Position position = Position.START;
+        while (batch.size() < BATCH_SIZE) {
+            if (position.isGameOver()) {
+                position = Position.START;
+            }
+
+            long legal = position.legalMoves();
+            int move = PASS;
+            for (int skip = legal == 0? 0: random.nextInt(Long.bitCount(legal)); legal != 0; skip--) {
+                move = Long.numberOfTrailingZeros(legal);
+                if (skip == 0) {
+                    break;
+                }
+                legal &= legal - 1;
+            }
+
+            squares[batch.add(position)] = move;
+            position = position.play(move);
+        }
+
+        long[] moves = new long[BATCH_SIZE];
+        long[] flips = new long[BATCH_SIZE];
+        int[] playerCounts = new int[BATCH_SIZE];
+        int[] opponentCounts = new int[BATCH_SIZE];
+
+        run(results, "batch.legalMoves", BATCH_SIZE, () -> {
+            batch.legalMoves(moves);
+            return moves[0] ^ moves[BATCH_SIZE - 1];
+        });
+
+        run(results, "batch.legalMoves.scalar", BATCH_SIZE, () -> {
+            batch.legalMovesScalar(moves);
+            return moves[0] ^ moves[BATCH_SIZE - 1];
+        });
+
+        run(results, "batch.flips", BATCH_SIZE, () -> {
+            batch.flips(squares, flips);
+            return flips[0] ^ flips[BATCH_SIZE - 1];
+        });
+
+        run(results, "batch.flips.scalar", BATCH_SIZE, () -> {
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                flips[i] = squares[i] == PASS? 0: BitBoard.flips(batch.player(i), batch.opponent(i), squares[i]);
+            }
+            return flips[0] ^ flips[BATCH_SIZE - 1];
+        });
+
+        run(results, "batch.countPieces", BATCH_SIZE, () -> {
+            batch.countPieces(playerCounts, opponentCounts);
+            return playerCounts[0] + opponentCounts[BATCH_SIZE - 1];
+        });
+
+        // the same work on the boards the rest of the engine uses, one OthelloBoard at a time
+        OthelloBoard[] boards = new OthelloBoard[BATCH_SIZE];
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            boards[i] = batch.position(i).toBoard();
+        }
+
+        run(results, "batch.legalMoves.board", BATCH_SIZE, () -> {
+            long total = 0;
+            for (OthelloBoard board: boards) {
+                total ^= BitBoard.legalMoves(board.piecesOf(board.currentTurn()), board.piecesOf(board.nextTurn()));
+            }
+            return total;
+        });
+
+        for (String name: new String[] {"batch.legalMoves", "batch.legalMoves.scalar", "batch.legalMoves.board",
+                "batch.flips", "batch.flips.scalar"}) {
+            if (results != null && results.containsKey(name)) {
+                System.out.printf("%-34s %14.0f boards/sec\n", name, 1e9 / results.get(name));
+            }
+        }
+    }
+
+    // pre: operationsPerRun > 0
+    // post: measures 'operation' and records its mean time per operation under 'name', or only
+    //  collects it while operations() runs
+    private static void run(Map<String, Double> results, String name, int operationsPerRun, LongSupplier operation) {
+        if (collected != null) {
+            collected.put(name, operation);
+            return;
+        }
+        if (!name.contains(filter)) {
+            return;
+        }
+
+        // warm up, growing the batch of runs between clock reads until a batch takes
+        // long enough that reading the clock does not show up in the results
+        int batch = 1;
+        long end = System.nanoTime() + warmupMillis * 1_000_000;
+        while (System.nanoTime() < end) {
+            long start = System.nanoTime();
+            for (int i = 0; i < batch; i++) {
+                sink += operation.getAsLong();
+            }
+
+            if (System.nanoTime() - start < 20_000 && batch < (1 << 20)) {
+                batch *= 2;
+            }
+        }
+
+        double[] nanosPerOperation = new double[iterations];
+        long operations = 0;
+        long allocatedBefore = Metrics.allocatedBytes();
+
+        for (int i = 0; i < iterations; i++) {
+            long runs = 0;
+            long start = System.nanoTime();
+            end = start + iterationMillis * 1_000_000;
+
+            long now;
+            do {
+                for (int j = 0; j < batch; j++) {
+                    sink += operation.getAsLong();
+                }
+                runs += batch;
+                now = System.nanoTime();
+            } while (now < end);
+
+            nanosPerOperation[i] = (now - start) / (double) (runs * operationsPerRun);
+            operations += runs * operationsPerRun;
+        }
+
+        long allocated = Metrics.allocatedBytes() - allocatedBefore;
+
+        double mean = 0;
+        double min = Double.MAX_VALUE;
+        double max = 0;
+        for (double value: nanosPerOperation) {
+            mean += value / iterations;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+
+        results.put(name, mean);
+        System.out.printf("%-34s %14.2f %12.2f %12.2f\n", name, mean, (max - min) / 2, allocated / (double) operations);
+    }
+
+    private static void save(Path path, Map<String, Double> results) throws IOException {
+        List<String> lines = new ArrayList<>();
+
+        for (Map.Entry<String, Double> result: results.entrySet()) {
+            lines.add(result.getKey() + " " + result.getValue());
+        }
+
+        Files.write(path, lines, StandardCharsets.UTF_8);
+        System.out.println("Saved results to " + path);
+    }
+
+    // post: prints every benchmark slower than the baseline by more than 'tolerance' percent
+    //  and returns whether there were none
+    private static boolean compare(Path path, Map<String, Double> results, double tolerance) throws IOException {
+        boolean passed = true;
+
+        for (String line: Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            String[] parts = line.trim().split("\\s+");
+            if (parts.length != 2 || !results.containsKey(parts[0])) {
+                continue;
+            }
+
+            double baseline = Double.parseDouble(parts[1]);
+            double current = results.get(parts[0]);
+            double change = 100 * (current - baseline) / baseline;
+
+            if (change > tolerance) {
+                System.out.printf("REGRESSION %-34s %.2f ns/op -> %.2f ns/op (%+.1f%%)\n", parts[0], baseline, current, change);
+                passed = false;
+            }
+        }
+
+        System.out.println(passed? "No regressions against " + path: "Regressions found against " + path);
+        return passed;
+    }
+}
@@ -0,0 +1,511 @@
+import java.util.Random;
+
+// Exact solver for the end of the game.
+//
+// The solver plays every line to the end and returns the final disc margin
+// for the side to move under perfect play, with empty squares going to the
+// winner. It works on raw bitboards and keeps the empty squares in a linked
+// list, so each node only looks at squares that are still empty. Near the
+// leaves it tries moves in quadrants with an odd number of empties first
+// (parity ordering); higher up it tries the moves that leave the opponent
+// the fewest replies first (fastest-first ordering), searches every move after
+// the first with a null window, and remembers results in a transposition table.
+//
+//   java EndgameSolver [empties] [positions] [seed]
+// solves random positions with the given number of empty squares and
+// reports scores, nodes and time.
+public class EndgameSolver implements OthelloConstants {
+
+    // at or above this many empties moves are sorted by opponent mobility
+    private static final int FASTEST_FIRST_EMPTIES = 7;
+
+    // at or above this many empties results go through the transposition table
+    private static final int HASH_EMPTIES = 8;
+
+    private static final long CORNERS = 0x8100000000000081L;
+
+    private static final int HEAD = BitBoard.SQUARES; // sentinel of the empty-square list
+
+    // how many nodes to search between checks of the clock
+    private static final int CLOCK_CHECK_INTERVAL = 1024;
+
+    // the order empties are kept in: corners first, the squares next to corners last
+    private static final int[] SQUARE_ORDER = {
+         0,  7, 56, 63,
+         2,  5, 16, 23, 40, 47, 58, 61,
+         3,  4, 24, 31, 32, 39, 59, 60,
+        18, 21, 42, 45,
+        19, 20, 26, 29, 34, 37, 43, 44,
+        11, 12, 25, 30, 33, 38, 51, 52,
+        10, 13, 17, 22, 41, 46, 50, 53,
+         1,  6,  8, 15, 48, 55, 57, 62,
+         9, 14, 49, 54,
+        27, 28, 35, 36
+    };
+
+    // empty-square linked list, indexed by square, with HEAD as the sentinel
+    private final int[] next = new int[BitBoard.SQUARES + 1];
+    private final int[] previous = new int[BitBoard.SQUARES + 1];
+
+    // per-depth buffers for fastest-first ordering
+    private final int[][] moveLists = new int[BitBoard.SQUARES + 1][BitBoard.SQUARES];
+    private final int[][] moveKeys = new int[BitBoard.SQUARES + 1][BitBoard.SQUARES];
+
+    // results are exact facts about a position, so the table is kept between solves
+    private final TranspositionTable table;
+
+    private long nodes;
+    private long elapsedNanos;
+    private long deadline;
+    private volatile boolean stopped;
+
+    // table lookups of the current solve, counted only for Metrics
+    private long tableProbes;
+    private long tableHits;
+    private int bestMove;
+
+    public EndgameSolver() {
+        this(16);
+    }
+
+    // pre: megabytes > 0
+    // post: creates a solver whose transposition table uses 'megabytes' MB
+    public EndgameSolver(int megabytes) {
+        table = new TranspositionTable(megabytes);
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    // post: forgets every position solved so far
+    public void clearHash() {
+        table.clear();
+    }
+
+    // post: returns the best move found by the last solve, or PASS if there was none
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    // post: returns whether the last solve ran out of time or was stopped before it finished,
+    //  in which case its score and best move mean nothing
+    public boolean wasStopped() {
+        return stopped;
+    }
+
+    // pre: none
+    // post: asks a running solve (from another thread) to stop as soon as possible
+    public void stop() {
+        stopped = true;
+    }
+
+    // pre: none
+    // post: returns the final disc margin the side to move gets with perfect play from both
+    //  sides, and remembers the move that gets it; the board is not changed. There is no
+    //  time limit, only stop() ends the solve early.
+    public int solve(OthelloBoard board) {
+        char me = board.currentTurn();
+        return solve(board.piecesOf(me), board.piecesOf(board.nextTurn()));
+    }
+
+    // pre: player and opponent do not overlap, player is to move
+    // post: same as solve(OthelloBoard) for the position given as masks
+    public int solve(long player, long opponent) {
+        return solveUntil(player, opponent, Long.MAX_VALUE);
+    }
+
+    // pre: player and opponent do not overlap, player is to move, timeLimitMillis > 0
+    // post: same as solve(player, opponent), but gives up once 'timeLimitMillis' have passed;
+    //  wasStopped tells whether it did
+    public int solve(long player, long opponent, long timeLimitMillis) {
+        if (timeLimitMillis <= 0) {
+            throw new IllegalArgumentException("time limit must be positive");
+        }
+
+        return solveUntil(player, opponent, System.nanoTime() + timeLimitMillis * 1_000_000);
+    }
+
+    // solves until System.nanoTime() passes 'deadline'
+    private int solveUntil(long player, long opponent, long deadline) {
+        long start = System.nanoTime();
+        this.deadline = deadline;
+        stopped = false;
+        nodes = 1;
+        tableProbes = 0;
+        tableHits = 0;
+        bestMove = PASS;
+
+        long empty = ~(player | opponent);
+        int empties = Long.bitCount(empty);
+        int parity = buildEmptyList(empty);
+
+        long moves = BitBoard.legalMoves(player, opponent);
+        int score;
+
+        if (moves == 0) {
+            score = empties == 0 || BitBoard.legalMoves(opponent, player) == 0
+                ? finalScore(player, opponent, empties)
+                : -search(opponent, player, -BitBoard.SQUARES, BitBoard.SQUARES, empties, parity);
+        } else {
+            // the root always uses fastest-first ordering so the best move is found early
+            int count = orderMoves(player, opponent, moves, empties, PASS);
+            int[] list = moveLists[empties];
+            int alpha = -BitBoard.SQUARES - 1;
+
+            for (int i = 0; i < count; i++) {
+                int square = list[i];
+                int value;
+
+                if (i == 0) {
+                    value = -play(player, opponent, square, -BitBoard.SQUARES - 1, BitBoard.SQUARES + 1, empties, parity);
+                } else {
+                    value = -play(player, opponent, square, -alpha - 1, -alpha, empties, parity);
+                    if (value > alpha) {
+                        value = -play(player, opponent, square, -BitBoard.SQUARES - 1, -value, empties, parity);
+                    }
+                }
+
+                // the move searched when the stop came has a made up score
+                if (stopped) {
+                    break;
+                }
+
+                if (value > alpha) {
+                    alpha = value;
+                    bestMove = square;
+                }
+            }
+
+            score = alpha;
+            if (empties >= HASH_EMPTIES && !stopped) {
+                table.store(key(player, opponent), empties, TranspositionTable.EXACT, score, bestMove);
+            }
+        }
+
+        if (Metrics.ENABLED) {
+            Metrics.NODES.add(nodes);
+            Metrics.TABLE_PROBES.add(tableProbes);
+            Metrics.TABLE_HITS.add(tableHits);
+        }
+
+        elapsedNanos = System.nanoTime() - start;
+        return score;
+    }
+
+    // post: fills the empty list from 'empty' and returns the parity of each quadrant
+    private int buildEmptyList(long empty) {
+        int last = HEAD;
+        int parity = 0;
+
+        for (int square: SQUARE_ORDER) {
+            if ((empty & (1L << square)) != 0) {
+                next[last] = square;
+                previous[square] = last;
+                last = square;
+                parity ^= 1 << quadrant(square);
+            }
+        }
+
+        next[last] = HEAD;
+        previous[HEAD] = last;
+        return parity;
+    }
+
+    private static int quadrant(int square) {
+        return (BitBoard.row(square) >> 2) * 2 + (BitBoard.col(square) >> 2);
+    }
+
+    // post: plays 'square' for player, searches the result for the opponent, and undoes it
+    private int play(long player, long opponent, int square, int alpha, int beta, int empties, int parity) {
+        long flipped = BitBoard.flips(player, opponent, square);
+
+        // take the square out of the empty list
+        next[previous[square]] = next[square];
+        previous[next[square]] = previous[square];
+
+        int score = search(opponent & ~flipped, player | flipped | (1L << square),
+            alpha, beta, empties - 1, parity ^ (1 << quadrant(square)));
+
+        // and put it back
+        next[previous[square]] = square;
+        previous[next[square]] = square;
+
+        return score;
+    }
+
+    private int search(long player, long opponent, int alpha, int beta, int empties, int parity) {
+        nodes++;
+
+        if ((nodes % CLOCK_CHECK_INTERVAL) == 0 && System.nanoTime() > deadline) {
+            stopped = true;
+        }
+        if (stopped) {
+            return 0;
+        }
+
+        if (empties == 1) {
+            return lastEmpty(player, opponent, next[HEAD]);
+        }
+
+        long moves = BitBoard.legalMoves(player, opponent);
+
+        if (moves == 0) {
+            if (BitBoard.legalMoves(opponent, player) == 0) {
+                return finalScore(player, opponent, empties);
+            }
+
+            return -search(opponent, player, -beta, -alpha, empties, parity);
+        }
+
+        int best = -BitBoard.SQUARES - 1;
+
+        if (empties >= FASTEST_FIRST_EMPTIES) {
+            return searchOrdered(player, opponent, moves, alpha, beta, empties, parity);
+        }
+
+        // parity ordering: squares in odd quadrants first, then the rest
+        for (int odd = 1; odd >= 0; odd--) {
+            for (int square = next[HEAD]; square != HEAD; square = next[square]) {
+                if ((moves & (1L << square)) == 0 || ((parity >> quadrant(square)) & 1) != odd) {
+                    continue;
+                }
+
+                int score = -play(player, opponent, square, -beta, -alpha, empties, parity);
+
+                if (score > best) {
+                    best = score;
+                    if (score > alpha) {
+                        alpha = score;
+                        if (alpha >= beta) {
+                            return best;
+                        }
+                    }
+                }
+            }
+        }
+
+        return best;
+    }
+
+    // the part of search far from the leaves, where ordering and the table pay for themselves
+    private int searchOrdered(long player, long opponent, long moves, int alpha, int beta, int empties, int parity) {
+        long key = 0;
+        int hashMove = PASS;
+
+        if (empties >= HASH_EMPTIES) {
+            key = key(player, opponent);
+            long entry = table.probe(key);
+
+            if (Metrics.ENABLED) {
+                tableProbes++;
+                tableHits += entry != TranspositionTable.MISS? 1: 0;
+            }
+
+            if (entry != TranspositionTable.MISS) {
+                int score = TranspositionTable.score(entry);
+                int bound = TranspositionTable.bound(entry);
+
+                if (bound == TranspositionTable.EXACT) {
+                    return score;
+                } else if (bound == TranspositionTable.LOWER_BOUND) {
+                    alpha = Math.max(alpha, score);
+                } else {
+                    beta = Math.min(beta, score);
+                }
+
+                if (alpha >= beta) {
+                    return score;
+                }
+
+                hashMove = TranspositionTable.move(entry);
+            }
+        }
+
+        int originalAlpha = alpha;
+        int count = orderMoves(player, opponent, moves, empties, hashMove);
+        int[] list = moveLists[empties];
+        int best = -BitBoard.SQUARES - 1;
+        int bestSquare = PASS;
+
+        for (int i = 0; i < count; i++) {
+            int score;
+
+            if (i == 0) {
+                score = -play(player, opponent, list[i], -beta, -alpha, empties, parity);
+            } else {
+                // the first move is usually best, so only prove the others are not better
+                score = -play(player, opponent, list[i], -alpha - 1, -alpha, empties, parity);
+                if (score > alpha && score < beta) {
+                    score = -play(player, opponent, list[i], -beta, -score, empties, parity);
+                }
+            }
+
+            if (score > best) {
+                best = score;
+                bestSquare = list[i];
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        // results are kept between solves, so a made up score from a stopped solve must not get in
+        if (empties >= HASH_EMPTIES && !stopped) {
+            int bound;
+            if (best <= originalAlpha) {
+                bound = TranspositionTable.UPPER_BOUND;
+            } else if (best >= beta) {
+                bound = TranspositionTable.LOWER_BOUND;
+            } else {
+                bound = TranspositionTable.EXACT;
+            }
+
+            table.store(key, empties, bound, best, bestSquare);
+        }
+
+        return best;
+    }
+
+    // post: fills moveLists[empties] with the moves sorted so that 'first' comes first and
+    //  the ones leaving the opponent the fewest replies come next, and returns how many there are
+    private int orderMoves(long player, long opponent, long moves, int empties, int first) {
+        int[] list = moveLists[empties];
+        int[] keys = moveKeys[empties];
+        int count = 0;
+
+        for (int square = next[HEAD]; square != HEAD; square = next[square]) {
+            long placed = 1L << square;
+            if ((moves & placed) == 0) {
+                continue;
+            }
+
+            long flipped = BitBoard.flips(player, opponent, square);
+            long replies = BitBoard.legalMoves(opponent & ~flipped, player | flipped | placed);
+            // a reply in a corner counts twice
+            int key = square == first? -1: Long.bitCount(replies) + Long.bitCount(replies & CORNERS);
+
+            // insertion sort by number of replies, the lists are short
+            int i = count++;
+            while (i > 0 && keys[i - 1] > key) {
+                list[i] = list[i - 1];
+                keys[i] = keys[i - 1];
+                i--;
+            }
+
+            list[i] = square;
+            keys[i] = key;
+        }
+
+        return count;
+    }
+
+    // pre: 'square' is the only empty square
+    // post: returns the exact final margin for player, who is to move
+    private int lastEmpty(long player, long opponent, int square) {
+        long placed = 1L << square;
+        long flipped = BitBoard.flips(player, opponent, square);
+
+        if (flipped != 0) {
+            return Long.bitCount(player | flipped | placed) - Long.bitCount(opponent & ~flipped);
+        }
+
+        // player has to pass, see if the opponent can take the square
+        flipped = BitBoard.flips(opponent, player, square);
+        if (flipped != 0) {
+            return Long.bitCount(player & ~flipped) - Long.bitCount(opponent | flipped | placed);
+        }
+
+        return finalScore(player, opponent, 1);
+    }
+
+    // post: returns a table key for the position; the pieces fix the number of empties
+    private static long key(long player, long opponent) {
+        long z = player * 0x9E3779B97F4A7C15L ^ Long.rotateLeft(opponent, 32) * 0xC2B2AE3D27D4EB4FL;
+        z = (z ^ (z >>> 29)) * 0xBF58476D1CE4E5B9L;
+        return z ^ (z >>> 32);
+    }
+
+    // post: returns the margin for player at the end of the game, with the empties given to the winner
+    private static int finalScore(long player, long opponent, int empties) {
+        int margin = Long.bitCount(player) - Long.bitCount(opponent);
+
+        if (margin > 0) {
+            return margin + empties;
+        } else if (margin < 0) {
+            return margin - empties;
+        }
+
+        return 0;
+    }
+
+    public static void main(String[] args) {
+        int empties = 16;
+        int positions = 5;
+        long seed = 1;
+
+        try {
+            if (args.length >= 1) {
+                empties = Integer.parseInt(args[0]);
+            }
+            if (args.length >= 2) {
+                positions = Integer.parseInt(args[1]);
+            }
+            if (args.length >= 3) {
+                seed = Long.parseLong(args[2]);
+            }
+        } catch (RuntimeException e) {
+            System.out.println("Something went wrong with the formatting");
+            System.out.println("usage: java EndgameSolver [empties] [positions] [seed]");
+            System.exit(2);
+        }
+
+        Random random = new Random(seed);
+        EndgameSolver solver = new EndgameSolver();
+        long totalNodes = 0;
+        long totalNanos = 0;
+
+        for (int i = 0; i < positions; i++) {
+            OthelloBoard board = randomPosition(random, empties);
+            int score = solver.solve(board);
+            int move = solver.getBestMove();
+
+            totalNodes += solver.getNodes();
+            totalNanos += solver.getElapsedNanos();
+
+            System.out.print(board);
+            System.out.printf("%c to move: score %+d, best move %s, %d nodes in %.3f s\n\n",
+                board.currentTurn(), score, move == PASS? "pass": "(" + BitBoard.row(move) + ", " + BitBoard.col(move) + ")",
+                solver.getNodes(), solver.getElapsedNanos() / 1e9);
+        }
+
+        System.out.printf("Solved %d positions with %d empties: %d nodes in %.3f s (%.0f nodes/sec)\n",
+            positions, empties, totalNodes, totalNanos / 1e9, totalNodes / (totalNanos / 1e9));
+    }
+
+    // post: returns a position reached by random play with 'empties' empty squares and a move to play
+    private static OthelloBoard randomPosition(Random random, int empties) {
+        OthelloBoard board = new OthelloBoard();
+        int[] moves = new int[BitBoard.SQUARES];
+
+        while (true) {
+            board.resetBoard();
+
+            while (board.countPieces(BLANK_PIECE) > empties && !board.isGameOver()) {
+                int count = board.legalMoves(board.currentTurn(), moves);
+                board.makeMove(count == 0? PASS: moves[random.nextInt(count)]);
+            }
+
+            if (board.countPieces(BLANK_PIECE) == empties && board.legalMoves(board.currentTurn()) != 0) {
+                return board;
+            }
+        }
+    }
+}
@@ -0,0 +1,254 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+// Checks the code that scores positions and engines. PatternWeights must give
+// a position the same value from either colour and from every symmetric copy,
+// and never a score the search would take for a won game. WeightTrainer must
+// lower its error epoch by epoch on seeded random games, and the weights it
+// learns must come back unchanged from a file. The statistics a
+// Tournament reports are checked against values worked out by hand: the score
+// and Elo of wins, ties and losses, the confidence interval of the Elo, and
+// the log likelihood ratio the SPRT decides a match with.
+//
+//   java EvaluationTester [positions seed]
+public class EvaluationTester implements OthelloConstants {
+    public static void main(String[] args) throws IOException, InterruptedException {
+
+        int N = 1000; // positions to evaluate
+        long seed = 42;
+
+        // check if args passed into command line
+        // first argument will be N, second argument will be the random seed
+        if (args.length == 2) {
+            try {
+                N = Integer.parseInt(args[0]);
+                seed = Long.parseLong(args[1]);
+            } catch (Exception e) {
+                System.out.println("Something went wrong with the formatting");
+                System.out.println("Going back to default settings");
+            }
+        }
+
+        Random random = new Random(seed);
+
+        if (!patternsMatch(random, N)) {
+            System.exit(1);
+        }
+        System.out.printf("PatternWeights gave all %d positions the same value from both colours and every symmetry.\n", N);
+
+        if (!trainerMatches(random, 200, 4)) {
+            System.exit(1);
+        }
+        System.out.println("WeightTrainer lowered its error every epoch and its weights came back from a file.");
+
+        if (!tournamentMatches()) {
+            System.exit(1);
+        }
+        System.out.println("The tournament statistics matched their known values.");
+    }
+
+    // post: returns whether the default weights value each of 'positions' random positions the
+    //  opposite way with the colours swapped, the same way with the side to move swapped too,
+    //  and the same way in every symmetric copy; and whether weights that add up past WIN are
+    //  held below it, so a search with them still goes as deep as it is asked
+    private static boolean patternsMatch(Random random, int positions) {
+        PatternWeights weights = PatternWeights.defaults();
+
+        for (int i = 1; i <= positions; i++) {
+            OthelloBoard board = randomPosition(random);
+            board.trackPatterns(true);
+            int value = weights.evaluate(board);
+
+            long black = board.piecesOf(BLACK_PIECE);
+            long white = board.piecesOf(WHITE_PIECE);
+            OthelloBoard swapped = new OthelloBoard(white, black, board.currentTurn());
+            swapped.trackPatterns(true);
+            OthelloBoard turned = new OthelloBoard(white, black, board.nextTurn());
+            turned.trackPatterns(true);
+
+            if (weights.evaluate(swapped) != -value || weights.evaluate(turned) != value) {
+                System.out.printf("PatternWeights valued position %d as %d, with the colours swapped %d "
+                    + "and with the side to move swapped too %d\n%s\n", i, value, weights.evaluate(swapped),
+                    weights.evaluate(turned), board);
+                return false;
+            }
+
+            for (int transform = 1; transform < Symmetry.TRANSFORMS; transform++) {
+                OthelloBoard image = new OthelloBoard(board);
+                image.trackPatterns(true);
+                image.transform(transform);
+
+                if (weights.evaluate(image) != value) {
+                    System.out.printf("PatternWeights valued position %d as %d, turned by %d as %d\n%s\n",
+                        i, value, transform, weights.evaluate(image), board);
+                    return false;
+                }
+            }
+        }
+
+        // every pattern weight as large as a weight can be, and no mobility
+        float[] values = new float[PatternWeights.STAGES * PatternWeights.FEATURES];
+        Arrays.fill(values, 300);
+        for (int stage = 0; stage < PatternWeights.STAGES; stage++) {
+            values[stage * PatternWeights.FEATURES + PatternWeights.MOBILITY] = 0;
+        }
+        PatternWeights large = new PatternWeights(values);
+
+        OthelloBoard board = new OthelloBoard();
+        board.trackPatterns(true);
+        if (large.evaluate(board) != PatternWeights.MAX_SCORE) {
+            System.out.printf("Large weights valued the start at %d, not the most allowed %d\n",
+                large.evaluate(board), PatternWeights.MAX_SCORE);
+            return false;
+        }
+
+        OthelloSearch search = new OthelloSearch(new TranspositionTable(1));
+        search.setWeights(large);
+        search.setMaxDepth(4);
+        search.search(board, 60_000);
+        if (search.getDepthReached() != 4) {
+            System.out.printf("A search with large weights stopped at depth %d of 4, taking a score for a win\n",
+                search.getDepthReached());
+            return false;
+        }
+
+        return true;
+    }
+
+    // post: returns whether training on one thread from zero weights over 'games' random games
+    //  lowers the error in each of 'epochs' epochs, and whether the weights saved to a file load
+    //  back the same and evaluate positions the same
+    private static boolean trainerMatches(Random random, int games, int epochs)
+            throws IOException, InterruptedException {
+        Path records = Files.createTempFile("othello", ".games");
+        Path saved = Files.createTempFile("othello", ".weights");
+
+        try {
+            try (GameRecordWriter writer = new GameRecordWriter(records)) {
+                OthelloBoard board = new OthelloBoard();
+                int[] moves = new int[BitBoard.SQUARES];
+                byte[] record = new byte[GameRecordWriter.MAX_MOVES];
+
+                for (int g = 0; g < games; g++) {
+                    int length = 0;
+                    board.resetBoard();
+
+                    while (!board.isGameOver()) {
+                        int count = board.legalMoves(board.currentTurn(), moves);
+                        int move = count == 0? PASS: moves[random.nextInt(count)];
+                        record[length++] = PositionCodec.encodeMove(move);
+                        board.makeMove(move);
+                    }
+
+                    writer.write(record, length);
+                }
+            }
+
+            // one thread visits the examples in the same order every time, so this is repeatable
+            WeightTrainer trainer = new WeightTrainer(
+                new PatternWeights(new float[PatternWeights.STAGES * PatternWeights.FEATURES]), 1, 0.01f);
+            double previous = Double.POSITIVE_INFINITY;
+
+            for (int epoch = 1; epoch <= epochs; epoch++) {
+                double error = trainer.trainEpoch(List.of(records));
+
+                if (trainer.getExamplesTrained() == 0 || !(error < previous)) {
+                    System.out.printf("WeightTrainer's error went from %.3f to %.3f discs in epoch %d of %d examples\n",
+                        previous, error, epoch, trainer.getExamplesTrained());
+                    return false;
+                }
+                previous = error;
+            }
+
+            PatternWeights trained = trainer.getWeights();
+            trained.save(saved);
+            PatternWeights loaded = PatternWeights.load(saved);
+
+            if (!Arrays.equals(trained.toArray(), loaded.toArray())) {
+                System.out.println("The weights loaded from a file were not the ones saved to it");
+                return false;
+            }
+
+            for (int i = 0; i < 100; i++) {
+                OthelloBoard board = randomPosition(random);
+                board.trackPatterns(true);
+
+                if (trained.evaluate(board) != loaded.evaluate(board)) {
+                    System.out.printf("The weights loaded from a file valued a position as %d, not %d\n%s\n",
+                        loaded.evaluate(board), trained.evaluate(board), board);
+                    return false;
+                }
+            }
+        } finally {
+            Files.delete(records);
+            Files.delete(saved);
+        }
+
+        return true;
+    }
+
+    // post: returns a position from a random game, anywhere from the start to the end
+    private static OthelloBoard randomPosition(Random random) {
+        OthelloBoard board = new OthelloBoard();
+        int[] moves = new int[BitBoard.SQUARES];
+        int plies = random.nextInt(60);
+
+        for (int ply = 0; ply < plies && !board.isGameOver(); ply++) {
+            int count = board.legalMoves(board.currentTurn(), moves);
+            board.makeMove(count == 0? PASS: moves[random.nextInt(count)]);
+        }
+
+        return board;
+    }
+
+    // post: returns whether score, elo, expectedScore, eloInterval and llr give the values
+    //  worked out for them, and the SPRT can decide a match that one engine wins every pair of
+    private static boolean tournamentMatches() {
+        double[][] checks = {
+            // computed value, known value
+            {Tournament.score(new int[] {3, 2, 1}), 2.0 / 3},
+            {Tournament.score(new int[] {0, 0, 0}), 0.5},
+            {Tournament.expectedScore(0), 0.5},
+            {Tournament.expectedScore(400), 10.0 / 11},
+            {Tournament.expectedScore(-400), 1.0 / 11},
+            {Tournament.elo(0.5), 0},
+            {Tournament.elo(10.0 / 11), 400},
+            {Tournament.elo(1), 1199.826},
+            {Tournament.elo(0), -1199.826},
+            {Tournament.eloInterval(new int[] {30, 40, 30})[1], -52.800},
+            {Tournament.eloInterval(new int[] {30, 40, 30})[2], 52.800},
+            {Tournament.eloInterval(new int[] {20, 0, 0})[0], 1199.826},
+            {Tournament.eloInterval(new int[] {20, 0, 0})[1], 286.607},
+            {Tournament.eloInterval(new int[] {0, 0, 20})[2], -286.607},
+            {Tournament.llr(new int[] {0, 0, 0, 0, 0}, 0, 10), 0},
+            {Tournament.llr(new int[] {5, 10, 20, 10, 5}, 0, 10), -0.068107},
+            {Tournament.llr(new int[] {2, 5, 10, 20, 13}, 0, 10), 1.734995},
+            {Tournament.llr(new int[] {20, 0, 0, 0, 0}, 0, 10), -8.440697},
+            {Tournament.llr(new int[] {0, 0, 0, 0, 20}, 0, 10), 8.201266},
+        };
+
+        for (int i = 0; i < checks.length; i++) {
+            if (Math.abs(checks[i][0] - checks[i][1]) > 1e-3) {
+                System.out.printf("Tournament check %d gave %.6f instead of %.6f\n", i, checks[i][0], checks[i][1]);
+                return false;
+            }
+        }
+
+        // one engine winning every pair must be decided long before the default 1000 games
+        double lower = Math.log(0.05 / 0.95);
+        double upper = Math.log(0.95 / 0.05);
+        for (int pairs = 1; pairs <= 20; pairs++) {
+            if (Tournament.llr(new int[] {0, 0, 0, 0, pairs}, 0, 10) >= upper
+                    && Tournament.llr(new int[] {pairs, 0, 0, 0, 0}, 0, 10) <= lower) {
+                return true;
+            }
+        }
+
+        System.out.println("The SPRT did not decide a match where one engine won the first 20 pairs");
+        return false;
+    }
+}
@@ -0,0 +1,78 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Streams the games in a file written by GameRecordWriter, one at a time,
+// through a fixed size buffer, so files of any size can be read in constant memory.
+public class GameRecordReader implements Closeable, OthelloConstants {
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private boolean endOfFile;
+
+    // pre: 'path' is a game-record file
+    // post: opens the file and checks its header
+    public GameRecordReader(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        buffer.flip();
+
+        if (!fill(4) || buffer.getInt() != GameRecordWriter.MAGIC) {
+            channel.close();
+            throw new IOException(path + " is not a game-record file");
+        }
+    }
+
+    // pre: moves can hold GameRecordWriter.MAX_MOVES moves
+    // post: reads the next game into moves and returns its number of moves, or -1 at the end of the file
+    public int next(byte[] moves) throws IOException {
+        if (!fill(1)) {
+            return -1;
+        }
+
+        int length = buffer.get(buffer.position()) & 0xFF;
+        if (!fill(length + 1)) {
+            throw new IOException("game record file ends in the middle of a game");
+        }
+
+        buffer.get();
+        buffer.get(moves, 0, length);
+        return length;
+    }
+
+    // post: returns whether at least 'bytes' unread bytes are in the buffer, reading more if needed
+    private boolean fill(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return true;
+        }
+
+        buffer.compact();
+        while (buffer.position() < bytes && !endOfFile) {
+            if (channel.read(buffer) < 0) {
+                endOfFile = true;
+            }
+        }
+        buffer.flip();
+
+        return buffer.remaining() >= bytes;
+    }
+
+    // pre: moves holds 'length' moves of a game record
+    // post: resets the board and plays the moves on it
+    public static void replay(byte[] moves, int length, OthelloBoard board) {
+        board.resetBoard();
+
+        for (int i = 0; i < length; i++) {
+            board.makeMove(PositionCodec.decodeMove(moves[i]));
+        }
+    }
+
+    public void close() throws IOException {
+        channel.close();
+    }
+}
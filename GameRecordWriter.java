@@ -0,0 +1,106 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Writes finished games to a binary game-record file.
+//
+// The file starts with the 4 byte MAGIC and then holds one record per game:
+// a byte with the number of moves, followed by one byte per move as written by
+// PositionCodec.encodeMove. Every game starts from the standard starting
+// position, so the moves are all that is needed to replay it.
+//
+// Writes are buffered and the writer can be shared between threads. Threads
+// writing many games should collect them in their own buffer with append and
+// hand over a full buffer at a time, so they only take the lock rarely.
+public class GameRecordWriter implements Closeable {
+
+    public static final int MAGIC = 0x4F544847; // "OTHG"
+    public static final int MAX_MOVES = 255;
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private long games;
+
+    // pre: none
+    // post: creates (or empties) the file at 'path' and writes the file header
+    public GameRecordWriter(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+        buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        buffer.putInt(MAGIC);
+    }
+
+    // pre: records is a buffer filled by append and not yet flipped, length <= MAX_MOVES
+    // post: adds one game to records and returns true, or returns false if it does not fit
+    public static boolean append(ByteBuffer records, byte[] moves, int length) {
+        if (length > MAX_MOVES) {
+            throw new IllegalArgumentException("a game record holds at most " + MAX_MOVES + " moves");
+        }
+        if (records.remaining() < length + 1) {
+            return false;
+        }
+
+        records.put((byte) length);
+        records.put(moves, 0, length);
+        return true;
+    }
+
+    // pre: length <= MAX_MOVES
+    // post: writes one game
+    public synchronized void write(byte[] moves, int length) throws IOException {
+        if (!append(buffer, moves, length)) {
+            flush();
+            append(buffer, moves, length);
+        }
+
+        games++;
+    }
+
+    // pre: records was filled by append and has not been flipped
+    // post: writes every game in records and clears it
+    public synchronized void write(ByteBuffer records, int gameCount) throws IOException {
+        records.flip();
+
+        if (records.remaining() > buffer.remaining()) {
+            flush();
+        }
+
+        if (records.remaining() > buffer.remaining()) {
+            writeFully(records);
+        } else {
+            buffer.put(records);
+        }
+
+        records.clear();
+        games += gameCount;
+    }
+
+    public synchronized long gamesWritten() {
+        return games;
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        writeFully(buffer);
+        buffer.clear();
+    }
+
+    private void writeFully(ByteBuffer source) throws IOException {
+        while (source.hasRemaining()) {
+            channel.write(source);
+        }
+    }
+
+    public synchronized void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,513 @@
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Headless Othello: every TCP connection on localhost is a game against its own OthelloAI.
+//
+//   java GameServer [-port port] [-threads searchThreads] [-hash megabytes] [-maxTime millis]
+//
+// One thread runs a selector over every connection, so idle sessions cost a
+// board, an AI and a small buffer and no thread. AI turns run on a shared pool
+// of searchThreads threads; a session waits there while every thread is busy,
+// so however many games are going the AI never uses more than that many cores.
+//
+// The protocol is one command per line, answered by one or more lines:
+//
+//   NEW colour [difficulty [thinkingMillis]]
+//                    starts a game with the client playing colour (B or W) against
+//                    an AI of the difficulty (default RANDOM). The answer is READY
+//                    when the client moves first, else the AI's first move. The
+//                    thinking time is 10 ms unless given, and at most maxTime.
+//   MOVE row col     plays the client's move, MOVE PASS passes when it has none.
+//                    The answer is the AI's move.
+//   BOARD            answers BOARD, the 64 squares row by row, and the side to move
+//   QUIT             closes the connection
+//
+// The AI's move is MOVED row col, or MOVED PASS. When a move ends the game,
+// GAMEOVER black white follows with the final piece counts. Anything wrong
+// is answered with ERROR and a reason, and the game goes on as before, except
+// when the AI itself fails to move: then the ERROR is followed by closing the
+// connection, since the game can no longer go on.
+// Commands may be sent ahead; those that arrive while the AI is thinking are
+// run, in order, once it has moved.
+public class GameServer implements OthelloConstants {
+
+    public static final String GREETING = "OTHELLO 1";
+
+    // the longest command the server accepts, anything longer closes the connection
+    private static final int MAX_LINE = 128;
+
+    // every session searches with its own table, kept small so thousands of them fit
+    private static final int DEFAULT_HASH_SIZE = 1;
+
+    // the longest a client may ask the AI to think per move, so one game cannot hold a search thread for long
+    private static final long DEFAULT_MAX_THINKING_TIME = 10_000;
+
+    private static final long DEFAULT_THINKING_TIME = 10;
+
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final ExecutorService searches;
+    private final int hashSize;
+    private final long maxThinkingTime;
+
+    // sessions whose AI finished thinking, handed back to the selector thread
+    private final ConcurrentLinkedQueue<Session> thought = new ConcurrentLinkedQueue<>();
+
+    private volatile boolean running = true;
+    private int sessions;
+
+    // pre: port is between 0 and 65535 (0 picks a free port), searchThreads > 0, hashSize > 0
+    // post: opens the server socket on localhost; run serves it
+    public GameServer(int port, int searchThreads, int hashSize) throws IOException {
+        this(port, searchThreads, hashSize, DEFAULT_MAX_THINKING_TIME);
+    }
+
+    // pre: port is between 0 and 65535 (0 picks a free port), searchThreads > 0, hashSize > 0,
+    //  maxThinkingTime > 0
+    // post: opens the server socket on localhost, where games may ask the AI to think for at
+    //  most maxThinkingTime ms per move; run serves it
+    public GameServer(int port, int searchThreads, int hashSize, long maxThinkingTime) throws IOException {
+        if (searchThreads <= 0) {
+            throw new IllegalArgumentException("search thread count must be positive");
+        }
+        if (hashSize <= 0) {
+            throw new IllegalArgumentException("hash size must be positive");
+        }
+        if (maxThinkingTime <= 0) {
+            throw new IllegalArgumentException("maximum thinking time must be positive");
+        }
+
+        this.hashSize = hashSize;
+        this.maxThinkingTime = maxThinkingTime;
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+
+        searches = Executors.newFixedThreadPool(searchThreads, task -> {
+            Thread thread = new Thread(task, "game-search");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    // post: returns how many connections are open; only exact on the selector thread
+    public int getSessions() {
+        return sessions;
+    }
+
+    // pre: run has not been called
+    // post: serves connections until close is called
+    public void run() throws IOException {
+        try {
+            while (running) {
+                selector.select();
+
+                Session session;
+                while ((session = thought.poll()) != null) {
+                    finishTurn(session);
+                }
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+
+                    if (!key.isValid()) {
+                        continue;
+                    }
+
+                    try {
+                        if (key.isAcceptable()) {
+                            accept();
+                        } else {
+                            if (key.isReadable()) {
+                                read((Session) key.attachment());
+                            }
+                            if (key.isValid() && key.isWritable()) {
+                                write((Session) key.attachment());
+                            }
+                        }
+                    } catch (IOException e) {
+                        // a client that went away takes only its own session with it
+                        if (key.attachment() != null) {
+                            disconnect((Session) key.attachment());
+                        }
+                    }
+                }
+            }
+        } finally {
+            for (SelectionKey key: selector.keys()) {
+                key.channel().close();
+            }
+            selector.close();
+            searches.shutdownNow();
+        }
+    }
+
+    // pre: none
+    // post: asks run (from any thread) to close every connection and return
+    public void close() {
+        running = false;
+        selector.wakeup();
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = server.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+
+            Session session = new Session(channel);
+            session.key = channel.register(selector, SelectionKey.OP_READ, session);
+            sessions++;
+
+            send(session, GREETING);
+        }
+    }
+
+    private void read(Session session) throws IOException {
+        if (session.channel.read(session.in) < 0) {
+            disconnect(session);
+            return;
+        }
+
+        commands(session);
+    }
+
+    // post: runs the complete lines waiting in the session's buffer, in order, stopping
+    //  at a line that hands the turn to the AI; the rest waits until it has moved
+    private void commands(Session session) throws IOException {
+        ByteBuffer in = session.in;
+        in.flip();
+
+        int start = 0;
+        for (int i = 0; i < in.limit() && session.key.isValid() && !session.thinking; i++) {
+            if (in.get(i) == '\n') {
+                String line = new String(in.array(), start, i - start, StandardCharsets.US_ASCII).trim();
+                start = i + 1;
+
+                if (!line.isEmpty()) {
+                    command(session, line);
+                }
+            }
+        }
+
+        in.position(start);
+        in.compact();
+
+        if (!in.hasRemaining() && session.key.isValid() && !session.thinking) {
+            send(session, "ERROR line too long");
+            disconnect(session);
+        }
+    }
+
+    private void write(Session session) throws IOException {
+        session.channel.write(session.out);
+
+        if (!session.out.hasRemaining()) {
+            session.out.clear().flip();
+            updateInterest(session);
+        }
+    }
+
+    // post: listens for the client's commands unless the AI is thinking, and for room to
+    //  write while there are bytes waiting to be sent
+    private void updateInterest(Session session) {
+        int ops = session.thinking? 0: SelectionKey.OP_READ;
+        if (session.out.hasRemaining()) {
+            ops |= SelectionKey.OP_WRITE;
+        }
+
+        session.key.interestOps(ops);
+    }
+
+    // post: queues 'line' for the client and writes as much of it as the socket takes now
+    private void send(Session session, String line) throws IOException {
+        byte[] bytes = (line + "\n").getBytes(StandardCharsets.US_ASCII);
+        ByteBuffer out = session.out;
+
+        if (out.capacity() - out.remaining() < bytes.length) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(2 * out.capacity(), out.remaining() + bytes.length));
+            larger.put(out);
+            session.out = out = larger;
+        } else {
+            out.compact();
+        }
+
+        out.put(bytes);
+        out.flip();
+
+        session.channel.write(out);
+        if (out.hasRemaining()) {
+            updateInterest(session);
+        }
+    }
+
+    private void disconnect(Session session) {
+        if (!session.key.isValid()) {
+            return;
+        }
+
+        session.key.cancel();
+        sessions--;
+
+        try {
+            session.channel.close();
+        } catch (IOException e) {
+            // nothing more to say to a client that is gone
+        }
+    }
+
+    private void command(Session session, String line) throws IOException {
+        String[] words = line.split("\\s+");
+        String name = words[0].toUpperCase();
+
+        if (name.equals("QUIT")) {
+            disconnect(session);
+            return;
+        }
+
+        try {
+            switch (name) {
+                case "NEW":
+                    newGame(session, words);
+                    break;
+                case "MOVE":
+                    move(session, words);
+                    break;
+                case "BOARD":
+                    send(session, boardLine(session));
+                    break;
+                default:
+                    send(session, "ERROR unknown command " + words[0]);
+            }
+        } catch (IllegalArgumentException e) {
+            send(session, "ERROR " + e.getMessage());
+        }
+    }
+
+    private void newGame(Session session, String[] words) throws IOException {
+        if (words.length < 2 || words.length > 4 || !words[1].matches("[BWbw]")) {
+            throw new IllegalArgumentException("usage: NEW colour [difficulty [thinkingMillis]]");
+        }
+
+        char colour = Character.toUpperCase(words[1].charAt(0));
+        OthelloAI.AIDifficulty difficulty = OthelloAI.AIDifficulty.RANDOM;
+        long thinkingTime = Math.min(DEFAULT_THINKING_TIME, maxThinkingTime);
+
+        if (words.length >= 3) {
+            try {
+                difficulty = OthelloAI.AIDifficulty.valueOf(words[2].toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("unknown difficulty " + words[2]);
+            }
+        }
+        if (words.length >= 4) {
+            try {
+                thinkingTime = Long.parseLong(words[3]);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("thinking time must be a number of milliseconds");
+            }
+
+            if (thinkingTime < 1 || thinkingTime > maxThinkingTime) {
+                throw new IllegalArgumentException("thinking time must be between 1 and " + maxThinkingTime + " ms");
+            }
+        }
+
+        if (session.board == null) {
+            session.board = new OthelloBoard();
+            session.ai = new OthelloAI();
+            session.ai.showMessages(false);
+            session.ai.setHashSize(hashSize);
+        }
+
+        session.ai.setThinkingTime(thinkingTime);
+        session.ai.setDifficulty(difficulty);
+        session.ai.setPiece(colour == BLACK_PIECE? WHITE_PIECE: BLACK_PIECE);
+        session.ai.clearHash();
+        session.board.resetBoard();
+
+        if (session.ai.getPiece() == session.board.currentTurn()) {
+            startTurn(session);
+        } else {
+            send(session, "READY");
+        }
+    }
+
+    private void move(Session session, String[] words) throws IOException {
+        OthelloBoard board = session.board;
+
+        if (board == null || board.isGameOver()) {
+            throw new IllegalArgumentException("no game in progress, start one with NEW");
+        }
+
+        char piece = board.currentTurn();
+        if (words.length == 2 && words[1].equalsIgnoreCase("PASS")) {
+            if (board.legalMoves(piece) != 0) {
+                throw new IllegalArgumentException("cannot pass while there are moves");
+            }
+        } else {
+            int row;
+            int col;
+
+            try {
+                if (words.length != 3) {
+                    throw new NumberFormatException();
+                }
+                row = Integer.parseInt(words[1]);
+                col = Integer.parseInt(words[2]);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("usage: MOVE row col, or MOVE PASS");
+            }
+
+            if (row < 0 || row >= SIZE || col < 0 || col >= SIZE || !board.canBePlaced(row, col, piece)) {
+                throw new IllegalArgumentException("that can't be played there");
+            }
+
+            board.placePiece(row, col, piece);
+        }
+
+        board.switchTurns();
+
+        if (board.isGameOver()) {
+            send(session, gameOverLine(board));
+        } else {
+            startTurn(session);
+        }
+    }
+
+    // post: hands the AI's turn to the search pool; finishTurn answers when it is done
+    private void startTurn(Session session) {
+        // the board belongs to the search thread until it has moved
+        session.thinking = true;
+        updateInterest(session);
+
+        searches.execute(() -> {
+            try {
+                session.ai.playPiece(session.board);
+                session.board.switchTurns();
+            } catch (RuntimeException e) {
+                // the board may be half changed, so the game cannot go on
+                session.failure = e.toString();
+            } finally {
+                thought.add(session);
+                selector.wakeup();
+            }
+        });
+    }
+
+    private void finishTurn(Session session) throws IOException {
+        session.thinking = false;
+
+        // the client may have left while the AI was thinking
+        if (!session.key.isValid()) {
+            return;
+        }
+
+        try {
+            if (session.failure != null) {
+                send(session, "ERROR the AI failed to move: " + session.failure);
+                disconnect(session);
+                return;
+            }
+
+            int move = session.ai.getLastMove();
+            send(session, move == PASS? "MOVED PASS": "MOVED " + BitBoard.row(move) + " " + BitBoard.col(move));
+
+            if (session.board.isGameOver()) {
+                send(session, gameOverLine(session.board));
+            }
+
+            // commands the client sent meanwhile are next
+            updateInterest(session);
+            commands(session);
+        } catch (IOException e) {
+            disconnect(session);
+        }
+    }
+
+    private static String gameOverLine(OthelloBoard board) {
+        return "GAMEOVER " + board.countPieces(BLACK_PIECE) + " " + board.countPieces(WHITE_PIECE);
+    }
+
+    private static String boardLine(Session session) {
+        if (session.board == null) {
+            throw new IllegalArgumentException("no game in progress, start one with NEW");
+        }
+
+        return "BOARD " + Position.of(session.board);
+    }
+
+    // one connection and its game
+    private static class Session {
+        private final SocketChannel channel;
+        private SelectionKey key;
+        private final ByteBuffer in = ByteBuffer.allocate(MAX_LINE);
+        private ByteBuffer out = ByteBuffer.allocate(64).flip(); // bytes not yet written, in read mode
+
+        // created by the first NEW, so a connection that never plays costs little
+        private OthelloBoard board;
+        private OthelloAI ai;
+
+        // set while the AI's turn is on the search pool, which stops the session reading
+        // commands; only the selector thread touches it
+        private boolean thinking;
+
+        // why the AI's last turn failed, or null; written by the search thread before it hands
+        // the session back through the queue of finished turns
+        private String failure;
+
+        private Session(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = 7070;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int hashSize = DEFAULT_HASH_SIZE;
+        long maxThinkingTime = DEFAULT_MAX_THINKING_TIME;
+
+        try {
+            for (int i = 0; i < args.length; i += 2) {
+                String value = args[i + 1];
+
+                switch (args[i]) {
+                    case "-port": port = Integer.parseInt(value); break;
+                    case "-threads": threads = Integer.parseInt(value); break;
+                    case "-hash": hashSize = Integer.parseInt(value); break;
+                    case "-maxTime": maxThinkingTime = Long.parseLong(value); break;
+                    default: throw new IllegalArgumentException("unknown option " + args[i]);
+                }
+            }
+        } catch (RuntimeException e) {
+            System.out.println("Something went wrong with the formatting: " + e.getMessage());
+            System.out.println("usage: java GameServer [-port port] [-threads searchThreads] [-hash megabytes] "
+                + "[-maxTime millis]");
+            System.exit(2);
+        }
+
+        GameServer server = new GameServer(port, threads, hashSize, maxThinkingTime);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+
+        System.out.printf("Serving games on localhost:%d with %d search threads\n", server.getPort(), threads);
+        server.run();
+    }
+}
@@ -0,0 +1,258 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Simulated clients for GameServer: many idle sessions and a few busy ones.
+//
+//   java GameServerLoadTest [-idle sessions] [-clients n] [-games n] [-difficulty d]
+//                           [-think ms] [-threads searchThreads] [-port port]
+//
+// The idle sessions connect and start a game, then say nothing until the end.
+// Each busy client plays whole games of random moves against the server's AI,
+// following every game on its own board and checking the server agrees, and
+// times every command from sending it to the last line of the answer. The
+// server runs in this process unless -port names one that is already running.
+public class GameServerLoadTest implements OthelloConstants {
+
+    public static void main(String[] args) throws Exception {
+        int idle = 2000;
+        int clients = 16;
+        int games = 200;
+        String difficulty = "SEARCH";
+        long thinkingTime = 10;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int port = -1;
+
+        try {
+            for (int i = 0; i < args.length; i += 2) {
+                String value = args[i + 1];
+
+                switch (args[i]) {
+                    case "-idle": idle = Integer.parseInt(value); break;
+                    case "-clients": clients = Integer.parseInt(value); break;
+                    case "-games": games = Integer.parseInt(value); break;
+                    case "-difficulty": difficulty = OthelloAI.AIDifficulty.valueOf(value.toUpperCase()).name(); break;
+                    case "-think": thinkingTime = Long.parseLong(value); break;
+                    case "-threads": threads = Integer.parseInt(value); break;
+                    case "-port": port = Integer.parseInt(value); break;
+                    default: throw new IllegalArgumentException("unknown option " + args[i]);
+                }
+            }
+        } catch (RuntimeException e) {
+            System.out.println("Something went wrong with the formatting: " + e.getMessage());
+            System.out.println("usage: java GameServerLoadTest [-idle sessions] [-clients n] [-games n] "
+                + "[-difficulty d] [-think ms] [-threads searchThreads] [-port port]");
+            System.exit(2);
+        }
+
+        GameServer server = null;
+        if (port < 0) {
+            server = new GameServer(0, threads, 1);
+            port = server.getPort();
+
+            GameServer running = server;
+            Thread serverThread = new Thread(() -> {
+                try {
+                    running.run();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, "game-server");
+            serverThread.setDaemon(true);
+            serverThread.start();
+        }
+
+        long heapBefore = usedHeap();
+        List<Socket> idleSessions = new ArrayList<>();
+
+        for (int i = 0; i < idle; i++) {
+            Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+            BufferedReader in = reader(socket);
+            expect(in.readLine(), GameServer.GREETING);
+
+            // black moves first, so a client playing black gets READY without the AI moving
+            send(socket.getOutputStream(), "NEW B " + difficulty + " " + thinkingTime);
+            expect(in.readLine(), "READY");
+            idleSessions.add(socket);
+        }
+
+        if (server != null && idle > 0) {
+            System.out.printf("%d idle sessions open, about %d KB of heap each on both ends\n",
+                idle, (usedHeap() - heapBefore) / idle / 1024);
+        }
+
+        AtomicInteger nextGame = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        List<Future<long[]>> results = new ArrayList<>();
+        long start = System.nanoTime();
+
+        for (int i = 0; i < clients; i++) {
+            int gameCount = games;
+            int serverPort = port;
+            String level = difficulty;
+            long think = thinkingTime;
+
+            results.add(pool.submit(() -> play(serverPort, nextGame, gameCount, level, think)));
+        }
+
+        long[] latencies = new long[0];
+        try {
+            for (Future<long[]> result: results) {
+                long[] times = result.get();
+                int old = latencies.length;
+                latencies = Arrays.copyOf(latencies, old + times.length);
+                System.arraycopy(times, 0, latencies, old, times.length);
+            }
+        } catch (ExecutionException e) {
+            System.out.println("A client failed: " + e.getCause());
+            System.exit(1);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        Arrays.sort(latencies);
+
+        System.out.printf("%d games, %d moves in %.1f s (%.0f moves/sec) with %d clients and %d idle sessions\n",
+            games, latencies.length, seconds, latencies.length / seconds, clients, idle);
+        System.out.printf("move latency: p50 %.2f ms, p99 %.2f ms, max %.2f ms\n",
+            percentile(latencies, 50), percentile(latencies, 99), percentile(latencies, 100));
+
+        for (Socket socket: idleSessions) {
+            socket.close();
+        }
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    // the body of one busy client: plays games until 'games' have been started, returns its latencies
+    private static long[] play(int port, AtomicInteger nextGame, int games, String difficulty, long thinkingTime)
+            throws IOException {
+
+        long[] latencies = new long[256];
+        int count = 0;
+
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            socket.setTcpNoDelay(true);
+            BufferedReader in = reader(socket);
+            OutputStream out = socket.getOutputStream();
+            expect(in.readLine(), GameServer.GREETING);
+
+            OthelloBoard board = new OthelloBoard();
+            int[] moves = new int[BitBoard.SQUARES];
+
+            int game;
+            while ((game = nextGame.getAndIncrement()) < games) {
+                Random random = new Random(game);
+                char me = game % 2 == 0? BLACK_PIECE: WHITE_PIECE;
+                board.resetBoard();
+
+                long sent = System.nanoTime();
+                send(out, "NEW " + me + " " + difficulty + " " + thinkingTime);
+                String line = in.readLine();
+
+                while (true) {
+                    if (line.startsWith("MOVED")) {
+                        String[] words = line.split(" ");
+                        if (words[1].equals("PASS")) {
+                            check(board.legalMoves(board.currentTurn()) == 0, "the AI passed with moves left");
+                        } else {
+                            board.placePiece(Integer.parseInt(words[1]), Integer.parseInt(words[2]), board.currentTurn());
+                        }
+                        board.switchTurns();
+
+                        if (board.isGameOver()) {
+                            line = in.readLine();
+                        }
+                    } else if (!line.equals("READY") && !line.startsWith("GAMEOVER")) {
+                        throw new IllegalStateException("unexpected answer: " + line);
+                    }
+
+                    // the last line of the answer has arrived
+                    if (count == latencies.length) {
+                        latencies = Arrays.copyOf(latencies, 2 * count);
+                    }
+                    latencies[count++] = System.nanoTime() - sent;
+
+                    if (line.startsWith("GAMEOVER")) {
+                        check(line.equals("GAMEOVER " + board.countPieces(BLACK_PIECE) + " " + board.countPieces(WHITE_PIECE)),
+                            "the server counts the game differently: " + line);
+                        break;
+                    }
+
+                    check(board.currentTurn() == me, "the server answered out of turn");
+                    int moveCount = board.legalMoves(me, moves);
+                    String command;
+
+                    if (moveCount == 0) {
+                        command = "MOVE PASS";
+                    } else {
+                        int move = moves[random.nextInt(moveCount)];
+                        command = "MOVE " + BitBoard.row(move) + " " + BitBoard.col(move);
+                        board.placePiece(BitBoard.row(move), BitBoard.col(move), me);
+                    }
+                    board.switchTurns();
+
+                    sent = System.nanoTime();
+                    send(out, command);
+                    line = in.readLine();
+                }
+            }
+
+            send(out, "QUIT");
+        }
+
+        return Arrays.copyOf(latencies, count);
+    }
+
+    // pre: sorted is sorted and not empty, 0 < p <= 100
+    // post: returns the p-th percentile of the nanosecond times, in milliseconds
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+
+        int index = (int) Math.ceil(p / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    private static BufferedReader reader(Socket socket) throws IOException {
+        return new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+    }
+
+    private static void send(OutputStream out, String line) throws IOException {
+        out.write((line + "\n").getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+
+    private static void expect(String line, String expected) {
+        check(expected.equals(line), "expected " + expected + ", got " + line);
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
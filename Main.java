@@ -1,6 +1,10 @@
 import java.util.Scanner;
 
 public class Main {
+
+    // milliseconds the AI may think per move
+    private static final long THINKING_TIME = 1000;
+
     public static void main(String[] args) {
         Scanner input = new Scanner(System.in);
 
@@ -18,6 +22,14 @@ public class Main {
             }
 
             ai.setPiece(board.nextTurn());
+            OthelloAI.AIDifficulty difficulty = difficultyPrompt(input);
+            ai.setDifficulty(difficulty);
+
+            // the searching AIs get a second per move; SEARCH and ENDGAME think on the player's time as well
+            if (difficulty == OthelloAI.AIDifficulty.SEARCH || difficulty == OthelloAI.AIDifficulty.ENDGAME
+                    || difficulty == OthelloAI.AIDifficulty.MCTS) {
+                ai.setThinkingTime(THINKING_TIME);
+            }
         }
 
         do {
@@ -64,9 +76,15 @@ public class Main {
 
             if (ai.getPiece() == board.currentTurn()) {
                 System.out.println("It's the AI's turn");
+
+                long start = System.nanoTime();
                 ai.playPiece(board);
+                System.out.printf("The AI answered in %d ms\n", (System.nanoTime() - start) / 1_000_000);
                 board.switchTurns();
 
+                // search the player's likely reply while they think about it
+                ai.ponder(board);
+
             } else {
                 System.out.println("Player, it's your turn");
 
@@ -85,6 +103,8 @@ public class Main {
                 }
             }
         }
+
+        ai.stopPondering();
     }
 
     // plays Othello
@@ -140,6 +160,25 @@ public class Main {
         return new int[] {x, y};
     }
 
+    private static OthelloAI.AIDifficulty difficultyPrompt(Scanner input) {
+        OthelloAI.AIDifficulty[] difficulties = OthelloAI.AIDifficulty.values();
+
+        for (int i = 0; i < difficulties.length; i++) {
+            System.out.printf("%d. %s\n", i + 1, difficulties[i]);
+        }
+
+        while (true) {
+            System.out.print("How strong should the AI be? > ");
+            String answer = input.next();
+
+            if (answer.matches("[0-9]+") && Integer.parseInt(answer) >= 1 && Integer.parseInt(answer) <= difficulties.length) {
+                return difficulties[Integer.parseInt(answer) - 1];
+            }
+
+            System.out.printf("\nPlease answer with a number from 1 to %d\n", difficulties.length);
+        }
+    }
+
     private static boolean yesOrNoPrompt(Scanner input, String prompt) {
         System.out.print(prompt);
         String answer = input.next();
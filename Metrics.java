@@ -0,0 +1,219 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.atomic.LongAdder;
+
+// Counters and histograms for the engine and the games it plays.
+//
+// Everything is off unless the program runs with -Dothello.metrics=true.
+// ENABLED is a static final constant, so when it is false every
+// "if (Metrics.ENABLED)" block is dropped by the JIT and costs nothing.
+// When it is on, counters are LongAdders, which threads can bump at the same
+// time without fighting over one memory location, and searches add up their
+// own counts and publish them once at the end.
+//
+// report() describes everything collected since the program started or
+// reset() was last called; startDump prints it every so often, and
+// -Dothello.metrics.dump=millis starts that as soon as metrics are first used.
+public final class Metrics {
+
+    public static final boolean ENABLED = Boolean.getBoolean("othello.metrics");
+
+    // BitBoard.legalMoves calls, the cost of move generation everywhere
+    public static final LongAdder MOVE_GENERATIONS = new LongAdder();
+
+    // positions visited by OthelloSearch and EndgameSolver, and their table lookups
+    public static final LongAdder NODES = new LongAdder();
+    public static final LongAdder TABLE_PROBES = new LongAdder();
+    public static final LongAdder TABLE_HITS = new LongAdder();
+
+    // nanoseconds OthelloAI.playPiece took to choose and play each move
+    public static final Histogram MOVE_NANOS = new Histogram();
+
+    // games finished by SelfPlayRunner, and the bytes each one allocated
+    public static final LongAdder GAMES = new LongAdder();
+    public static final Histogram GAME_BYTES = new Histogram();
+
+    private static volatile long startNanos = System.nanoTime();
+
+    static {
+        long period = Long.getLong("othello.metrics.dump", 0);
+        if (ENABLED && period > 0) {
+            startDump(period);
+        }
+    }
+
+    private Metrics() {
+    }
+
+    // The JVM's count of the bytes each thread allocated, or null where it has none. It is
+    // only looked up the first time allocatedBytes is called, which engine code only does
+    // when ENABLED, so a JVM without com.sun.management never gets near it.
+    private static final class Allocations {
+        static final com.sun.management.ThreadMXBean THREADS = lookUp();
+
+        private static com.sun.management.ThreadMXBean lookUp() {
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+            if (threads instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean counting = (com.sun.management.ThreadMXBean) threads;
+                if (counting.isThreadAllocatedMemorySupported()) {
+                    return counting;
+                }
+            }
+
+            return null;
+        }
+    }
+
+    // pre: none
+    // post: returns the bytes the calling thread has allocated so far, or 0 if the JVM cannot tell
+    public static long allocatedBytes() {
+        com.sun.management.ThreadMXBean threads = Allocations.THREADS;
+        return threads == null? 0: threads.getCurrentThreadAllocatedBytes();
+    }
+
+    // pre: none
+    // post: sets every counter and histogram back to zero and restarts the clock for games/sec
+    public static void reset() {
+        MOVE_GENERATIONS.reset();
+        NODES.reset();
+        TABLE_PROBES.reset();
+        TABLE_HITS.reset();
+        MOVE_NANOS.reset();
+        GAMES.reset();
+        GAME_BYTES.reset();
+        startNanos = System.nanoTime();
+    }
+
+    // pre: periodMillis > 0
+    // post: prints report() every 'periodMillis' milliseconds from a daemon thread, to standard
+    //  error so it stays out of results written to standard output
+    public static void startDump(long periodMillis) {
+        if (periodMillis <= 0) {
+            throw new IllegalArgumentException("dump period must be positive");
+        }
+
+        Thread dump = new Thread(() -> {
+            try {
+                while (true) {
+                    Thread.sleep(periodMillis);
+                    System.err.print(report());
+                }
+            } catch (InterruptedException e) {
+                // asked to stop, nothing left to do
+            }
+        }, "metrics-dump");
+        dump.setDaemon(true);
+        dump.start();
+    }
+
+    // pre: none
+    // post: returns a few lines describing everything collected, or a note that metrics are off
+    public static String report() {
+        if (!ENABLED) {
+            return "Metrics are off, run with -Dothello.metrics=true to collect them\n";
+        }
+
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        long games = GAMES.sum();
+        long probes = TABLE_PROBES.sum();
+
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("  games: %d (%.0f games/sec), allocated per game: %s\n",
+            games, games / seconds, GAME_BYTES.describe(1, "B")));
+        report.append(String.format("  moves: %d, time per move: %s\n",
+            MOVE_NANOS.count(), MOVE_NANOS.describe(1000, "us")));
+        report.append(String.format("  move generations: %d, nodes searched: %d, table hit rate: %.1f%% of %d probes\n",
+            MOVE_GENERATIONS.sum(), NODES.sum(), probes == 0? 0: 100.0 * TABLE_HITS.sum() / probes, probes));
+
+        return report.toString();
+    }
+
+    // A histogram of non-negative values with four buckets for every power of two,
+    // so each bucket is at most a quarter of its lower bound wide.
+    public static final class Histogram {
+
+        private static final int SUB_BUCKET_BITS = 2;
+        private static final int BUCKETS = 64 << SUB_BUCKET_BITS;
+
+        private final LongAdder[] buckets = new LongAdder[BUCKETS];
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+
+        public Histogram() {
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        // pre: value >= 0
+        public void record(long value) {
+            buckets[bucket(Math.max(0, value))].increment();
+            count.increment();
+            sum.add(value);
+        }
+
+        public long count() {
+            return count.sum();
+        }
+
+        public double mean() {
+            long n = count.sum();
+            return n == 0? 0: sum.sum() / (double) n;
+        }
+
+        // pre: 0 < p <= 100
+        // post: returns an upper bound for the p-th percentile, exact to within a quarter
+        public long percentile(double p) {
+            long n = count.sum();
+            long rank = (long) Math.ceil(p / 100 * n);
+            long seen = 0;
+
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets[i].sum();
+                if (seen >= rank && seen > 0) {
+                    return upperBound(i);
+                }
+            }
+
+            return 0;
+        }
+
+        public void reset() {
+            for (LongAdder bucket: buckets) {
+                bucket.reset();
+            }
+            count.reset();
+            sum.reset();
+        }
+
+        // post: returns "mean m, p50 a, p99 b" with the values divided by 'divisor' and followed by 'unit'
+        String describe(double divisor, String unit) {
+            return String.format("mean %.1f %s, p50 %.1f %s, p99 %.1f %s",
+                mean() / divisor, unit, percentile(50) / divisor, unit, percentile(99) / divisor, unit);
+        }
+
+        // values below 4 get a bucket each, larger ones share a bucket with the
+        // values that agree with them in the top three bits
+        private static int bucket(long value) {
+            if (value < (1 << SUB_BUCKET_BITS)) {
+                return (int) value;
+            }
+
+            int power = 63 - Long.numberOfLeadingZeros(value);
+            int sub = (int) (value >>> (power - SUB_BUCKET_BITS)) & ((1 << SUB_BUCKET_BITS) - 1);
+            return ((power - SUB_BUCKET_BITS + 1) << SUB_BUCKET_BITS) + sub;
+        }
+
+        private static long upperBound(int bucket) {
+            if (bucket < (1 << SUB_BUCKET_BITS)) {
+                return bucket;
+            }
+
+            int power = (bucket >>> SUB_BUCKET_BITS) + SUB_BUCKET_BITS - 1;
+            int sub = bucket & ((1 << SUB_BUCKET_BITS) - 1);
+            long lower = (1L << power) + ((long) sub << (power - SUB_BUCKET_BITS));
+            return lower + (1L << (power - SUB_BUCKET_BITS)) - 1;
+        }
+    }
+}
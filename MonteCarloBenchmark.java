@@ -0,0 +1,106 @@
+// Measures MCTS speed and strength at several thread counts.
+//
+//   java MonteCarloBenchmark [games] [millisPerMove] [threads,threads,...]
+//
+// For every thread count (1, 4 and 16 unless given), the three PositionFixtures
+// are searched for a second each to measure playouts per second, then an MCTS
+// AI with 'millisPerMove' per move plays 'games' games against BEST_MOVE,
+// taking black and white in turn. The score counts a win as 1 and a tie as a half.
+public class MonteCarloBenchmark implements OthelloConstants {
+
+    private static final long SPEED_MILLIS = 1000;
+    private static final int TREE_MEGABYTES = 64;
+
+    public static void main(String[] args) {
+        int games = 20;
+        long millis = 50;
+        int[] threadCounts = {1, 4, 16};
+
+        try {
+            if (args.length >= 1) {
+                games = Integer.parseInt(args[0]);
+            }
+            if (args.length >= 2) {
+                millis = Long.parseLong(args[1]);
+            }
+            if (args.length >= 3) {
+                String[] counts = args[2].split(",");
+                threadCounts = new int[counts.length];
+                for (int i = 0; i < counts.length; i++) {
+                    threadCounts[i] = Integer.parseInt(counts[i]);
+                }
+            }
+        } catch (NumberFormatException e) {
+            System.out.println("Something went wrong with the formatting");
+            System.out.println("usage: java MonteCarloBenchmark [games] [millisPerMove] [threads,threads,...]");
+            System.exit(2);
+        }
+
+        OthelloBoard[] fixtures = {PositionFixtures.opening(), PositionFixtures.midgame(), PositionFixtures.endgame()};
+
+        System.out.printf("%d games against BEST_MOVE at %d ms per move, %d cores available\n",
+            games, millis, Runtime.getRuntime().availableProcessors());
+        System.out.printf("%8s %14s %8s %8s %8s %16s\n", "threads", "playouts/sec", "wins", "ties", "losses", "score");
+
+        for (int threads: threadCounts) {
+            MonteCarloSearch search = new MonteCarloSearch(threads, TREE_MEGABYTES);
+            search.setSeed(1);
+
+            long playouts = 0;
+            long nanos = 0;
+            for (OthelloBoard fixture: fixtures) {
+                search.search(fixture, SPEED_MILLIS);
+                playouts += search.getPlayouts();
+                nanos += search.getElapsedNanos();
+            }
+            search.close();
+
+            int[] results = playMatch(games, millis, threads);
+            double score = (results[0] + 0.5 * results[1]) / games;
+
+            // normal approximation of the binomial, close enough to show how much to trust the score
+            double margin = 1.96 * Math.sqrt(score * (1 - score) / games);
+
+            System.out.printf("%8d %14.0f %8d %8d %8d %8.1f%% +/- %.0f\n", threads, playouts / (nanos / 1e9),
+                results[0], results[1], results[2], 100 * score, 100 * margin);
+        }
+    }
+
+    // post: returns the MCTS AI's wins, ties and losses against BEST_MOVE
+    private static int[] playMatch(int games, long millis, int threads) {
+        int[] results = new int[3];
+        OthelloBoard board = new OthelloBoard();
+
+        OthelloAI mcts = new OthelloAI();
+        mcts.showMessages(false);
+        mcts.setDifficulty(OthelloAI.AIDifficulty.MCTS);
+        mcts.setThreads(threads);
+        mcts.setHashSize(TREE_MEGABYTES);
+        mcts.setThinkingTime(millis);
+
+        OthelloAI best = new OthelloAI();
+        best.showMessages(false);
+        best.setDifficulty(OthelloAI.AIDifficulty.BEST_MOVE);
+
+        for (int game = 0; game < games; game++) {
+            char mctsPiece = game % 2 == 0? BLACK_PIECE: WHITE_PIECE;
+            mcts.setPiece(mctsPiece);
+            best.setPiece(mctsPiece == BLACK_PIECE? WHITE_PIECE: BLACK_PIECE);
+            mcts.setSeed(game);
+            best.setSeed(game);
+            board.resetBoard();
+
+            while (!board.isGameOver()) {
+                OthelloAI player = mcts.getPiece() == board.currentTurn()? mcts: best;
+                player.playPiece(board);
+                board.switchTurns();
+            }
+
+            int margin = board.countPieces(mctsPiece) - board.countPieces(best.getPiece());
+            results[margin > 0? 0: margin == 0? 1: 2]++;
+        }
+
+        mcts.setThreads(1); // lets go of the helper threads
+        return results;
+    }
+}
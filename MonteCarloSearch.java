@@ -0,0 +1,388 @@
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Monte Carlo tree search with UCT, on several threads sharing one tree.
+//
+// Every iteration walks down the tree from the root, at each node taking the
+// child with the best upper confidence bound, adds the children of the node
+// it stops at, plays the game out with random moves, and adds the result to
+// every node on the way back up. The move played is the root child that was
+// visited most.
+//
+// The tree lives in a pool of nodes held in parallel arrays, allocated once:
+// a node's children take consecutive slots, and each search starts the pool
+// over, so searching allocates nothing. Threads share the tree without locks.
+// Counts are updated atomically, and a thread going down through a node adds a
+// virtual loss to it (visits without wins) until its playout is back, which
+// steers the other threads to different parts of the tree. Expanding a node is
+// claimed with a compare-and-set; a thread that loses the race plays out from
+// the node instead of waiting. When the pool is full, leaves stay leaves.
+//
+// Playouts run on bitboards only, without an OthelloBoard.
+public class MonteCarloSearch implements OthelloConstants {
+
+    // weight of exploring rarely visited moves against exploiting good ones
+    private static final double EXPLORATION = 1.0;
+
+    // visits a thread adds to the nodes on its path until its playout is counted
+    private static final int VIRTUAL_LOSS = 1;
+
+    // bytes per node: visits, wins and first child (4 each), child count and move (1 each)
+    private static final int BYTES_PER_NODE = 14;
+
+    // firstChild of a node nobody has expanded yet, of one being expanded, and of one
+    // that stays a leaf because the game is over there or the pool is full
+    private static final int UNEXPANDED = 0;
+    private static final int EXPANDING = -1;
+    private static final int LEAF = -2;
+
+    // how many playouts a worker runs between checks of the clock
+    private static final int CLOCK_CHECK_INTERVAL = 16;
+
+    private static final int MAX_PATH = 128;
+
+    // the node pool; node 0 is the root
+    private final int capacity;
+    private final AtomicIntegerArray visits;
+    private final AtomicIntegerArray wins; // in half points for the side that moved into the node
+    private final AtomicIntegerArray firstChild;
+    private final byte[] childCount;
+    private final byte[] moves;
+    private final AtomicInteger nextFree = new AtomicInteger();
+
+    private final int threads;
+    private final ExecutorService pool;
+    private final Future<?>[] helpers;
+    private final AtomicBoolean stopSignal = new AtomicBoolean();
+    private final AtomicLong playouts = new AtomicLong();
+
+    // each thread's path from the root and random generator state
+    private final int[][] paths;
+    private final long[] randoms;
+
+    private long playoutLimit;
+    private long seed = System.nanoTime();
+
+    // results of the last call to search
+    private long playoutsRun;
+    private int nodesUsed;
+    private double bestWinRate;
+    private long elapsedNanos;
+
+    // pre: threads > 0, megabytes > 0
+    // post: creates a search running on 'threads' threads with a tree of at most 'megabytes' MB
+    public MonteCarloSearch(int threads, int megabytes) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("thread count must be positive");
+        }
+        if (megabytes <= 0) {
+            throw new IllegalArgumentException("tree size must be positive");
+        }
+
+        capacity = (int) Math.min(Integer.MAX_VALUE / 2, (long) megabytes * 1024 * 1024 / BYTES_PER_NODE);
+        visits = new AtomicIntegerArray(capacity);
+        wins = new AtomicIntegerArray(capacity);
+        firstChild = new AtomicIntegerArray(capacity);
+        childCount = new byte[capacity];
+        moves = new byte[capacity];
+
+        this.threads = threads;
+        helpers = new Future<?>[threads];
+        paths = new int[threads][MAX_PATH];
+        randoms = new long[threads];
+
+        // helper threads are daemons so an AI that is never closed does not keep the program running
+        pool = threads == 1? null: Executors.newFixedThreadPool(threads - 1, task -> {
+            Thread thread = new Thread(task, "mcts-helper");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    // pre: playouts >= 0
+    // post: a search also ends after 'playouts' playouts; 0 means only the time limit counts
+    public void setPlayoutLimit(long playouts) {
+        if (playouts < 0) {
+            throw new IllegalArgumentException("playout limit cannot be negative");
+        }
+
+        playoutLimit = playouts;
+    }
+
+    // post: reseeds the random playouts; with one thread the same seed gives the same search
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    // pre: none
+    // post: asks a running search (from another thread) to stop as soon as possible
+    public void stop() {
+        stopSignal.set(true);
+    }
+
+    public long getPlayouts() {
+        return playoutsRun;
+    }
+
+    public int getNodesUsed() {
+        return nodesUsed;
+    }
+
+    // post: returns the share of the last search's playouts through the chosen move that it won
+    public double getBestWinRate() {
+        return bestWinRate;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    // pre: timeLimitMillis > 0
+    // post: returns the best square (row * 8 + col) for the side to move, or PASS if it has no move.
+    //  Playouts run on every thread until the time or playout limit is reached.
+    public int search(OthelloBoard board, long timeLimitMillis) {
+        long start = System.nanoTime();
+        long deadline = start + timeLimitMillis * 1_000_000;
+        long player = board.piecesOf(board.currentTurn());
+        long opponent = board.piecesOf(board.nextTurn());
+
+        if (BitBoard.legalMoves(player, opponent) == 0) {
+            playoutsRun = 0;
+            nodesUsed = 0;
+            elapsedNanos = System.nanoTime() - start;
+            return PASS;
+        }
+
+        // start the pool over with the root and its children
+        nextFree.set(1);
+        clear(0, PASS);
+        expand(0, player, opponent);
+        stopSignal.set(false);
+        playouts.set(0);
+
+        // spread out the seeds of the threads, and never 0
+        for (int i = 0; i < threads; i++) {
+            randoms[i] = ((seed + i) * 0x9E3779B97F4A7C15L) | 1;
+        }
+        seed++;
+
+        for (int i = 1; i < threads; i++) {
+            int helper = i;
+            helpers[i] = pool.submit(() -> work(helper, player, opponent, deadline));
+        }
+
+        work(0, player, opponent, deadline);
+        stopSignal.set(true);
+
+        for (int i = 1; i < threads; i++) {
+            try {
+                helpers[i].get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("a search helper failed", e.getCause());
+            }
+        }
+
+        // the most visited move is the one the search trusts most
+        int first = firstChild.get(0);
+        int best = first;
+        for (int child = first + 1; child < first + childCount[0]; child++) {
+            if (visits.get(child) > visits.get(best)) {
+                best = child;
+            }
+        }
+
+        playoutsRun = playouts.get();
+        nodesUsed = Math.min(nextFree.get(), capacity);
+        bestWinRate = visits.get(best) == 0? 0: wins.get(best) / (2.0 * visits.get(best));
+        elapsedNanos = System.nanoTime() - start;
+        return moves[best];
+    }
+
+    // pre: close has not been called
+    // post: stops the helper threads; the search cannot be used afterwards
+    public void close() {
+        stop();
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+
+    // the body of every thread: iterations until the time or playout limit or a stop
+    private void work(int thread, long rootPlayer, long rootOpponent, long deadline) {
+        int[] path = paths[thread];
+
+        for (int iteration = 1; !stopSignal.get(); iteration++) {
+            long player = rootPlayer;
+            long opponent = rootOpponent;
+            int length = 0;
+            int node = 0;
+            path[length++] = node;
+            visits.addAndGet(node, VIRTUAL_LOSS);
+
+            // go down while the node has children, playing each chosen move
+            int first;
+            while ((first = firstChild.get(node)) > 0) {
+                node = select(node, first);
+                path[length++] = node;
+                visits.addAndGet(node, VIRTUAL_LOSS);
+
+                int move = moves[node];
+                if (move != PASS) {
+                    long flipped = BitBoard.flips(player, opponent, move);
+                    player |= (1L << move) | flipped;
+                    opponent &= ~flipped;
+                }
+
+                long swap = player;
+                player = opponent;
+                opponent = swap;
+            }
+
+            if (first == UNEXPANDED && visits.get(node) > VIRTUAL_LOSS && firstChild.compareAndSet(node, UNEXPANDED, EXPANDING)) {
+                expand(node, player, opponent);
+            }
+
+            // the playout's result for the side to move at the leaf, in half points
+            int result = playout(player, opponent, thread);
+
+            // back up: each node scores for the side that moved into it, the opposite of its children
+            for (int i = length - 1; i >= 0; i--) {
+                result = 2 - result;
+                visits.addAndGet(path[i], 1 - VIRTUAL_LOSS);
+                wins.addAndGet(path[i], result);
+            }
+
+            long total = playouts.incrementAndGet();
+            if ((playoutLimit > 0 && total >= playoutLimit)
+                    || (iteration % CLOCK_CHECK_INTERVAL == 0 && System.nanoTime() > deadline)) {
+                stopSignal.set(true);
+            }
+        }
+    }
+
+    // pre: node has children starting at 'first'
+    // post: returns the child with the highest upper confidence bound, an unvisited one first
+    private int select(int node, int first) {
+        int count = childCount[node];
+        double logVisits = Math.log(Math.max(1, visits.get(node)));
+        int best = first;
+        double bestValue = Double.NEGATIVE_INFINITY;
+
+        for (int child = first; child < first + count; child++) {
+            int n = visits.get(child);
+            if (n == 0) {
+                return child;
+            }
+
+            double value = wins.get(child) / (2.0 * n) + EXPLORATION * Math.sqrt(logVisits / n);
+            if (value > bestValue) {
+                bestValue = value;
+                best = child;
+            }
+        }
+
+        return best;
+    }
+
+    // pre: this thread holds the expansion of 'node', whose side to move has 'player'
+    // post: gives the node a child for every move, one pass child if it has to pass,
+    //  or none if the game is over or the pool is full
+    private void expand(int node, long player, long opponent) {
+        long legal = BitBoard.legalMoves(player, opponent);
+        int count = legal != 0? Long.bitCount(legal): BitBoard.legalMoves(opponent, player) != 0? 1: 0;
+        int first = count == 0? 0: nextFree.getAndAdd(count);
+
+        if (count == 0 || first + count > capacity) {
+            firstChild.set(node, LEAF);
+            return;
+        }
+
+        if (legal == 0) {
+            clear(first, PASS);
+        }
+        for (int child = first; legal != 0; child++) {
+            clear(child, Long.numberOfTrailingZeros(legal));
+            legal &= legal - 1;
+        }
+
+        childCount[node] = (byte) count;
+
+        // publishing the first child makes the children and their count visible to other threads
+        firstChild.set(node, first);
+    }
+
+    private void clear(int node, int move) {
+        visits.set(node, 0);
+        wins.set(node, 0);
+        firstChild.set(node, UNEXPANDED);
+        childCount[node] = 0;
+        moves[node] = (byte) move;
+    }
+
+    // post: plays random moves to the end and returns 2, 1 or 0 for a win, tie or loss of
+    //  the side to move at the start, using and moving along the thread's random generator
+    private int playout(long player, long opponent, int thread) {
+        long state = randoms[thread];
+        boolean swapped = false;
+        boolean passed = false;
+
+        while (true) {
+            long legal = BitBoard.legalMoves(player, opponent);
+
+            if (legal == 0) {
+                if (passed) {
+                    break;
+                }
+                passed = true;
+            } else {
+                passed = false;
+
+                // the r-th lowest set bit of the legal moves
+                state = xorshift(state);
+                int r = (int) ((state >>> 32) * Long.bitCount(legal) >>> 32);
+                for (int i = 0; i < r; i++) {
+                    legal &= legal - 1;
+                }
+
+                int move = Long.numberOfTrailingZeros(legal);
+                long flipped = BitBoard.flips(player, opponent, move);
+                player |= (1L << move) | flipped;
+                opponent &= ~flipped;
+            }
+
+            long swap = player;
+            player = opponent;
+            opponent = swap;
+            swapped = !swapped;
+        }
+
+        randoms[thread] = state;
+
+        int margin = Long.bitCount(player) - Long.bitCount(opponent);
+        if (swapped) {
+            margin = -margin;
+        }
+
+        return margin > 0? 2: margin == 0? 1: 0;
+    }
+
+    private static long xorshift(long x) {
+        x ^= x << 13;
+        x ^= x >>> 7;
+        x ^= x << 17;
+        return x;
+    }
+}
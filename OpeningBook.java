@@ -0,0 +1,169 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.LongAdder;
+
+// An opening book read straight from a memory-mapped file.
+//
+// Positions are stored from the point of view of the side to move (its pieces,
+// then the opponent's pieces) in the canonical orientation picked by
+// Symmetry.canonicalTransform, so all eight symmetric copies of a position
+// share one set of entries. The file is sorted by a hash of that canonical
+// position, so a lookup is a binary search over the mapped pages; nothing is
+// loaded up front and every JVM mapping the same file shares its pages.
+//
+// File layout: a 16 byte header (MAGIC, VERSION, entry count) followed by
+// fixed size entries of ENTRY_BYTES:
+//   long hash, long player, long opponent, int games, int wins, int draws,
+//   byte move (in the canonical orientation), 3 bytes of padding
+// Entries are sorted by hash (unsigned), then player, opponent and move.
+public class OpeningBook {
+
+    public static final int MAGIC = 0x4F544842; // "OTHB"
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 16;
+    public static final int ENTRY_BYTES = 40;
+
+    private final ByteBuffer entries;
+    private final int count;
+    private int minGames;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private OpeningBook(ByteBuffer entries, int count) {
+        this.entries = entries;
+        this.count = count;
+        minGames = 1;
+    }
+
+    // pre: 'path' was written by OpeningBookBuilder
+    // post: maps the book into memory
+    public static OpeningBook load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException(path + " is too large to map as one opening book");
+            }
+
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (size < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException(path + " is not an opening book");
+            }
+
+            long count = buffer.getLong(8);
+            if (HEADER_BYTES + count * ENTRY_BYTES != size) {
+                throw new IOException(path + " has the wrong size for " + count + " entries");
+            }
+
+            return new OpeningBook(buffer, (int) count);
+        }
+    }
+
+    // pre: games > 0
+    // post: moves seen in fewer than 'games' games are ignored by probe
+    public void setMinGames(int games) {
+        if (games <= 0) {
+            throw new IllegalArgumentException("minimum games must be positive");
+        }
+
+        minGames = games;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    // post: returns the fraction of probes that found a move, 0 if there were none
+    public double hitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0? 0: h / (double) total;
+    }
+
+    // pre: player and opponent do not overlap
+    // post: returns the best scoring book move for 'player' as a square (row * 8 + col),
+    //  or OthelloConstants.PASS if the position is not in the book
+    public int probe(long player, long opponent) {
+        int transform = Symmetry.canonicalTransform(player, opponent);
+        long canonicalPlayer = Symmetry.transform(player, transform);
+        long canonicalOpponent = Symmetry.transform(opponent, transform);
+        long hash = hash(canonicalPlayer, canonicalOpponent);
+
+        int bestMove = OthelloConstants.PASS;
+        double bestScore = -1;
+        int bestGames = 0;
+
+        for (int i = lowerBound(hash); i < count && entries.getLong(offset(i)) == hash; i++) {
+            int offset = offset(i);
+
+            if (entries.getLong(offset + 8) != canonicalPlayer || entries.getLong(offset + 16) != canonicalOpponent) {
+                continue;
+            }
+
+            int games = entries.getInt(offset + 24);
+            if (games < minGames) {
+                continue;
+            }
+
+            double score = (entries.getInt(offset + 28) + 0.5 * entries.getInt(offset + 32)) / games;
+            if (score > bestScore || (score == bestScore && games > bestGames)) {
+                bestScore = score;
+                bestGames = games;
+                bestMove = entries.get(offset + 36);
+            }
+        }
+
+        if (bestMove == OthelloConstants.PASS) {
+            misses.increment();
+            return OthelloConstants.PASS;
+        }
+
+        hits.increment();
+        return Symmetry.fromCanonical(bestMove, transform);
+    }
+
+    // post: returns the index of the first entry whose hash is not below 'hash'
+    private int lowerBound(long hash) {
+        int low = 0;
+        int high = count;
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+
+            if (Long.compareUnsigned(entries.getLong(offset(middle)), hash) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    private static int offset(int index) {
+        return HEADER_BYTES + index * ENTRY_BYTES;
+    }
+
+    // post: returns the hash the book uses for a canonical (player, opponent) pair
+    public static long hash(long player, long opponent) {
+        return mix(player ^ mix(opponent + 0x9E3779B97F4A7C15L));
+    }
+
+    // SplitMix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,191 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Builds an OpeningBook file from game-record files.
+//
+//   java OpeningBookBuilder book maxPly minGames records...
+//
+// Every move played in the first maxPly plies of every game is counted
+// together with how the game ended for the side that played it. Moves seen
+// in fewer than minGames games are left out of the book.
+public class OpeningBookBuilder implements OthelloConstants {
+
+    // statistics for one move from one canonical position
+    private static class MoveStats {
+        private final long hash;
+        private final long player;
+        private final long opponent;
+        private final int move;
+        private int games;
+        private int wins;
+        private int draws;
+
+        MoveStats(long hash, long player, long opponent, int move) {
+            this.hash = hash;
+            this.player = player;
+            this.opponent = opponent;
+            this.move = move;
+        }
+    }
+
+    private final int maxPly;
+    private final Map<Long, MoveStats> stats = new HashMap<>();
+    private long games;
+
+    public OpeningBookBuilder(int maxPly) {
+        this.maxPly = maxPly;
+    }
+
+    // pre: moves holds 'length' moves of a game record
+    // post: counts the game's opening moves and its result
+    public void addGame(byte[] moves, int length, OthelloBoard board) {
+        // play the game through once to learn who won
+        GameRecordReader.replay(moves, length, board);
+        int blackMargin = board.countPieces(BLACK_PIECE) - board.countPieces(WHITE_PIECE);
+
+        board.resetBoard();
+        for (int ply = 0; ply < length && ply < maxPly; ply++) {
+            int move = PositionCodec.decodeMove(moves[ply]);
+
+            if (move != PASS) {
+                char me = board.currentTurn();
+                long player = board.piecesOf(me);
+                long opponent = board.piecesOf(board.nextTurn());
+                int margin = me == BLACK_PIECE? blackMargin: -blackMargin;
+
+                count(player, opponent, move, margin);
+            }
+
+            board.makeMove(move);
+        }
+
+        games++;
+    }
+
+    private void count(long player, long opponent, int move, int margin) {
+        int transform = Symmetry.canonicalTransform(player, opponent);
+        long canonicalPlayer = Symmetry.transform(player, transform);
+        long canonicalOpponent = Symmetry.transform(opponent, transform);
+
+        // moves that are symmetries of each other in a symmetric position, like the four
+        // first moves, are one move and share their statistics
+        int canonicalMove = Symmetry.smallestEquivalent(canonicalPlayer, canonicalOpponent,
+            Symmetry.toCanonical(move, transform));
+        long hash = OpeningBook.hash(canonicalPlayer, canonicalOpponent);
+
+        // one map entry per (position, move); a clash of two different positions is simply dropped
+        long key = hash * 65 + canonicalMove;
+        MoveStats entry = stats.get(key);
+
+        if (entry == null) {
+            entry = new MoveStats(hash, canonicalPlayer, canonicalOpponent, canonicalMove);
+            stats.put(key, entry);
+        } else if (entry.player != canonicalPlayer || entry.opponent != canonicalOpponent) {
+            return;
+        }
+
+        entry.games++;
+        if (margin > 0) {
+            entry.wins++;
+        } else if (margin == 0) {
+            entry.draws++;
+        }
+    }
+
+    // pre: none
+    // post: writes every move seen in at least 'minGames' games to a book file and returns how many
+    public int write(Path path, int minGames) throws IOException {
+        List<MoveStats> entries = new ArrayList<>();
+        for (MoveStats entry: stats.values()) {
+            if (entry.games >= minGames) {
+                entries.add(entry);
+            }
+        }
+
+        entries.sort((a, b) -> {
+            int compare = Long.compareUnsigned(a.hash, b.hash);
+            if (compare == 0) {
+                compare = Long.compareUnsigned(a.player, b.player);
+            }
+            if (compare == 0) {
+                compare = Long.compareUnsigned(a.opponent, b.opponent);
+            }
+            if (compare == 0) {
+                compare = Integer.compare(a.move, b.move);
+            }
+            return compare;
+        });
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+            buffer.putInt(OpeningBook.MAGIC);
+            buffer.putInt(OpeningBook.VERSION);
+            buffer.putLong(entries.size());
+
+            for (MoveStats entry: entries) {
+                if (buffer.remaining() < OpeningBook.ENTRY_BYTES) {
+                    drain(channel, buffer);
+                }
+
+                buffer.putLong(entry.hash);
+                buffer.putLong(entry.player);
+                buffer.putLong(entry.opponent);
+                buffer.putInt(entry.games);
+                buffer.putInt(entry.wins);
+                buffer.putInt(entry.draws);
+                buffer.put((byte) entry.move);
+                buffer.put((byte) 0);
+                buffer.put((byte) 0);
+                buffer.put((byte) 0);
+            }
+
+            drain(channel, buffer);
+        }
+
+        return entries.size();
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 4) {
+            System.out.println("usage: java OpeningBookBuilder book maxPly minGames records...");
+            System.exit(2);
+        }
+
+        int maxPly = Integer.parseInt(args[1]);
+        int minGames = Integer.parseInt(args[2]);
+
+        OpeningBookBuilder builder = new OpeningBookBuilder(maxPly);
+        OthelloBoard board = new OthelloBoard();
+        byte[] moves = new byte[GameRecordWriter.MAX_MOVES];
+
+        for (int i = 3; i < args.length; i++) {
+            try (GameRecordReader reader = new GameRecordReader(Paths.get(args[i]))) {
+                int length;
+                while ((length = reader.next(moves)) >= 0) {
+                    builder.addGame(moves, length, board);
+                }
+            }
+        }
+
+        int written = builder.write(Paths.get(args[0]), minGames);
+        System.out.printf("Read %d games, wrote %d book moves to %s\n", builder.games, written, args[0]);
+    }
+}
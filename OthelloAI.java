@@ -1,23 +1,78 @@
-import java.util.ArrayList;
+import java.util.Random;
 
 public class OthelloAI implements OthelloConstants {
 
+    // how long a ponder search may run if nothing stops it, an hour
+    private static final long PONDER_TIME_LIMIT = 60 * 60 * 1000;
+
     private char myPiece;
+    private final int boardSize;
     private long thinkingTime;
     private boolean show;
     private AIDifficulty difficulty;
+    private ParallelSearch search;
+    private int hashSize;
+    private int threads;
+    private int maxDepth;
+    private PatternWeights weights;
+    private OthelloBoard scratch; // BEST_MOVE tries its moves here when scoring with weights
+    private Random random;
+
+    // MCTS tree, on the same threads and memory as SEARCH, and its optional playout budget
+    private MonteCarloSearch monteCarlo;
+    private long playoutLimit;
+
+    // ENDGAME plays perfectly once this few squares are empty
+    private EndgameSolver solver;
+    private int endgameEmpties;
+
+    // reused between turns so that choosing a move does not allocate
+    private int[] possibleMoves;
+    private int[] moves = new int[2];
+    private int lastMove;
+
+    // background search of the position after the opponent's expected reply, see ponder
+    private Thread ponderThread;
+    private OthelloBoard ponderBoard;
+    private long ponderBlack; // ponderBoard before the search started, it changes while searching
+    private long ponderWhite;
+    private char ponderTurn;
+    private long ponderStart;
+    private volatile int ponderResult;
+
+    // optional opening book, consulted for the first bookDepth plies of a game
+    private OpeningBook book;
+    private int bookDepth;
 
     public OthelloAI() {
-        myPiece = WHITE_PIECE;
-        thinkingTime = 10;
-        difficulty = AIDifficulty.RANDOM;
-        show = true;
+        this(WHITE_PIECE);
     }
 
     public OthelloAI(char myPiece) {
-        this();
+        this(myPiece, SIZE);
+    }
+
+    // pre: boardSize is even and between 4 and 16
+    // post: creates an AI for boards of that size. Only RANDOM and BEST_MOVE without
+    //  weights or a book can play on boards of other sizes than 8 x 8.
+    public OthelloAI(char myPiece, int boardSize) {
+        if (!WideBitBoard.isSupportedSize(boardSize)) {
+            throw new IllegalArgumentException("board size must be even and between "
+                + WideBitBoard.MIN_SIZE + " and " + WideBitBoard.MAX_SIZE);
+        }
 
         this.myPiece = myPiece;
+        this.boardSize = boardSize;
+        possibleMoves = new int[boardSize * boardSize];
+        thinkingTime = 10;
+        difficulty = AIDifficulty.RANDOM;
+        hashSize = 16;
+        threads = 1;
+        maxDepth = 60;
+        endgameEmpties = 18;
+        lastMove = PASS;
+        random = new Random();
+        show = true;
     }
 
     public void setPiece(char newPiece) {
@@ -32,11 +87,294 @@ public class OthelloAI implements OthelloConstants {
         this.show = show;
     }
 
+    public int getBoardSize() {
+        return boardSize;
+    }
+
+    // pre: newDifficulty is RANDOM or BEST_MOVE unless the board is 8 x 8
     public void setDifficulty(AIDifficulty newDifficulty) {
+        if (boardSize != SIZE && newDifficulty != AIDifficulty.RANDOM && newDifficulty != AIDifficulty.BEST_MOVE) {
+            throw new UnsupportedOperationException(newDifficulty + " only plays on 8 x 8 boards");
+        }
+
+        stopPondering();
         difficulty = newDifficulty;
     }
 
+    // pre: millis > 0
+    // post: sets how long the AI may think per move; SEARCH and ENDGAME treat it as a hard deadline
+    public void setThinkingTime(long millis) {
+        if (millis <= 0) {
+            throw new IllegalArgumentException("thinking time must be positive");
+        }
+
+        thinkingTime = millis;
+    }
+
+    // post: reseeds the random number generator used to pick RANDOM moves,
+    //  so that the same seed always gives the same choices
+    public void setSeed(long seed) {
+        random.setSeed(seed);
+    }
+
+    // pre: playouts >= 0
+    // post: MCTS stops after 'playouts' playouts if the thinking time has not run out first;
+    //  0 leaves only the thinking time
+    public void setPlayoutLimit(long playouts) {
+        if (playouts < 0) {
+            throw new IllegalArgumentException("playout limit cannot be negative");
+        }
+
+        playoutLimit = playouts;
+        if (monteCarlo != null) {
+            monteCarlo.setPlayoutLimit(playouts);
+        }
+    }
+
+    // pre: 1 <= depth < 128
+    // post: limits how deep SEARCH may look, whatever the thinking time
+    public void setMaxDepth(int depth) {
+        if (depth < 1 || depth >= 128) {
+            throw new IllegalArgumentException("max depth must be between 1 and 127");
+        }
+
+        maxDepth = depth;
+        if (search != null) {
+            search.setMaxDepth(depth);
+        }
+    }
+
+    // pre: megabytes > 0
+    // post: sets the memory used by the SEARCH transposition table, starting from an empty table
+    public void setHashSize(int megabytes) {
+        if (megabytes <= 0) {
+            throw new IllegalArgumentException("hash size must be positive");
+        }
+
+        hashSize = megabytes;
+        resetSearch();
+        solver = null;
+    }
+
+    // pre: threads > 0
+    // post: SEARCH searches on 'threads' threads at once, sharing one transposition table,
+    //  and MCTS runs playouts on as many threads sharing one tree
+    public void setThreads(int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("thread count must be positive");
+        }
+
+        this.threads = threads;
+        resetSearch();
+    }
+
+    // pre: 0 <= empties <= 64
+    // post: ENDGAME solves the game exactly once at most 'empties' squares are empty, and
+    //  plays like SEARCH before that. Each extra empty square makes solving a few times slower;
+    //  a solve that takes more than half the thinking time is dropped and the rest of the
+    //  time goes to a search instead.
+    public void setEndgameEmpties(int empties) {
+        if (empties < 0 || empties > BitBoard.SQUARES) {
+            throw new IllegalArgumentException("endgame empties must be between 0 and 64");
+        }
+
+        endgameEmpties = empties;
+    }
+
+    // pre: none
+    // post: BEST_MOVE picks the move the pattern weights like best instead of the one that
+    //  flips the most pieces, and SEARCH (and ENDGAME before it can solve) scores positions
+    //  with them instead of its built in square values; null goes back to both of those.
+    //  The weights can be shared by any number of AIs.
+    public void setWeights(PatternWeights weights) {
+        if (weights != null && boardSize != SIZE) {
+            throw new UnsupportedOperationException("pattern weights only work on 8 x 8 boards");
+        }
+
+        this.weights = weights;
+        resetSearch();
+    }
+
+    // pre: maxPly >= 0
+    // post: the AI plays book moves, when it has one, until 'maxPly' plies have been played
+    //  (null turns the book off). The book can be shared by any number of AIs.
+    public void setOpeningBook(OpeningBook book, int maxPly) {
+        if (maxPly < 0) {
+            throw new IllegalArgumentException("book depth cannot be negative");
+        }
+        if (book != null && boardSize != SIZE) {
+            throw new UnsupportedOperationException("opening books only work on 8 x 8 boards");
+        }
+
+        this.book = book;
+        bookDepth = maxPly;
+    }
+
+    // post: returns the square (row * board size + col) played by the last call to playPiece, or PASS
+    public int getLastMove() {
+        return lastMove;
+    }
+
+    // post: forgets the positions remembered by earlier SEARCH and ENDGAME moves
+    public void clearHash() {
+        if (search != null) {
+            search.getTable().clear();
+        }
+        if (solver != null) {
+            solver.clearHash();
+        }
+    }
+
+    // post: returns the number of positions visited by the last SEARCH move
+    public long getNodesSearched() {
+        return search == null? 0: search.getNodes();
+    }
+
+    // post: returns the deepest fully searched depth of the last SEARCH move
+    public int getDepthReached() {
+        return search == null? 0: search.getDepthReached();
+    }
+
+    // post: returns the search used by SEARCH, creating it (and its table) on first use
+    private ParallelSearch search() {
+        if (search == null) {
+            search = new ParallelSearch(threads, new TranspositionTable(hashSize));
+            search.setMaxDepth(maxDepth);
+            search.setWeights(weights);
+        }
+
+        return search;
+    }
+
+    // post: lets go of the current searches and their threads, the next move creates new ones
+    private void resetSearch() {
+        stopPondering();
+
+        if (search != null) {
+            search.close();
+            search = null;
+        }
+        if (monteCarlo != null) {
+            monteCarlo.close();
+            monteCarlo = null;
+        }
+    }
+
+    // pre: board is the position right after this AI's move, with the opponent to move
+    // post: guesses the opponent's reply and starts searching the position after it on a
+    //  background thread, which runs until the next playPiece or stopPondering. If the guess
+    //  was right, playPiece uses that search instead of starting over; if not, the work is
+    //  dropped, apart from what it left in the transposition table. Only SEARCH, and ENDGAME
+    //  while it is still searching, ponder.
+    public void ponder(OthelloBoard board) {
+        stopPondering();
+
+        boolean searching = difficulty == AIDifficulty.SEARCH
+            || (difficulty == AIDifficulty.ENDGAME && board.countPieces(BLANK_PIECE) - 1 > endgameEmpties);
+        if (!searching || board.currentTurn() == myPiece || board.isGameOver()) {
+            return;
+        }
+
+        if (ponderBoard == null) {
+            ponderBoard = new OthelloBoard();
+        }
+
+        ponderBoard.copyPosition(board);
+        ponderBoard.makeMove(guessReply(ponderBoard));
+        ponderBlack = ponderBoard.piecesOf(BLACK_PIECE);
+        ponderWhite = ponderBoard.piecesOf(WHITE_PIECE);
+        ponderTurn = ponderBoard.currentTurn();
+
+        ParallelSearch search = search();
+        ponderStart = System.nanoTime();
+        ponderResult = PASS;
+
+        // the search stops when told to, the time limit only has to outlast any opponent
+        ponderThread = new Thread(() -> {
+            ponderResult = search.search(ponderBoard, PONDER_TIME_LIMIT);
+        }, "ponder");
+        ponderThread.setDaemon(true);
+        ponderThread.start();
+    }
+
+    // post: stops a background search started by ponder and forgets it
+    public void stopPondering() {
+        if (ponderThread == null) {
+            return;
+        }
+
+        // stop() only reaches a running search, so keep asking until the thread has ended
+        while (ponderThread.isAlive()) {
+            search.stop();
+
+            try {
+                ponderThread.join(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        ponderThread = null;
+    }
+
+    // pre: none
+    // post: asks a move being chosen on another thread to be played as soon as possible with
+    //  what the search, solve or playouts have found so far; a solve that is stopped falls
+    //  back to a search, which only gets what is left of the thinking time
+    public void stop() {
+        ParallelSearch search = this.search;
+        EndgameSolver solver = this.solver;
+        MonteCarloSearch monteCarlo = this.monteCarlo;
+
+        if (solver != null) {
+            solver.stop();
+        }
+        if (search != null) {
+            search.stop();
+        }
+        if (monteCarlo != null) {
+            monteCarlo.stop();
+        }
+    }
+
+    // pre: board is the position with the opponent to move
+    // post: returns the reply this AI expects: the move its last search thought best for the
+    //  opponent, or else the one that leaves this AI the worst static evaluation
+    private int guessReply(OthelloBoard board) {
+        long entry = search().getTable().probe(board.hashKey());
+        int move = TranspositionTable.move(entry);
+
+        if (entry != TranspositionTable.MISS && move != PASS && (board.legalMoves(board.currentTurn()) & (1L << move)) != 0) {
+            return move;
+        }
+
+        int count = board.legalMoves(board.currentTurn(), possibleMoves);
+        int best = PASS;
+        int bestScore = Integer.MAX_VALUE;
+
+        for (int i = 0; i < count; i++) {
+            board.makeMove(possibleMoves[i]);
+            int score = OthelloSearch.evaluate(board);
+            board.undoMove();
+
+            if (score < bestScore) {
+                bestScore = score;
+                best = possibleMoves[i];
+            }
+        }
+
+        return best;
+    }
+
+    // pre: board has the size this AI was created for
     public void playPiece(OthelloBoard board) {
+        if (board.size() != boardSize) {
+            throw new IllegalArgumentException("this AI plays on " + boardSize + " x " + boardSize
+                + " boards, not " + board.size() + " x " + board.size());
+        }
+
+        long start = Metrics.ENABLED? System.nanoTime(): 0;
 
         if (show) {
             System.out.println("Hmm... let me think where to place this");
@@ -44,20 +382,38 @@ public class OthelloAI implements OthelloConstants {
 
         try {
 
-            int[] moves = new int[2];
             moves[0] = -1;
             moves[1] = -1;
+            lastMove = PASS;
+
+            if (chooseBookMove(board, moves)) {
+                stopPondering();
 
-            switch(difficulty) {
-                case RANDOM:
-                    chooseRandomMove(board, moves);
-                    break;
-                case BEST_MOVE:
-                    chooseBestMove(board, moves);
-                    break;
+                if (show) {
+                    System.out.println("I know this one from my book");
+                }
+            } else {
+                switch(difficulty) {
+                    case RANDOM:
+                        chooseRandomMove(board, moves);
+                        break;
+                    case BEST_MOVE:
+                        chooseBestMove(board, moves);
+                        break;
+                    case SEARCH:
+                        chooseSearchMove(board, moves);
+                        break;
+                    case ENDGAME:
+                        chooseEndgameMove(board, moves);
+                        break;
+                    case MCTS:
+                        chooseMonteCarloMove(board, moves);
+                        break;
+                }
             }
 
-            if (show) {
+            if (show && difficulty != AIDifficulty.SEARCH && difficulty != AIDifficulty.ENDGAME
+                    && difficulty != AIDifficulty.MCTS) {
                 Thread.sleep(thinkingTime); // thinking
             }
 
@@ -70,6 +426,11 @@ public class OthelloAI implements OthelloConstants {
                     System.out.println("Found a spot!");
 
                 board.placePiece(moves[0], moves[1], myPiece);
+                lastMove = moves[0] * boardSize + moves[1];
+            }
+
+            if (Metrics.ENABLED) {
+                Metrics.MOVE_NANOS.record(System.nanoTime() - start);
             }
 
         } catch (InterruptedException e) {
@@ -79,42 +440,225 @@ public class OthelloAI implements OthelloConstants {
         }
     }
 
-    private void chooseRandomMove(OthelloBoard board, int[] moves) {
+    // post: returns whether the opening book had a legal move for this position, stored in moves
+    private boolean chooseBookMove(OthelloBoard board, int[] moves) {
+        if (book == null) {
+            return false;
+        }
+
+        // the four starting pieces are never played, so this counts the moves made so far
+        int ply = SIZE * SIZE - board.countPieces(BLANK_PIECE) - 4;
+        if (ply >= bookDepth) {
+            return false;
+        }
 
-        ArrayList<int[]> possibleMoves = new ArrayList<>();
+        char other = myPiece == BLACK_PIECE? WHITE_PIECE: BLACK_PIECE;
+        int move = book.probe(board.piecesOf(myPiece), board.piecesOf(other));
 
-        for (int r = 0; r < SIZE; r++) {
-            for (int c = 0; c < SIZE; c++) {
-                if (board.canBePlaced(r, c, myPiece)) {
-                    possibleMoves.add(new int[] {r, c});
-                }
-            }
+        if (move == PASS || !board.canBePlaced(BitBoard.row(move), BitBoard.col(move), myPiece)) {
+            return false;
         }
 
-        if (possibleMoves.size() > 0) {
-            int[] randomMove = possibleMoves.get((int) (Math.random() * possibleMoves.size()));
-            moves[0] = randomMove[0];
-            moves[1] = randomMove[1];
+        moves[0] = BitBoard.row(move);
+        moves[1] = BitBoard.col(move);
+        return true;
+    }
+
+    private void chooseRandomMove(OthelloBoard board, int[] moves) {
+
+        int count = board.legalMoves(myPiece, possibleMoves);
+
+        if (count > 0) {
+            int randomMove = possibleMoves[random.nextInt(count)];
+            moves[0] = randomMove / boardSize;
+            moves[1] = randomMove % boardSize;
         }
     }
 
     private void chooseBestMove(OthelloBoard board, int[] moves) {
+        if (weights != null) {
+            chooseWeightedMove(board, moves);
+            return;
+        }
+
         int max = 0;
+        int count = board.legalMoves(myPiece, possibleMoves);
 
-        for (int r = 0; r < SIZE; r++) {
-            for (int c = 0; c < SIZE; c++) {
-                int currentValue = board.findMaxPieces(r, c, myPiece);
+        for (int i = 0; i < count; i++) {
+            int r = possibleMoves[i] / boardSize;
+            int c = possibleMoves[i] % boardSize;
+            int currentValue = board.findMaxPieces(r, c, myPiece);
 
-                if (currentValue > max) {
-                    max = currentValue;
-                    moves[0] = r;
-                    moves[1] = c;
-                }
+            if (currentValue > max) {
+                max = currentValue;
+                moves[0] = r;
+                moves[1] = c;
+            }
+        }
+    }
+
+    private void chooseWeightedMove(OthelloBoard board, int[] moves) {
+        if (scratch == null) {
+            scratch = new OthelloBoard();
+            scratch.trackPatterns(true);
+        }
+
+        scratch.copyPosition(board);
+        if (scratch.currentTurn() != myPiece) {
+            scratch.switchTurns();
+        }
+
+        int best = Integer.MIN_VALUE;
+        int count = scratch.legalMoves(myPiece, possibleMoves);
+
+        for (int i = 0; i < count; i++) {
+            scratch.makeMove(possibleMoves[i]);
+            int score = -weights.evaluate(scratch); // the evaluation is for the opponent, now to move
+            scratch.undoMove();
+
+            if (score > best) {
+                best = score;
+                moves[0] = BitBoard.row(possibleMoves[i]);
+                moves[1] = BitBoard.col(possibleMoves[i]);
             }
         }
     }
 
+    private void chooseSearchMove(OthelloBoard board, int[] moves) throws InterruptedException {
+        searchMove(board, moves, thinkingTime);
+    }
+
+    // pre: timeLimitMillis > 0
+    // post: stores the move the search picks within 'timeLimitMillis' in moves, or leaves it
+    //  if there is none
+    private void searchMove(OthelloBoard board, int[] moves, long timeLimitMillis) throws InterruptedException {
+
+        // the search always plays for the side to move
+        boolean otherTurn = board.currentTurn() != myPiece;
+        if (otherTurn) {
+            board.switchTurns();
+        }
+
+        ParallelSearch search = search();
+
+        // a pass changes no piece, so the side to move has to match as well
+        boolean ponderHit = ponderThread != null && ponderTurn == board.currentTurn()
+            && ponderBlack == board.piecesOf(BLACK_PIECE) && ponderWhite == board.piecesOf(WHITE_PIECE);
+        int move;
+
+        if (ponderHit) {
+            // the search has been running since the opponent started thinking, it only
+            // needs whatever is left of the usual thinking time
+            long waited = (System.nanoTime() - ponderStart) / 1_000_000;
+            if (waited < timeLimitMillis) {
+                ponderThread.join(timeLimitMillis - waited);
+            }
+        }
+
+        stopPondering();
+
+        // a ponder search stopped before it finished a depth has no move worth playing
+        if (ponderHit && search.getDepthReached() > 0) {
+            move = ponderResult;
+
+            if (show) {
+                System.out.println("I saw that move coming");
+            }
+        } else {
+            move = search.search(board, timeLimitMillis);
+        }
+
+        if (otherTurn) {
+            board.switchTurns();
+        }
+
+        if (show) {
+            TranspositionTable table = search.getTable();
+            System.out.printf("Searched %d positions to depth %d in %d ms (%d table hits, %d misses)\n",
+                search.getNodes(), search.getDepthReached(), search.getElapsedNanos() / 1_000_000,
+                table.getHits(), table.getMisses());
+        }
+
+        if (move != PASS) {
+            moves[0] = BitBoard.row(move);
+            moves[1] = BitBoard.col(move);
+        }
+    }
+
+    private void chooseEndgameMove(OthelloBoard board, int[] moves) throws InterruptedException {
+        if (board.countPieces(BLANK_PIECE) > endgameEmpties) {
+            chooseSearchMove(board, moves);
+            return;
+        }
+
+        stopPondering();
+
+        if (solver == null) {
+            solver = new EndgameSolver(hashSize);
+        }
+
+        // the solve gets half the thinking time, so a search for the move can still have the rest
+        char other = myPiece == BLACK_PIECE? WHITE_PIECE: BLACK_PIECE;
+        long start = System.nanoTime();
+        int score = solver.solve(board.piecesOf(myPiece), board.piecesOf(other), Math.max(1, thinkingTime / 2));
+        int move = solver.getBestMove();
+
+        if (solver.wasStopped()) {
+            if (show) {
+                System.out.printf("Could not solve to the end in %d ms, searching instead\n",
+                    solver.getElapsedNanos() / 1_000_000);
+            }
+
+            long used = (System.nanoTime() - start) / 1_000_000;
+            searchMove(board, moves, Math.max(1, thinkingTime - used));
+            return;
+        }
+
+        if (show) {
+            System.out.printf("Solved to the end: I finish %+d with perfect play (%d positions in %d ms)\n",
+                score, solver.getNodes(), solver.getElapsedNanos() / 1_000_000);
+        }
+
+        if (move != PASS) {
+            moves[0] = BitBoard.row(move);
+            moves[1] = BitBoard.col(move);
+        }
+    }
+
+    private void chooseMonteCarloMove(OthelloBoard board, int[] moves) {
+        if (monteCarlo == null) {
+            monteCarlo = new MonteCarloSearch(threads, hashSize);
+            monteCarlo.setPlayoutLimit(playoutLimit);
+        }
+
+        // the search always plays for the side to move
+        boolean otherTurn = board.currentTurn() != myPiece;
+        if (otherTurn) {
+            board.switchTurns();
+        }
+
+        // seeded from this AI's generator, so setSeed makes a one thread search repeatable
+        monteCarlo.setSeed(random.nextLong());
+        int move = monteCarlo.search(board, thinkingTime);
+
+        if (otherTurn) {
+            board.switchTurns();
+        }
+
+        if (show) {
+            long elapsed = monteCarlo.getElapsedNanos();
+            System.out.printf("Ran %d playouts in %d ms (%.0f per second), I win %.0f%% of them after my move\n",
+                monteCarlo.getPlayouts(), elapsed / 1_000_000, monteCarlo.getPlayouts() / (elapsed / 1e9),
+                100 * monteCarlo.getBestWinRate());
+        }
+
+        if (move != PASS) {
+            moves[0] = BitBoard.row(move);
+            moves[1] = BitBoard.col(move);
+        }
+    }
+
     public enum AIDifficulty {
-        BEST_MOVE, RANDOM
+        BEST_MOVE, RANDOM, SEARCH, ENDGAME, MCTS
     }
 }
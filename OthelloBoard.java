@@ -1,44 +1,205 @@
-import java.util.List;
-import java.util.ArrayList;
+import java.util.Arrays;
 
 public class OthelloBoard implements OthelloConstants {
 
     // private instance vars
-    private char[][] board;
+    private long black;
+    private long white;
     private boolean showMoves;
     private boolean isWhiteTurn;
 
-    private List<MoveVector> possibleMoves;
+    // legal moves of each side, valid while the matching bit of cachedMoves is set;
+    // switching turns or passing leaves them valid, any change to the pieces does not
+    private long blackMoves;
+    private long whiteMoves;
+    private int cachedMoves;
+
+    // Zobrist hash of the pieces and the side to move, kept up to date on every change
+    private long hash;
+
+    // code of every pattern instance (see Patterns), or null when they are not tracked
+    private int[] patternCodes;
+
+    // undo stack for makeMove/undoMove, one entry per move or pass
+    private int[] undoSquares;
+    private long[] undoFlips;
+    private boolean[] undoTurns;
+    private long[] undoHashes;
+    private int undoSize;
+
+    // boards of any other size than SIZE keep their pieces and legal moves in the
+    // wide* bitsets, with square (row * size + col), and leave the fields above alone
+    private final int size;
+    private final WideBitBoard wide;
+    private long[] wideBlack;
+    private long[] wideWhite;
+    private long[] wideBlackMoves;
+    private long[] wideWhiteMoves;
+    private long[] wideFlips;
 
     // pre: none
     // post: initialize the Othello board
     //  if used correctly, this method should really only be called once
     public OthelloBoard() {
-        board = new char[8][8];
+        this(SIZE);
+    }
+
+    // pre: size is even and between 4 and 16
+    // post: creates a size x size board with the starting position. Boards of any other size
+    //  than 8 x 8 play and count pieces like any board, but hashing, symmetry, patterns,
+    //  makeMove and undoMove, and the 64 bit masks of piecesOf and legalMoves only work on
+    //  8 x 8 boards and throw UnsupportedOperationException on the others.
+    public OthelloBoard(int size) {
+        if (!WideBitBoard.isSupportedSize(size)) {
+            throw new IllegalArgumentException("board size must be even and between "
+                + WideBitBoard.MIN_SIZE + " and " + WideBitBoard.MAX_SIZE);
+        }
+
+        this.size = size;
+        wide = size == SIZE? null: new WideBitBoard(size);
+        allocateWideSets();
+        allocateUndoStack();
         resetBoard();
     }
 
     public OthelloBoard(char[][] newBoard) {
-        if (!isSquare(newBoard)) {
-            throw new IllegalArgumentException("new board must be of length 8 x 8");
+        this(newBoard, BLACK_PIECE);
+    }
+
+    // pre: newBoard is square with an even size between 4 and 16, usually 8, and only holds
+    //  '-', 'W' and 'B', turn is a black or white piece
+    // post: creates a board of that size with the given position and side to move
+    public OthelloBoard(char[][] newBoard, char turn) {
+        if (!isSquare(newBoard) || !WideBitBoard.isSupportedSize(newBoard.length)) {
+            throw new IllegalArgumentException("new board must be square, 8 x 8 or another even size from "
+                + WideBitBoard.MIN_SIZE + " x " + WideBitBoard.MIN_SIZE + " to "
+                + WideBitBoard.MAX_SIZE + " x " + WideBitBoard.MAX_SIZE);
         }
 
         if (!containsValidCharacters(newBoard)) {
             throw new IllegalArgumentException("new board can only contain '-', 'W', and 'B' characters");
         }
 
-        board = new char[8][8];
-        deepCopy(newBoard, board);
-        resetBoard();
+        if (turn != BLACK_PIECE && turn != WHITE_PIECE) {
+            throw new IllegalArgumentException("turn must be either black or white piece");
+        }
+
+        size = newBoard.length;
+        wide = size == SIZE? null: new WideBitBoard(size);
+        allocateWideSets();
+        allocateUndoStack();
+        copyFrom(newBoard);
+        isWhiteTurn = turn == WHITE_PIECE;
+        hash = Zobrist.hash(black, white, isWhiteTurn);
     }
 
-    private boolean isSquare(char[][] board) {
-        if (board.length != 8) {
-            return false;
+    // pre: black and white do not overlap, turn is a black or white piece
+    // post: creates a board from piece masks with bit (row * 8 + col) set for each occupied square
+    public OthelloBoard(long black, long white, char turn) {
+        if ((black & white) != 0) {
+            throw new IllegalArgumentException("a square cannot hold both a black and a white piece");
+        }
+
+        if (turn != BLACK_PIECE && turn != WHITE_PIECE) {
+            throw new IllegalArgumentException("turn must be either black or white piece");
+        }
+
+        size = SIZE;
+        wide = null;
+        allocateUndoStack();
+        this.black = black;
+        this.white = white;
+        isWhiteTurn = turn == WHITE_PIECE;
+        hash = Zobrist.hash(black, white, isWhiteTurn);
+    }
+
+    // pre: none
+    // post: creates a board of the same size with the same position and side to move as 'other'
+    public OthelloBoard(OthelloBoard other) {
+        size = other.size;
+        wide = other.wide == null? null: new WideBitBoard(size);
+        allocateWideSets();
+        allocateUndoStack();
+        copyPosition(other);
+    }
+
+    // pre: other has the same size as this board
+    // post: sets this board to the position and side to move of 'other',
+    //  forgetting any moves that could have been undone
+    public void copyPosition(OthelloBoard other) {
+        if (other.size != size) {
+            throw new IllegalArgumentException("cannot copy a " + other.size + " x " + other.size
+                + " board onto a " + size + " x " + size + " board");
+        }
+
+        if (wide != null) {
+            System.arraycopy(other.wideBlack, 0, wideBlack, 0, wideBlack.length);
+            System.arraycopy(other.wideWhite, 0, wideWhite, 0, wideWhite.length);
+        }
+
+        black = other.black;
+        white = other.white;
+        isWhiteTurn = other.isWhiteTurn;
+        hash = other.hash;
+        cachedMoves = 0;
+        undoSize = 0;
+
+        if (patternCodes != null) {
+            if (other.patternCodes != null) {
+                System.arraycopy(other.patternCodes, 0, patternCodes, 0, Patterns.INSTANCES);
+            } else {
+                Patterns.compute(black, white, patternCodes);
+            }
+        }
+    }
+
+    // pre: this is an 8 x 8 board
+    // post: sets this board to 'position', forgetting any moves that could have been undone
+    public void copyPosition(Position position) {
+        requireStandardSize("copying a Position");
+
+        black = position.piecesOf(BLACK_PIECE);
+        white = position.piecesOf(WHITE_PIECE);
+        isWhiteTurn = position.currentTurn() == WHITE_PIECE;
+        hash = position.hashKey();
+        cachedMoves = 0;
+        undoSize = 0;
+
+        if (patternCodes != null) {
+            Patterns.compute(black, white, patternCodes);
+        }
+    }
+
+    private void allocateWideSets() {
+        if (wide != null) {
+            wideBlack = wide.newSet();
+            wideWhite = wide.newSet();
+            wideBlackMoves = wide.newSet();
+            wideWhiteMoves = wide.newSet();
+            wideFlips = wide.newSet();
+        }
+    }
+
+    // post: throws UnsupportedOperationException naming 'feature' if this is not an 8 x 8 board
+    private void requireStandardSize(String feature) {
+        if (wide != null) {
+            throw new UnsupportedOperationException(feature + " only works on 8 x 8 boards, not "
+                + size + " x " + size);
         }
+    }
 
+    private void allocateUndoStack() {
+        // a game never runs longer than 60 moves plus a handful of passes
+        undoSquares = new int[64];
+        undoFlips = new long[64];
+        undoTurns = new boolean[64];
+        undoHashes = new long[64];
+        undoSize = 0;
+    }
+
+    private boolean isSquare(char[][] board) {
         for(int i = 0; i < board.length; i++) {
-            if (board[i].length != 8) {
+            if (board[i].length != board.length) {
                 return false;
             }
         }
@@ -46,13 +207,34 @@ public class OthelloBoard implements OthelloConstants {
         return true;
     }
 
-    // pre: source and destination must have the same dimensions
-    // post: reuslt
-    private void deepCopy(char[][] source, char[][] destination) {
+    // pre: source must be size x size and only contain valid characters
+    // post: sets the black and white masks to match source
+    private void copyFrom(char[][] source) {
+        black = 0;
+        white = 0;
+        cachedMoves = 0;
+
+        if (wide != null) {
+            for (int row = 0; row < size; row++) {
+                for (int col = 0; col < size; col++) {
+                    if (source[row][col] == BLACK_PIECE) {
+                        WideBitBoard.set(wideBlack, wide.square(row, col));
+                    } else if (source[row][col] == WHITE_PIECE) {
+                        WideBitBoard.set(wideWhite, wide.square(row, col));
+                    }
+                }
+            }
+
+            return;
+        }
 
-        for (int row = 0; row < board.length; row++) {
-            for (int col = 0; col < board[row].length; col++) {
-                destination[row][col] = source[row][col];
+        for (int row = 0; row < SIZE; row++) {
+            for (int col = 0; col < SIZE; col++) {
+                if (source[row][col] == BLACK_PIECE) {
+                    black |= BitBoard.bit(row, col);
+                } else if (source[row][col] == WHITE_PIECE) {
+                    white |= BitBoard.bit(row, col);
+                }
             }
         }
     }
@@ -74,28 +256,55 @@ public class OthelloBoard implements OthelloConstants {
     public void resetBoard() {
 
         isWhiteTurn = false;
+        undoSize = 0;
 
-        // clear the board and place the first four pieces
-        clearBoard();
-        board[3][3] = BLACK_PIECE;
-        board[4][4] = BLACK_PIECE;
-        board[4][3] = WHITE_PIECE;
-        board[3][4] = WHITE_PIECE;
+        // place the first four pieces
+        black = BitBoard.START_BLACK;
+        white = BitBoard.START_WHITE;
+        cachedMoves = 0;
+        hash = Zobrist.hash(black, white, isWhiteTurn);
+
+        if (patternCodes != null) {
+            Patterns.compute(black, white, patternCodes);
+        }
+        if (wide != null) {
+            wide.start(wideBlack, wideWhite);
+        }
     }
 
-    // places a blank spot on every spot on the board
-    private void clearBoard() {
+    // post: returns the number of rows and of columns, 8 unless the board was created with another size
+    public int size() {
+        return size;
+    }
 
-        // place a blank piece in every slot on the board
-        for (int row = 0; row < board.length; row++) {
-            for (int col = 0; col < board[row].length; col++) {
-                board[row][col] = BLANK_PIECE;
-            }
+    private boolean inBounds(int row, int col) {
+        return row >= 0 && row < size && col >= 0 && col < size;
+    }
+
+    // pre: piece must be a black or white piece, this is an 8 x 8 board
+    // post: returns the mask of squares 'piece' occupies, with bit (row * 8 + col) for each square
+    public long piecesOf(char piece) {
+        requireStandardSize("piecesOf");
+
+        if (piece == BLACK_PIECE) {
+            return black;
+        } else if (piece == WHITE_PIECE) {
+            return white;
         }
+
+        throw new IllegalArgumentException("piece must be either black or white piece");
     }
 
-    private boolean inBounds(int row, int col) {
-        return row >= 0 && row < board.length && col >= 0 && col < board[0].length;
+    // pre: piece must be a black or white piece
+    // post: returns the mask of squares the other side occupies
+    private long opponentsOf(char piece) {
+        if (piece == BLACK_PIECE) {
+            return white;
+        } else if (piece == WHITE_PIECE) {
+            return black;
+        }
+
+        throw new IllegalArgumentException("piece must be either black or white piece");
     }
 
     public char currentTurn() {
@@ -108,6 +317,85 @@ public class OthelloBoard implements OthelloConstants {
 
     public void switchTurns() {
         isWhiteTurn = !isWhiteTurn;
+        hash ^= Zobrist.SIDE;
+    }
+
+    // pre: this is an 8 x 8 board
+    // post: returns the Zobrist hash of the pieces on the board and the side to move
+    public long hashKey() {
+        requireStandardSize("hashing");
+        return hash;
+    }
+
+    // pre: this is an 8 x 8 board, 0 <= transform < Symmetry.TRANSFORMS
+    // post: rotates or reflects the pieces by the transform (see Symmetry), keeping the
+    //  side to move and forgetting any moves that could have been undone
+    public void transform(int transform) {
+        if (transform < 0 || transform >= Symmetry.TRANSFORMS) {
+            throw new IllegalArgumentException("transform must be between 0 and " + (Symmetry.TRANSFORMS - 1));
+        }
+        requireStandardSize("symmetry");
+
+        black = Symmetry.transform(black, transform);
+        white = Symmetry.transform(white, transform);
+        undoSize = 0;
+
+        // legal moves turn with the pieces, so whatever is cached stays good
+        blackMoves = Symmetry.transform(blackMoves, transform);
+        whiteMoves = Symmetry.transform(whiteMoves, transform);
+        hash = Zobrist.hash(black, white, isWhiteTurn);
+
+        if (patternCodes != null) {
+            Patterns.compute(black, white, patternCodes);
+        }
+    }
+
+    // pre: this is an 8 x 8 board
+    // post: returns the transform that takes this position to its canonical form,
+    //  the pieces of the side to move counting as the player (see Symmetry)
+    public int canonicalTransform() {
+        requireStandardSize("symmetry");
+        return isWhiteTurn? Symmetry.canonicalTransform(white, black): Symmetry.canonicalTransform(black, white);
+    }
+
+    // pre: this is an 8 x 8 board
+    // post: turns the board into its canonical form and returns the transform applied;
+    //  Symmetry.fromCanonical maps moves on the canonical board back to the original one
+    public int canonicalize() {
+        int transform = canonicalTransform();
+        if (transform != 0) {
+            transform(transform);
+        }
+
+        return transform;
+    }
+
+    // pre: this is an 8 x 8 board if 'track' is true
+    // post: turns the pattern codes used by PatternWeights on or off. While they are on,
+    //  every move and undo also updates them, which costs a little time.
+    public void trackPatterns(boolean track) {
+        if (!track) {
+            patternCodes = null;
+        } else if (patternCodes == null) {
+            requireStandardSize("patterns");
+            patternCodes = new int[Patterns.INSTANCES];
+            Patterns.compute(black, white, patternCodes);
+        }
+    }
+
+    public boolean tracksPatterns() {
+        return patternCodes != null;
+    }
+
+    // pre: tracksPatterns() is true
+    // post: returns the code of every pattern instance of the current position; the array
+    //  belongs to the board, changes with it, and must not be modified
+    public int[] patternCodes() {
+        if (patternCodes == null) {
+            throw new IllegalStateException("pattern codes are not being tracked");
+        }
+
+        return patternCodes;
     }
 
     // pre: row and col must be in bounds of the board
@@ -117,39 +405,99 @@ public class OthelloBoard implements OthelloConstants {
             throw new IllegalArgumentException("cannot access element at (" + row + ", " + col + ")");
         }
 
-        if (board[row][col] != BLANK_PIECE) {
-            return false;
+        if (wide != null) {
+            return WideBitBoard.get(wideLegalMoves(piece), wide.square(row, col));
+        }
+
+        return (legalMoves(piece) & BitBoard.bit(row, col)) != 0;
+    }
+
+    // pre: piece must be a black or white piece, this is an 8 x 8 board
+    // post: returns a mask with bit (row * 8 + col) set for every square 'piece' can be placed on
+    public long legalMoves(char piece) {
+        requireStandardSize("a 64 bit move mask");
+
+        if (piece == BLACK_PIECE) {
+            if ((cachedMoves & 1) == 0) {
+                blackMoves = BitBoard.legalMoves(black, white);
+                cachedMoves |= 1;
+            }
+
+            return blackMoves;
+        } else if (piece == WHITE_PIECE) {
+            if ((cachedMoves & 2) == 0) {
+                whiteMoves = BitBoard.legalMoves(white, black);
+                cachedMoves |= 2;
+            }
+
+            return whiteMoves;
+        }
+
+        throw new IllegalArgumentException("piece must be either black or white piece");
+    }
+
+    // pre: piece must be a black or white piece, moves must hold at least size() * size() squares
+    // post: fills moves with the squares (row * size() + col) 'piece' can be placed on
+    //  in ascending order and returns how many there are
+    public int legalMoves(char piece, int[] moves) {
+        if (wide != null) {
+            return WideBitBoard.squares(wideLegalMoves(piece), moves);
         }
 
-        board[row][col] = piece;
-        int numberOfMoves = getPossibleMoves(row, col).size();
-        board[row][col] = BLANK_PIECE;
+        long mask = legalMoves(piece);
+        int count = 0;
 
-        return numberOfMoves > 0;
+        while (mask != 0) {
+            moves[count++] = Long.numberOfTrailingZeros(mask);
+            mask &= mask - 1;
+        }
+
+        return count;
+    }
+
+    // the legal moves of 'piece' on a board of another size, cached like the 8 x 8 ones
+    private long[] wideLegalMoves(char piece) {
+        if (piece == BLACK_PIECE) {
+            if ((cachedMoves & 1) == 0) {
+                wide.legalMoves(wideBlack, wideWhite, wideBlackMoves);
+                cachedMoves |= 1;
+            }
+
+            return wideBlackMoves;
+        } else if (piece == WHITE_PIECE) {
+            if ((cachedMoves & 2) == 0) {
+                wide.legalMoves(wideWhite, wideBlack, wideWhiteMoves);
+                cachedMoves |= 2;
+            }
+
+            return wideWhiteMoves;
+        }
+
+        throw new IllegalArgumentException("piece must be either black or white piece");
     }
 
     // pre: row and col must be in bounds of the board
-    // post: returns whether or not a piece can be placed on the board at the specified location
+    // post: returns how many pieces would be flipped by placing a piece at the specified location
     public int findMaxPieces(int row, int col, char piece) {
         if (!inBounds(row, col)) {
             throw new IllegalArgumentException("cannot access element at (" + row + ", " + col + ")");
         }
 
-        if (board[row][col] != BLANK_PIECE) {
-            return 0;
-        }
-
-        board[row][col] = piece;
-        int numberEarned = 0;
-        List<MoveVector> moves = getPossibleMoves(row, col);
+        if (wide != null) {
+            int square = wide.square(row, col);
+            if (WideBitBoard.get(wideBlack, square) || WideBitBoard.get(wideWhite, square)) {
+                return 0;
+            }
 
-        for(MoveVector move: moves) {
-            numberEarned += move.maxDisplacement() - 1;
+            return piece == BLACK_PIECE? wide.flips(wideBlack, wideWhite, square, wideFlips)
+                : wide.flips(wideWhite, wideBlack, square, wideFlips);
         }
 
-        board[row][col] = BLANK_PIECE;
+        if (((black | white) & BitBoard.bit(row, col)) != 0) {
+            return 0;
+        }
 
-        return numberEarned;
+        return BitBoard.count(BitBoard.flips(piecesOf(piece), opponentsOf(piece), BitBoard.square(row, col)));
     }
 
     public void showMoves(boolean show) {
@@ -166,156 +514,199 @@ public class OthelloBoard implements OthelloConstants {
             throw new IllegalArgumentException(piece + " cannot be placed at (" + row + ", " + col + ")");
         }
 
-        board[row][col] = piece;
-
-        List<MoveVector> moves = getPossibleMoves(row, col);
+        if (wide != null) {
+            if (piece == BLACK_PIECE) {
+                wide.play(wideBlack, wideWhite, wide.square(row, col), wideFlips);
+            } else {
+                wide.play(wideWhite, wideBlack, wide.square(row, col), wideFlips);
+            }
 
-        interpretMoves(moves, piece);
-    }
+            cachedMoves = 0;
+            return;
+        }
 
-    private void interpretMoves(List<MoveVector> moves, char piece) {
-        for (MoveVector vector: moves) {
-            int deltaX = vector.normalizedX();
-            int deltaY = vector.normalizedY();
+        long placed = BitBoard.bit(row, col);
+        long flipped = BitBoard.flips(piecesOf(piece), opponentsOf(piece), BitBoard.square(row, col));
 
-            int x = vector.startX;
-            int y = vector.startY;
+        if (piece == BLACK_PIECE) {
+            black |= placed | flipped;
+            white &= ~flipped;
+            hash ^= Zobrist.BLACK[BitBoard.square(row, col)];
+        } else {
+            white |= placed | flipped;
+            black &= ~flipped;
+            hash ^= Zobrist.WHITE[BitBoard.square(row, col)];
+        }
 
-            while (x != vector.endX || y != vector.endY) {
-                board[x][y] = piece;
+        hash ^= Zobrist.flipKey(flipped);
+        cachedMoves = 0;
 
-                x += deltaX;
-                y += deltaY;
-            }
+        if (patternCodes != null) {
+            Patterns.play(patternCodes, BitBoard.square(row, col), flipped, piece == WHITE_PIECE);
         }
     }
 
-    private List<MoveVector> getPossibleMoves(int row, int col) {
-        if (!inBounds(row, col)) {
-            throw new IllegalArgumentException("cannot access element at (" + row + ", " + col + ")");
-        }
+    // pre: square (row * 8 + col) must be a legal move for the current turn, or PASS,
+    //  on an 8 x 8 board
+    // post: plays the move for the current turn, switches turns, and remembers enough to undo it
+    public void makeMove(int square) {
+        requireStandardSize("makeMove");
+        long flipped = 0;
+        long previousHash = hash;
+
+        if (square != PASS) {
+            if (square < 0 || square >= BitBoard.SQUARES) {
+                throw new IllegalArgumentException("cannot access square " + square);
+            }
 
-        // get the current piece on the board
-        char currentChar = board[row][col];
+            long placed = 1L << square;
+            if (((black | white) & placed) == 0) {
+                flipped = BitBoard.flips(piecesOf(currentTurn()), opponentsOf(currentTurn()), square);
+            }
 
-        // check if the current character is not
-        if (currentChar != WHITE_PIECE && currentChar != BLACK_PIECE) {
-            throw new IllegalArgumentException("current character must be either black or white piece");
-        }
+            // a move that flips nothing is not a legal move
+            if (flipped == 0) {
+                throw new IllegalArgumentException(currentTurn() + " cannot be placed at (" + BitBoard.row(square) + ", " + BitBoard.col(square) + ")");
+            }
 
-        List<MoveVector> movesList = new ArrayList<>();
+            if (isWhiteTurn) {
+                white |= placed | flipped;
+                black &= ~flipped;
+                hash ^= Zobrist.WHITE[square];
+            } else {
+                black |= placed | flipped;
+                white &= ~flipped;
+                hash ^= Zobrist.BLACK[square];
+            }
 
-        for (int r = -1; r <= 1; r++) {
-            for (int c = -1; c <= 1; c++) {
-                if (r != 0 || c != 0) {
-                    int[] vector = {r, c};
-                    MoveVector moveVector = findClosestPiece(row, col, vector, currentChar);
+            hash ^= Zobrist.flipKey(flipped);
+            cachedMoves = 0;
 
-                    if (moveVector != null) {
-                        movesList.add(moveVector);
-                    }
-                }
+            if (patternCodes != null) {
+                Patterns.play(patternCodes, square, flipped, isWhiteTurn);
             }
         }
 
-        return movesList;
+        if (undoSize == undoSquares.length) {
+            undoSquares = Arrays.copyOf(undoSquares, undoSize * 2);
+            undoFlips = Arrays.copyOf(undoFlips, undoSize * 2);
+            undoTurns = Arrays.copyOf(undoTurns, undoSize * 2);
+            undoHashes = Arrays.copyOf(undoHashes, undoSize * 2);
+        }
+
+        undoSquares[undoSize] = square;
+        undoFlips[undoSize] = flipped;
+        undoTurns[undoSize] = isWhiteTurn;
+        undoHashes[undoSize] = previousHash;
+        undoSize++;
+
+        isWhiteTurn = !isWhiteTurn;
+        hash ^= Zobrist.SIDE;
     }
 
-    private MoveVector findClosestPiece(int row, int col, int[] vector, char startingPiece) {
+    // pre: row and col must be a legal move for the current turn
+    // post: same as makeMove(row * 8 + col)
+    public void makeMove(int row, int col) {
+        if (!inBounds(row, col)) {
+            throw new IllegalArgumentException("cannot access element at (" + row + ", " + col + ")");
+        }
+
+        makeMove(BitBoard.square(row, col));
+    }
 
-        int xDelta = vector[0];
-        int yDelta = vector[1];
+    // pre: at least one move has been made with makeMove since the last reset, on an 8 x 8 board
+    // post: takes back the last move or pass, including whose turn it was
+    public void undoMove() {
+        requireStandardSize("undoMove");
+        if (undoSize == 0) {
+            throw new IllegalStateException("there is no move to undo");
+        }
 
-        int x = row + xDelta;
-        int y = col + yDelta;
+        undoSize--;
+        int square = undoSquares[undoSize];
+        long flipped = undoFlips[undoSize];
+        isWhiteTurn = undoTurns[undoSize];
+        hash = undoHashes[undoSize];
 
-        while (inBounds(x, y)) {
-            char currentPiece = board[x][y];
+        if (square != PASS) {
+            long placed = 1L << square;
 
-            if (currentPiece == BLANK_PIECE || currentPiece == TEMP_PIECE) {
-                return null;
+            if (isWhiteTurn) {
+                white &= ~(placed | flipped);
+                black |= flipped;
+            } else {
+                black &= ~(placed | flipped);
+                white |= flipped;
             }
 
-            if (currentPiece == startingPiece) {
-                MoveVector result = new MoveVector(row, col, x, y);
-                if (result.displacementX() > 1 || result.displacementY() > 1) {
-                    return result;
-                } else {
-                    return null;
-                }
-            }
+            cachedMoves = 0;
 
-            x += xDelta;
-            y += yDelta;
+            if (patternCodes != null) {
+                Patterns.undo(patternCodes, square, flipped, isWhiteTurn);
+            }
         }
+    }
 
-        return null;
+    // pre: none
+    // post: returns how many moves can currently be taken back with undoMove
+    public int undoDepth() {
+        return undoSize;
     }
 
     // pre: none
-    // post: checks to see if board is fully filled
+    // post: checks to see if neither side has a move left
     public boolean isGameOver() {
+        if (wide != null) {
+            return WideBitBoard.isEmpty(wideLegalMoves(currentTurn())) && WideBitBoard.isEmpty(wideLegalMoves(nextTurn()));
+        }
 
-        for (int row = 0; row < board.length; row++) {
-            for (int col = 0; col < board[row].length; col++) {
-                if (board[row][col] == BLANK_PIECE) {
-                    return findAllPossible(WHITE_PIECE) == 0 && findAllPossible(BLACK_PIECE) == 0;
-                }
-            }
+        if ((black | white) == -1L) {
+            return true;
         }
 
-        return true;
+        // the side to move usually has a move, which settles it without looking at the other side
+        return legalMoves(currentTurn()) == 0 && legalMoves(nextTurn()) == 0;
     }
 
-    private int findAllPossible(char piece) {
-
-        int total = 0;
-
-        for (int r = 0; r < SIZE; r++) {
-            for (int c = 0; c < SIZE; c++) {
-                total += findMaxPieces(r, c, piece);
-            }
+    // pre: none
+    // post: returns whether the side to move has no move but the game is not over
+    public boolean mustPass() {
+        if (wide != null) {
+            return WideBitBoard.isEmpty(wideLegalMoves(currentTurn())) && !WideBitBoard.isEmpty(wideLegalMoves(nextTurn()));
         }
 
-        return total;
+        return legalMoves(currentTurn()) == 0 && legalMoves(nextTurn()) != 0;
     }
 
     // pre: none
     // post: returns the number of times 'piece' occurs on the board
     public int countPieces(char piece) {
-        int count = 0;
-
-        for (int row = 0; row < board.length; row++) {
-            for (int col = 0; col < board[row].length; col++) {
-                if (board[row][col] == piece) {
-                    count++;
-                }
+        if (wide != null) {
+            if (piece == BLACK_PIECE) {
+                return WideBitBoard.count(wideBlack);
+            } else if (piece == WHITE_PIECE) {
+                return WideBitBoard.count(wideWhite);
+            } else if (piece == BLANK_PIECE) {
+                return wide.squares() - WideBitBoard.count(wideBlack) - WideBitBoard.count(wideWhite);
             }
+
+            return 0;
         }
 
-        return count;
+        if (piece == BLACK_PIECE) {
+            return BitBoard.count(black);
+        } else if (piece == WHITE_PIECE) {
+            return BitBoard.count(white);
+        } else if (piece == BLANK_PIECE) {
+            return BitBoard.SQUARES - BitBoard.count(black | white);
+        }
+
+        return 0;
     }
 
     public void printBoard() {
         if (showMoves) {
-            for (int r = 0; r < SIZE; r++) {
-                for (int c = 0; c < SIZE; c++) {
-                    if (canBePlaced(r, c, currentTurn())) {
-                        board[r][c] = TEMP_PIECE;
-                    }
-                }
-            }
-
-            System.out.println(this);
-
-            for (int r = 0; r < SIZE; r++) {
-                for (int c = 0; c < SIZE; c++) {
-                    if (board[r][c] == TEMP_PIECE) {
-                        board[r][c] = BLANK_PIECE;
-                    }
-                }
-            }
-
+            System.out.println(wide != null? toString(wideLegalMoves(currentTurn())): toString(legalMoves(currentTurn())));
         } else {
             System.out.println(this);
         }
@@ -324,16 +715,37 @@ public class OthelloBoard implements OthelloConstants {
     // pre: none
     // post: prints the board
     public String toString() {
+        return wide != null? toString(null): toString(0);
+    }
+
+    // pre: none
+    // post: prints a board of another size than 8 x 8, drawing every square in 'marked' as a
+    //  temporary piece; columns and rows past 9 are numbered from a
+    private String toString(long[] marked) {
         StringBuilder output = new StringBuilder();
 
-        output.append("  0 1 2 3 4 5 6 7\n");
-        // print out the current contents of the board
-        for (int row = 0; row < board.length; row++) {
+        output.append(' ');
+        for (int col = 0; col < size; col++) {
+            output.append(' ').append(Character.forDigit(col, size));
+        }
+        output.append('\n');
+
+        for (int row = 0; row < size; row++) {
+
+            output.append(Character.forDigit(row, size));
+            for (int col = 0; col < size; col++) {
+                int square = wide.square(row, col);
 
-            output.append(row);
-            for (int col = 0; col < board[row].length; col++) {
                 output.append(' ');
-                output.append(board[row][col]);
+                if (WideBitBoard.get(wideBlack, square)) {
+                    output.append(BLACK_PIECE);
+                } else if (WideBitBoard.get(wideWhite, square)) {
+                    output.append(WHITE_PIECE);
+                } else if (marked != null && WideBitBoard.get(marked, square)) {
+                    output.append(TEMP_PIECE);
+                } else {
+                    output.append(BLANK_PIECE);
+                }
             }
 
             output.append('\n');
@@ -342,49 +754,34 @@ public class OthelloBoard implements OthelloConstants {
         return output.toString();
     }
 
-    private class MoveVector {
-        private int startX;
-        private int startY;
-        private int endX;
-        private int endY;
+    // pre: none
+    // post: prints the board, drawing every square in 'marked' as a temporary piece
+    private String toString(long marked) {
+        StringBuilder output = new StringBuilder();
 
-        public MoveVector(int startX, int startY, int endX, int endY) {
-            this.startX = startX;
-            this.startY = startY;
-            this.endX = endX;
-            this.endY = endY;
-        }
+        output.append("  0 1 2 3 4 5 6 7\n");
+        // print out the current contents of the board
+        for (int row = 0; row < SIZE; row++) {
 
-        public int normalizedX() {
-            if (endX - startX == 0) {
-                return 0;
-            } else {
-                return endX - startX > 0? 1: -1;
-            }
-        }
+            output.append(row);
+            for (int col = 0; col < SIZE; col++) {
+                long square = BitBoard.bit(row, col);
 
-        public int normalizedY() {
-            if (endY - startY == 0) {
-                return 0;
-            } else {
-                return endY - startY > 0? 1: -1;
+                output.append(' ');
+                if ((black & square) != 0) {
+                    output.append(BLACK_PIECE);
+                } else if ((white & square) != 0) {
+                    output.append(WHITE_PIECE);
+                } else if ((marked & square) != 0) {
+                    output.append(TEMP_PIECE);
+                } else {
+                    output.append(BLANK_PIECE);
+                }
             }
-        }
 
-        public int displacementX() {
-            return Math.abs(startX - endX);
-        }
-
-        public int displacementY() {
-            return Math.abs(startY - endY);
-        }
-
-        public int maxDisplacement() {
-            return Math.max(displacementX(), displacementY());
+            output.append('\n');
         }
 
-        public String toString() {
-            return "(" + startX + ", " + startY + ") -> (" + endX + ", " + endY + ")";
-        }
+        return output.toString();
     }
-}
\ No newline at end of file
+}
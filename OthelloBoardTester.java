@@ -1,74 +1,65 @@
-public class OthelloBoardTester {
-    public static void main(String[] args) {
-
-        // set rules for Othello board
-        OthelloBoard board = new OthelloBoard();
-        board.showMoves(false);
+import java.io.IOException;
+import java.nio.file.Paths;
 
-        // set rules for OthelloAI bots
-        OthelloAI ai = new OthelloAI(OthelloConstants.BLACK_PIECE);
-        OthelloAI otherAI = new OthelloAI(OthelloConstants.WHITE_PIECE);
-        ai.showMessages(false);
-        otherAI.showMessages(false);
+public class OthelloBoardTester {
+    public static void main(String[] args) throws InterruptedException, IOException {
 
         int N = 1_000_000; // game repetitions
         int moduloMessage = 100_000; // messages sent out to console
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = 1;
+        String recordFile = null;
 
         // check if args passed into command line
-        // first argument will be N, second argument will be moduloMessage
-        if(args.length == 2) {
+        // first argument will be N, second argument will be moduloMessage,
+        // optional third and fourth arguments are the thread count and the random seed,
+        // an optional fifth argument is a file to write every game to
+        if (args.length >= 2) {
             try {
                 N = Integer.parseInt(args[0]);
                 moduloMessage = Integer.parseInt(args[1]);
+
+                if (args.length >= 3) {
+                    threads = Integer.parseInt(args[2]);
+                }
+                if (args.length >= 4) {
+                    seed = Long.parseLong(args[3]);
+                }
+                if (args.length >= 5) {
+                    recordFile = args[4];
+                }
             } catch (Exception e) {
                 System.out.println("Something went wrong with the formatting");
                 System.out.println("Going back to default settings");
             }
         }
 
-        int blackWins = 0;
-        int whiteWins = 0;
-
-        // repeat game N times
-        for(int i = 1; i <= N; i++) {
-            board.resetBoard();
+        // repeat game N times across the worker threads
+        SelfPlayRunner runner = new SelfPlayRunner(threads, seed);
+        SelfPlayRunner.Results results;
 
-            while (!board.isGameOver()) {
-
-                // let AI play until the game is over
-                if (ai.getPiece() == board.currentTurn()) {
-                    ai.playPiece(board);
-                } else {
-                    otherAI.playPiece(board);
-                }
-
-                // switch turns
-                board.switchTurns();
-            }
-
-            // get the total amount of black and white pieces currently on the board
-            int blackCount = board.countPieces(ai.getPiece());
-            int whiteCount = board.countPieces(otherAI.getPiece());
-
-            // determine the winner based on the amount of pieces
-            if (blackCount > whiteCount) {
-                blackWins++;
-            }
-            if (whiteCount > blackCount) {
-                whiteWins++;
-            }
-
-            // display message to tester
-            if (i % moduloMessage == 0) {
-                System.out.printf("%d games played so far...\n", i);
+        if (recordFile == null) {
+            results = runner.run(N, moduloMessage);
+        } else {
+            try (GameRecordWriter records = new GameRecordWriter(Paths.get(recordFile))) {
+                runner.setGameRecords(records);
+                results = runner.run(N, moduloMessage);
             }
+            System.out.printf("Wrote %d games to %s\n", results.getGames(), recordFile);
         }
 
+        long blackWins = results.getBlackWins();
+        long whiteWins = results.getWhiteWins();
+
         // show test results
-        System.out.printf("We ran %d tests.\n", N);
+        System.out.printf("We ran %d tests on %d threads with seed %d.\n", N, threads, seed);
         System.out.println("Here are the results!");
         System.out.printf("White wins (%.2f%%): %d\n", 100 * ((double) whiteWins) / N, whiteWins);
         System.out.printf("Black wins (%.2f%%): %d\n", 100 * ((double) blackWins) / N, blackWins);
-        System.out.printf("Ties wins: %d\n", N - (whiteWins + blackWins));
+        System.out.printf("Ties wins: %d\n", results.getTies());
+        System.out.printf("Games per second: %.0f\n", results.gamesPerSecond());
+        if (Metrics.ENABLED) {
+            System.out.print("Engine metrics:\n" + Metrics.report());
+        }
     }
 }
@@ -4,4 +4,5 @@ public interface OthelloConstants {
     char BLANK_PIECE = '-';
     char TEMP_PIECE = '*';
     int SIZE = 8;
+    int PASS = -1;
 }
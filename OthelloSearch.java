@@ -0,0 +1,425 @@
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Negamax search with alpha-beta pruning and iterative deepening.
+//
+// The search walks the tree with OthelloBoard.makeMove/undoMove, so the board
+// passed in is modified while searching but is always handed back in the
+// same state. Every buffer is allocated once per searcher, so one searcher
+// should only be used by one thread at a time.
+public class OthelloSearch implements OthelloConstants {
+
+    // scores are from the point of view of the side to move
+    public static final int INFINITY = 1_000_000;
+    public static final int WIN = 100_000;
+
+    private static final int MAX_PLY = 128;
+
+    // static value of owning each square, used by the evaluation and for move ordering
+    static final int[] SQUARE_VALUES = {
+        100, -20,  10,   5,   5,  10, -20, 100,
+        -20, -50,  -2,  -2,  -2,  -2, -50, -20,
+         10,  -2,  -1,  -1,  -1,  -1,  -2,  10,
+          5,  -2,  -1,  -1,  -1,  -1,  -2,   5,
+          5,  -2,  -1,  -1,  -1,  -1,  -2,   5,
+         10,  -2,  -1,  -1,  -1,  -1,  -2,  10,
+        -20, -50,  -2,  -2,  -2,  -2, -50, -20,
+        100, -20,  10,   5,   5,  10, -20, 100
+    };
+
+    static final int MOBILITY_WEIGHT = 8;
+
+    // how many nodes to search between checks of the clock
+    private static final int CLOCK_CHECK_INTERVAL = 1024;
+
+    // per-ply move lists so that searching does not allocate
+    private final int[][] moveLists = new int[MAX_PLY][BitBoard.SQUARES];
+    private final int[][] moveScores = new int[MAX_PLY][BitBoard.SQUARES];
+
+    private final TranspositionTable table;
+
+    // evaluation used at the leaves, the square values and mobility of evaluate(board) when null
+    private PatternWeights weights;
+
+    private int maxDepth;
+    private int startDepth;
+    private long deadline;
+    private volatile boolean stopped;
+
+    // set by whoever runs several searches together to stop all of them, or null
+    private AtomicBoolean stopSignal;
+
+    // results of the last call to search
+    private long nodes;
+
+    // table lookups of the current search, counted only for Metrics
+    private long tableProbes;
+    private long tableHits;
+    private int depthReached;
+    private int bestScore;
+    private long elapsedNanos;
+
+    public OthelloSearch() {
+        this(new TranspositionTable(16));
+    }
+
+    public OthelloSearch(TranspositionTable table) {
+        this.table = table;
+        maxDepth = 60;
+        startDepth = 1;
+    }
+
+    public TranspositionTable getTable() {
+        return table;
+    }
+
+    public void setMaxDepth(int maxDepth) {
+        if (maxDepth < 1 || maxDepth >= MAX_PLY) {
+            throw new IllegalArgumentException("max depth must be between 1 and " + (MAX_PLY - 1));
+        }
+
+        this.maxDepth = maxDepth;
+    }
+
+    // pre: 1 <= depth < 128
+    // post: iterative deepening starts at 'depth' instead of 1. ParallelSearch starts its
+    //  helpers a ply deeper than its main search so they do not all repeat the same work.
+    public void setStartDepth(int depth) {
+        if (depth < 1 || depth >= MAX_PLY) {
+            throw new IllegalArgumentException("start depth must be between 1 and " + (MAX_PLY - 1));
+        }
+
+        startDepth = depth;
+    }
+
+    // pre: none
+    // post: the search also stops, within CLOCK_CHECK_INTERVAL nodes, whenever 'signal' is
+    //  true (null for no signal). One signal can stop several searches at once.
+    public void setStopSignal(AtomicBoolean signal) {
+        stopSignal = signal;
+    }
+
+    // pre: none
+    // post: scores leaves with 'weights' from now on, or with evaluate(board) if null.
+    //  Scores from different evaluations do not mix, so the table should be cleared.
+    public void setWeights(PatternWeights weights) {
+        this.weights = weights;
+    }
+
+    // pre: none
+    // post: asks a running search (from another thread) to stop as soon as possible
+    public void stop() {
+        stopped = true;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public int getDepthReached() {
+        return depthReached;
+    }
+
+    public int getBestScore() {
+        return bestScore;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    // pre: timeLimitMillis > 0
+    // post: returns the best square (row * 8 + col) for the side to move, or PASS if it has no move.
+    //  Deeper and deeper searches are run until the time limit runs out; the result of the
+    //  deepest search that finished is returned and getDepthReached tells its depth. If not
+    //  even the first depth finished, the best move scored before the stop is returned (the
+    //  first in move order if none was) and getDepthReached is 0.
+    public int search(OthelloBoard board, long timeLimitMillis) {
+        long start = System.nanoTime();
+        deadline = start + timeLimitMillis * 1_000_000;
+        stopped = false;
+        nodes = 0;
+        tableProbes = 0;
+        tableHits = 0;
+        depthReached = 0;
+        bestScore = 0;
+
+        int[] rootMoves = moveLists[0];
+        int count = board.legalMoves(board.currentTurn(), rootMoves);
+
+        if (count == 0) {
+            elapsedNanos = System.nanoTime() - start;
+            return PASS;
+        }
+
+        // pattern weights need the board to keep its pattern codes while searching
+        boolean tracked = board.tracksPatterns();
+        if (weights != null && !tracked) {
+            board.trackPatterns(true);
+        }
+
+        orderMoves(board, rootMoves, moveScores[0], count, PASS);
+
+        int bestMove = rootMoves[0];
+        int empties = board.countPieces(BLANK_PIECE);
+
+        int firstDepth = Math.min(startDepth, maxDepth);
+
+        for (int depth = firstDepth; depth <= maxDepth; depth++) {
+            int alpha = -INFINITY;
+            int iterationBest = PASS;
+
+            for (int i = 0; i < count; i++) {
+                board.makeMove(rootMoves[i]);
+                int score = -negamax(board, depth - 1, 1, -INFINITY, -alpha);
+                board.undoMove();
+
+                // the move searched when the stop came has a made up score
+                if (stopped) {
+                    break;
+                }
+
+                if (score > alpha) {
+                    alpha = score;
+                    iterationBest = rootMoves[i];
+                }
+            }
+
+            if (stopped) {
+                // better than nothing when no depth finished, but not counted as one
+                if (depthReached == 0 && iterationBest != PASS) {
+                    bestMove = iterationBest;
+                }
+                break;
+            }
+
+            bestMove = iterationBest;
+            bestScore = alpha;
+            depthReached = depth;
+
+            // only a finished iteration gets here, so its score is real and can be remembered
+            table.store(board.hashKey(), depth, TranspositionTable.EXACT, bestScore, bestMove);
+
+            // search the best move first on the next iteration
+            moveToFront(rootMoves, count, bestMove);
+
+            // nothing more to learn once the search reaches the end of the game
+            if (depth >= empties || Math.abs(bestScore) >= WIN) {
+                break;
+            }
+        }
+
+        if (!tracked) {
+            board.trackPatterns(false);
+        }
+
+        if (Metrics.ENABLED) {
+            Metrics.NODES.add(nodes);
+            Metrics.TABLE_PROBES.add(tableProbes);
+            Metrics.TABLE_HITS.add(tableHits);
+        }
+
+        elapsedNanos = System.nanoTime() - start;
+        return bestMove;
+    }
+
+    private int negamax(OthelloBoard board, int depth, int ply, int alpha, int beta) {
+        nodes++;
+
+        if ((nodes % CLOCK_CHECK_INTERVAL) == 0
+                && (System.nanoTime() > deadline || (stopSignal != null && stopSignal.get()))) {
+            stopped = true;
+        }
+        if (stopped) {
+            return 0;
+        }
+
+        char me = board.currentTurn();
+        char other = board.nextTurn();
+        long myMoves = board.legalMoves(me);
+
+        if (myMoves == 0) {
+            if (board.legalMoves(other) == 0) {
+                return finalScore(board, me, other);
+            }
+
+            // the side to move has to pass
+            board.makeMove(PASS);
+            int score = -negamax(board, depth, ply + 1, -beta, -alpha);
+            board.undoMove();
+            return score;
+        }
+
+        if (depth == 0 || ply >= MAX_PLY - 1) {
+            return weights == null? evaluate(board): weights.evaluate(board);
+        }
+
+        // a result from an earlier search of this position may settle it or at least narrow the window
+        long key = board.hashKey();
+        long entry = table.probe(key);
+        int hashMove = PASS;
+
+        if (Metrics.ENABLED) {
+            tableProbes++;
+            tableHits += entry != TranspositionTable.MISS? 1: 0;
+        }
+
+        if (entry != TranspositionTable.MISS) {
+            hashMove = TranspositionTable.move(entry);
+
+            if (TranspositionTable.depth(entry) >= depth) {
+                int score = TranspositionTable.score(entry);
+                int bound = TranspositionTable.bound(entry);
+
+                if (bound == TranspositionTable.EXACT) {
+                    return score;
+                } else if (bound == TranspositionTable.LOWER_BOUND) {
+                    alpha = Math.max(alpha, score);
+                } else {
+                    beta = Math.min(beta, score);
+                }
+
+                if (alpha >= beta) {
+                    return score;
+                }
+            }
+        }
+
+        int[] moves = moveLists[ply];
+        int count = board.legalMoves(me, moves);
+        if (depth > 2) {
+            orderMoves(board, moves, moveScores[ply], count, hashMove);
+        } else if (hashMove != PASS) {
+            moveToFront(moves, count, hashMove);
+        }
+
+        int originalAlpha = alpha;
+        int best = -INFINITY;
+        int bestMove = PASS;
+        for (int i = 0; i < count; i++) {
+            board.makeMove(moves[i]);
+            int score = -negamax(board, depth - 1, ply + 1, -beta, -alpha);
+            board.undoMove();
+
+            if (score > best) {
+                best = score;
+                bestMove = moves[i];
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        // a stopped search returns made up scores, which must not be remembered
+        if (!isStopped()) {
+            int bound;
+            if (best <= originalAlpha) {
+                bound = TranspositionTable.UPPER_BOUND;
+            } else if (best >= beta) {
+                bound = TranspositionTable.LOWER_BOUND;
+            } else {
+                bound = TranspositionTable.EXACT;
+            }
+
+            table.store(key, depth, bound, best, bestMove);
+        }
+
+        return best;
+    }
+
+    // post: returns whether this search was stopped or told to stop, even if it has not
+    //  noticed yet; every score from then on may be made up
+    private boolean isStopped() {
+        return stopped || (stopSignal != null && stopSignal.get());
+    }
+
+    // pre: neither side can move
+    // post: returns a score that prefers any win over any non-terminal position
+    static int finalScore(OthelloBoard board, char me, char other) {
+        int difference = board.countPieces(me) - board.countPieces(other);
+
+        if (difference > 0) {
+            return WIN + difference;
+        } else if (difference < 0) {
+            return -WIN + difference;
+        }
+
+        return 0;
+    }
+
+    // pre: none
+    // post: returns a static estimate of the position for the side to move
+    public static int evaluate(OthelloBoard board) {
+        char me = board.currentTurn();
+        char other = board.nextTurn();
+
+        long mine = board.piecesOf(me);
+        long theirs = board.piecesOf(other);
+
+        int score = 0;
+        long pieces = mine;
+        while (pieces != 0) {
+            score += SQUARE_VALUES[Long.numberOfTrailingZeros(pieces)];
+            pieces &= pieces - 1;
+        }
+
+        pieces = theirs;
+        while (pieces != 0) {
+            score -= SQUARE_VALUES[Long.numberOfTrailingZeros(pieces)];
+            pieces &= pieces - 1;
+        }
+
+        int mobility = BitBoard.count(BitBoard.legalMoves(mine, theirs)) - BitBoard.count(BitBoard.legalMoves(theirs, mine));
+
+        return score + MOBILITY_WEIGHT * mobility;
+    }
+
+    // pre: moves holds count legal moves for the side to move
+    // post: sorts moves so the most promising come first: 'first' (if present), then by
+    //  square value, then by how few replies they leave the opponent
+    private void orderMoves(OthelloBoard board, int[] moves, int[] scores, int count, int first) {
+        char other = board.nextTurn();
+
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+
+            if (move == first) {
+                scores[i] = INFINITY;
+            } else {
+                board.makeMove(move);
+                int replies = BitBoard.count(board.legalMoves(other));
+                board.undoMove();
+
+                scores[i] = SQUARE_VALUES[move] - MOBILITY_WEIGHT * replies;
+            }
+        }
+
+        // insertion sort, the lists are short
+        for (int i = 1; i < count; i++) {
+            int move = moves[i];
+            int score = scores[i];
+            int j = i - 1;
+
+            while (j >= 0 && scores[j] < score) {
+                moves[j + 1] = moves[j];
+                scores[j + 1] = scores[j];
+                j--;
+            }
+
+            moves[j + 1] = move;
+            scores[j + 1] = score;
+        }
+    }
+
+    private static void moveToFront(int[] moves, int count, int move) {
+        for (int i = 0; i < count; i++) {
+            if (moves[i] == move) {
+                System.arraycopy(moves, 0, moves, 1, i);
+                moves[0] = move;
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,165 @@
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Lazy SMP: several OthelloSearch threads searching the same position at once.
+//
+// Every thread runs its own iterative deepening search on its own copy of the
+// board, and all of them share one TranspositionTable, which needs no locks
+// (see TranspositionTable). The threads never talk to each other directly;
+// what one thread stores, the others find, so together they fill the table
+// and reach a given depth sooner than one thread alone. Helper threads start
+// one ply deeper than the main search, every other one, so they spread out
+// over the tree instead of repeating the same work.
+//
+// The calling thread runs the main search. When it finishes, because its time
+// ran out or it reached the end of the game or its maximum depth, the helpers
+// are stopped and the move of the deepest finished search is returned.
+public class ParallelSearch implements OthelloConstants {
+
+    private final OthelloSearch[] searches;
+    private final OthelloBoard[] boards;
+    private final Future<?>[] helpers;
+    private final int[] moves; // the move each search returned
+    private final ExecutorService pool;
+    private final TranspositionTable table;
+    private final AtomicBoolean stopSignal = new AtomicBoolean();
+
+    // results of the last call to search
+    private long nodes;
+    private int depthReached;
+    private int bestScore;
+    private long elapsedNanos;
+
+    // pre: threads > 0
+    // post: creates a search that runs on 'threads' threads (the caller's and threads - 1 helpers)
+    public ParallelSearch(int threads, TranspositionTable table) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("thread count must be positive");
+        }
+
+        this.table = table;
+        searches = new OthelloSearch[threads];
+        boards = new OthelloBoard[threads];
+        helpers = new Future<?>[threads];
+        moves = new int[threads];
+
+        for (int i = 0; i < threads; i++) {
+            searches[i] = new OthelloSearch(table);
+            searches[i].setStopSignal(stopSignal);
+            searches[i].setStartDepth(1 + i % 2);
+            boards[i] = new OthelloBoard();
+        }
+
+        // helper threads are daemons so an AI that is never closed does not keep the program running
+        pool = threads == 1? null: Executors.newFixedThreadPool(threads - 1, task -> {
+            Thread thread = new Thread(task, "search-helper");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public int getThreads() {
+        return searches.length;
+    }
+
+    public TranspositionTable getTable() {
+        return table;
+    }
+
+    public void setMaxDepth(int maxDepth) {
+        for (OthelloSearch search: searches) {
+            search.setMaxDepth(maxDepth);
+        }
+    }
+
+    public void setWeights(PatternWeights weights) {
+        for (OthelloSearch search: searches) {
+            search.setWeights(weights);
+        }
+    }
+
+    // pre: none
+    // post: asks a running search (from another thread) to stop as soon as possible
+    public void stop() {
+        stopSignal.set(true);
+        for (OthelloSearch search: searches) {
+            search.stop();
+        }
+    }
+
+    // post: returns the positions visited by every thread in the last search
+    public long getNodes() {
+        return nodes;
+    }
+
+    public int getDepthReached() {
+        return depthReached;
+    }
+
+    public int getBestScore() {
+        return bestScore;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    // pre: timeLimitMillis > 0
+    // post: same as OthelloSearch.search, searching on every thread
+    public int search(OthelloBoard board, long timeLimitMillis) {
+        long start = System.nanoTime();
+        stopSignal.set(false);
+
+        for (int i = 1; i < searches.length; i++) {
+            int helper = i;
+            boards[i].copyPosition(board);
+
+            helpers[i] = pool.submit(() -> {
+                moves[helper] = searches[helper].search(boards[helper], timeLimitMillis);
+            });
+        }
+
+        moves[0] = searches[0].search(board, timeLimitMillis);
+        int best = 0;
+
+        // the main search is done, the helpers have nothing more to add
+        stopSignal.set(true);
+        nodes = searches[0].getNodes();
+
+        for (int i = 1; i < searches.length; i++) {
+            try {
+                helpers[i].get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("a search helper failed", e.getCause());
+            }
+
+            nodes += searches[i].getNodes();
+
+            // a helper that finished a deeper search knows better; only finished depths count,
+            // and a helper that was stopped before finishing any reports 0
+            if (searches[i].getDepthReached() > searches[best].getDepthReached()) {
+                best = i;
+            }
+        }
+
+        depthReached = searches[best].getDepthReached();
+        bestScore = searches[best].getBestScore();
+        elapsedNanos = System.nanoTime() - start;
+        return moves[best];
+    }
+
+    // pre: close has not been called
+    // post: stops the helper threads; the search cannot be used afterwards
+    public void close() {
+        stop();
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,232 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+// A table-driven evaluation: one weight for every code of every pattern type
+// (see Patterns) plus a weight for mobility, with a separate set of weights
+// for each stage of the game.
+//
+// A position is scored from black's point of view as the sum of the weights
+// of its pattern codes and the mobility weight times black's moves minus
+// white's moves; evaluate turns that around for white. Weights are in discs
+// of final margin and are used scaled by SCALE, so evaluate returns
+// hundredths of a disc; a single weight is limited to about 327 discs, and the
+// sum is kept below the scores OthelloSearch gives won games.
+//
+// File layout: a 16 byte header (MAGIC, VERSION, STAGES, FEATURES) followed by
+// STAGES * FEATURES floats, stage by stage. Within a stage the weights of each
+// pattern type follow each other in type order, indexed by code, and the
+// mobility weight comes last.
+public class PatternWeights implements OthelloConstants {
+
+    public static final int MAGIC = 0x4F544857; // "OTHW"
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 16;
+
+    // the game is cut into stages of STAGE_PLIES moves, each with its own weights
+    public static final int STAGE_PLIES = 6;
+    public static final int STAGES = 60 / STAGE_PLIES + 1;
+
+    public static final int SCALE = 100;
+
+    // the largest score evaluate returns, short of the scores OthelloSearch gives won games
+    public static final int MAX_SCORE = OthelloSearch.WIN - 1;
+
+    // where each type's weights start within a stage, and the number of weights per stage
+    private static final int[] TYPE_OFFSETS = new int[Patterns.TYPES];
+    public static final int MOBILITY;
+    public static final int FEATURES;
+
+    // TYPE_OFFSETS of the type of every instance, so evaluate needs one lookup per instance
+    private static final int[] INSTANCE_OFFSETS = new int[Patterns.INSTANCES];
+
+    static {
+        int offset = 0;
+        for (int type = 0; type < Patterns.TYPES; type++) {
+            TYPE_OFFSETS[type] = offset;
+            offset += Patterns.codes(type);
+        }
+
+        MOBILITY = offset;
+        FEATURES = offset + 1;
+
+        for (int i = 0; i < Patterns.INSTANCES; i++) {
+            INSTANCE_OFFSETS[i] = TYPE_OFFSETS[Patterns.type(i)];
+        }
+    }
+
+    private final float[] values;
+    // the weights as used by evaluate; shorts keep the tables small enough to stay in cache
+    private final short[] scaled;
+
+    // pre: values holds STAGES * FEATURES weights in the order of the file layout
+    // post: creates an evaluation with a copy of the weights
+    public PatternWeights(float[] values) {
+        if (values.length != STAGES * FEATURES) {
+            throw new IllegalArgumentException("expected " + STAGES * FEATURES + " weights, got " + values.length);
+        }
+
+        this.values = values.clone();
+        scaled = new short[values.length];
+
+        for (int i = 0; i < values.length; i++) {
+            // rint rounds halves the same way for either sign, so a weight and its negation
+            // stay each other's negation for the other colour
+            long weight = (long) Math.rint((double) values[i] * SCALE);
+            scaled[i] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, weight));
+        }
+    }
+
+    // pre: 0 <= type < Patterns.TYPES
+    // post: returns the index of the first weight of 'type' within a stage
+    public static int typeOffset(int type) {
+        return TYPE_OFFSETS[type];
+    }
+
+    // pre: 0 <= instance < Patterns.INSTANCES
+    // post: returns the index of the weight for code 0 of 'instance' within a stage
+    public static int instanceOffset(int instance) {
+        return INSTANCE_OFFSETS[instance];
+    }
+
+    // pre: 0 <= empties <= 64
+    // post: returns the stage of a position with 'empties' empty squares
+    public static int stage(int empties) {
+        return Math.max(0, 60 - empties) / STAGE_PLIES;
+    }
+
+    // post: returns a copy of the weights in the order of the file layout
+    public float[] toArray() {
+        return values.clone();
+    }
+
+    // pre: board.tracksPatterns() is true
+    // post: returns the value of the position for the side to move, in hundredths of a disc,
+    //  between -MAX_SCORE and MAX_SCORE
+    public int evaluate(OthelloBoard board) {
+        int[] codes = board.patternCodes();
+        int base = stage(board.countPieces(BLANK_PIECE)) * FEATURES;
+        int score = 0;
+
+        for (int i = 0; i < codes.length; i++) {
+            score += scaled[base + INSTANCE_OFFSETS[i] + codes[i]];
+        }
+
+        int mobility = BitBoard.count(board.legalMoves(BLACK_PIECE)) - BitBoard.count(board.legalMoves(WHITE_PIECE));
+        score += scaled[base + MOBILITY] * mobility;
+
+        // enough large weights add up past WIN, which the search would take for a proven win
+        score = Math.max(-MAX_SCORE, Math.min(MAX_SCORE, score));
+
+        return board.currentTurn() == BLACK_PIECE? score: -score;
+    }
+
+    // pre: none
+    // post: returns weights that add up to the square values and mobility weight of
+    //  OthelloSearch.evaluate, the same in every stage. They are a starting point for training.
+    public static PatternWeights defaults() {
+        float[] values = new float[STAGES * FEATURES];
+
+        for (int type = 0; type < Patterns.TYPES; type++) {
+            // the first instance of a type stands for all of them, the square values are symmetric
+            int instance = 0;
+            while (Patterns.type(instance) != type) {
+                instance++;
+            }
+
+            int squares = Patterns.squares(type);
+            for (int code = 0; code < Patterns.codes(type); code++) {
+                // summed in double, so that codes of the same pieces read in another order come
+                // to the same float and round to the same scaled weight
+                double weight = 0;
+                int rest = code;
+
+                for (int digit = 0; digit < squares; digit++) {
+                    int piece = rest % 3;
+                    rest /= 3;
+
+                    // a square shared by several instances gives each a share of its value
+                    int square = Patterns.square(instance, digit);
+                    double share = OthelloSearch.SQUARE_VALUES[square] / (double) (Patterns.coverage(square) * SCALE);
+
+                    if (piece == 1) {
+                        weight += share;
+                    } else if (piece == 2) {
+                        weight -= share;
+                    }
+                }
+
+                values[TYPE_OFFSETS[type] + code] = (float) weight;
+            }
+        }
+
+        values[MOBILITY] = OthelloSearch.MOBILITY_WEIGHT / (float) SCALE;
+
+        for (int stage = 1; stage < STAGES; stage++) {
+            System.arraycopy(values, 0, values, stage * FEATURES, FEATURES);
+        }
+
+        return new PatternWeights(values);
+    }
+
+    // pre: 'path' was written by save
+    // post: reads the weights from the file
+    public static PatternWeights load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size != HEADER_BYTES + 4L * STAGES * FEATURES) {
+                throw new IOException(path + " has the wrong size for a weight file");
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new IOException(path + " ended early");
+                }
+            }
+            buffer.flip();
+
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION
+                    || buffer.getInt() != STAGES || buffer.getInt() != FEATURES) {
+                throw new IOException(path + " is not a weight file for these patterns");
+            }
+
+            float[] values = new float[STAGES * FEATURES];
+            buffer.asFloatBuffer().get(values);
+            return new PatternWeights(values);
+        }
+    }
+
+    // pre: none
+    // post: writes the weights to 'path', replacing anything there
+    public void save(Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + 4 * values.length);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putInt(STAGES);
+        buffer.putInt(FEATURES);
+        buffer.asFloatBuffer().put(values);
+        buffer.clear();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    // writes the default weights, a starting point for training, to the file given
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.out.println("usage: java PatternWeights file");
+            System.exit(2);
+        }
+
+        defaults().save(Paths.get(args[0]));
+        System.out.printf("Wrote %d weights (%d stages of %d) to %s\n", STAGES * FEATURES, STAGES, FEATURES, args[0]);
+    }
+}
@@ -0,0 +1,214 @@
+import java.util.Arrays;
+
+// The board patterns used by the table-driven evaluation.
+//
+// A pattern is a fixed list of squares. Each instance of a pattern has a
+// base-3 code with one digit per square: 0 for empty, 1 for black and 2 for
+// white, the first square being the lowest digit. Every instance of a pattern
+// type is a symmetry of the first one (see Symmetry), so all of them share one
+// table of weights in PatternWeights.
+//
+// OthelloBoard keeps the codes of every instance up to date as pieces are
+// placed and flipped, so evaluating a position only has to look the codes up.
+// Nothing here allocates after class loading.
+public final class Patterns {
+
+    public static final int EDGE = 0;       // row 0
+    public static final int LINE2 = 1;      // row 1
+    public static final int LINE3 = 2;      // row 2
+    public static final int LINE4 = 3;      // row 3
+    public static final int CORNER = 4;     // the 3 x 3 block in a corner
+    public static final int DIAGONAL8 = 5;  // the long diagonals
+    public static final int DIAGONAL7 = 6;
+    public static final int DIAGONAL6 = 7;
+    public static final int DIAGONAL5 = 8;
+    public static final int DIAGONAL4 = 9;
+
+    public static final int TYPES = 10;
+
+    // the squares of the first instance of each type, as (row, col) pairs
+    private static final int[][] BASE_SQUARES = {
+        {0, 0, 0, 1, 0, 2, 0, 3, 0, 4, 0, 5, 0, 6, 0, 7},
+        {1, 0, 1, 1, 1, 2, 1, 3, 1, 4, 1, 5, 1, 6, 1, 7},
+        {2, 0, 2, 1, 2, 2, 2, 3, 2, 4, 2, 5, 2, 6, 2, 7},
+        {3, 0, 3, 1, 3, 2, 3, 3, 3, 4, 3, 5, 3, 6, 3, 7},
+        {0, 0, 0, 1, 0, 2, 1, 0, 1, 1, 1, 2, 2, 0, 2, 1, 2, 2},
+        {0, 0, 1, 1, 2, 2, 3, 3, 4, 4, 5, 5, 6, 6, 7, 7},
+        {0, 1, 1, 2, 2, 3, 3, 4, 4, 5, 5, 6, 6, 7},
+        {0, 2, 1, 3, 2, 4, 3, 5, 4, 6, 5, 7},
+        {0, 3, 1, 4, 2, 5, 3, 6, 4, 7},
+        {0, 4, 1, 5, 2, 6, 3, 7}
+    };
+
+    // number of squares and number of codes (3 ^ squares) of each type
+    private static final int[] TYPE_SQUARES = new int[TYPES];
+    private static final int[] TYPE_CODES = new int[TYPES];
+
+    // every instance: its type and its squares in digit order
+    public static final int INSTANCES;
+    private static final int[] INSTANCE_TYPES;
+    private static final int[][] INSTANCE_SQUARES;
+
+    // for each square, the instances it belongs to and the value of its digit in each
+    private static final int[][] SQUARE_INSTANCES = new int[BitBoard.SQUARES][];
+    private static final int[][] SQUARE_POWERS = new int[BitBoard.SQUARES][];
+
+    static {
+        int[] types = new int[TYPES * Symmetry.TRANSFORMS];
+        int[][] squares = new int[TYPES * Symmetry.TRANSFORMS][];
+        long[] masks = new long[TYPES * Symmetry.TRANSFORMS];
+        int count = 0;
+
+        for (int type = 0; type < TYPES; type++) {
+            int[] base = BASE_SQUARES[type];
+            TYPE_SQUARES[type] = base.length / 2;
+            TYPE_CODES[type] = power(TYPE_SQUARES[type]);
+
+            // each distinct set of squares the symmetries give is one instance
+            for (int t = 0; t < Symmetry.TRANSFORMS; t++) {
+                int[] instance = new int[TYPE_SQUARES[type]];
+                long mask = 0;
+
+                for (int i = 0; i < instance.length; i++) {
+                    instance[i] = Symmetry.transformSquare(BitBoard.square(base[2 * i], base[2 * i + 1]), t);
+                    mask |= 1L << instance[i];
+                }
+
+                boolean seen = false;
+                for (int j = 0; j < count; j++) {
+                    seen |= masks[j] == mask;
+                }
+
+                if (!seen) {
+                    types[count] = type;
+                    squares[count] = instance;
+                    masks[count] = mask;
+                    count++;
+                }
+            }
+        }
+
+        INSTANCES = count;
+        INSTANCE_TYPES = Arrays.copyOf(types, count);
+        INSTANCE_SQUARES = Arrays.copyOf(squares, count);
+
+        for (int square = 0; square < BitBoard.SQUARES; square++) {
+            int belongs = 0;
+            for (int i = 0; i < INSTANCES; i++) {
+                belongs += (masks[i] >>> square) & 1;
+            }
+
+            SQUARE_INSTANCES[square] = new int[belongs];
+            SQUARE_POWERS[square] = new int[belongs];
+        }
+
+        int[] filled = new int[BitBoard.SQUARES];
+        for (int i = 0; i < INSTANCES; i++) {
+            for (int digit = 0; digit < INSTANCE_SQUARES[i].length; digit++) {
+                int square = INSTANCE_SQUARES[i][digit];
+                SQUARE_INSTANCES[square][filled[square]] = i;
+                SQUARE_POWERS[square][filled[square]] = power(digit);
+                filled[square]++;
+            }
+        }
+    }
+
+    private Patterns() {
+    }
+
+    private static int power(int exponent) {
+        int result = 1;
+        for (int i = 0; i < exponent; i++) {
+            result *= 3;
+        }
+        return result;
+    }
+
+    // pre: 0 <= type < TYPES
+    // post: returns how many different codes a pattern of 'type' can have
+    public static int codes(int type) {
+        return TYPE_CODES[type];
+    }
+
+    // pre: 0 <= type < TYPES
+    public static int squares(int type) {
+        return TYPE_SQUARES[type];
+    }
+
+    // pre: 0 <= square < 64
+    // post: returns how many instances 'square' belongs to
+    public static int coverage(int square) {
+        return SQUARE_INSTANCES[square].length;
+    }
+
+    // pre: 0 <= instance < INSTANCES
+    public static int type(int instance) {
+        return INSTANCE_TYPES[instance];
+    }
+
+    // pre: 0 <= instance < INSTANCES, 0 <= digit < squares(type(instance))
+    // post: returns the square that gives digit 'digit' of the instance's code
+    public static int square(int instance, int digit) {
+        return INSTANCE_SQUARES[instance][digit];
+    }
+
+    // pre: black and white do not overlap, codes holds at least INSTANCES entries
+    // post: fills codes with the code of every instance from scratch
+    public static void compute(long black, long white, int[] codes) {
+        for (int i = 0; i < INSTANCES; i++) {
+            int[] squares = INSTANCE_SQUARES[i];
+            int code = 0;
+
+            for (int digit = squares.length - 1; digit >= 0; digit--) {
+                long bit = 1L << squares[digit];
+                code = code * 3 + ((black & bit) != 0? 1: (white & bit) != 0? 2: 0);
+            }
+
+            codes[i] = code;
+        }
+    }
+
+    // pre: codes match the position before the move, 'square' was empty and 'flipped'
+    //  belonged to the other side
+    // post: updates codes for a piece of the given colour placed on 'square' flipping 'flipped'
+    public static void play(int[] codes, int square, long flipped, boolean white) {
+        int placed = white? 2: 1;
+        int[] instances = SQUARE_INSTANCES[square];
+        int[] powers = SQUARE_POWERS[square];
+
+        for (int i = 0; i < instances.length; i++) {
+            codes[instances[i]] += placed * powers[i];
+        }
+
+        // black to white adds one to a digit, white to black takes one away
+        flip(codes, flipped, white? 1: -1);
+    }
+
+    // pre: codes match the position after play(codes, square, flipped, white)
+    // post: puts the codes back to what they were before that call
+    public static void undo(int[] codes, int square, long flipped, boolean white) {
+        int placed = white? 2: 1;
+        int[] instances = SQUARE_INSTANCES[square];
+        int[] powers = SQUARE_POWERS[square];
+
+        for (int i = 0; i < instances.length; i++) {
+            codes[instances[i]] -= placed * powers[i];
+        }
+
+        flip(codes, flipped, white? -1: 1);
+    }
+
+    private static void flip(int[] codes, long flipped, int change) {
+        while (flipped != 0) {
+            int square = Long.numberOfTrailingZeros(flipped);
+            int[] instances = SQUARE_INSTANCES[square];
+            int[] powers = SQUARE_POWERS[square];
+
+            for (int i = 0; i < instances.length; i++) {
+                codes[instances[i]] += change * powers[i];
+            }
+
+            flipped &= flipped - 1;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Counts the leaves of the game tree to a fixed depth ("perft").
+//
+// A pass counts as a move, and a finished game counts as one leaf however
+// deep it was reached. From the starting position this gives the published
+// Othello perft numbers, so a mismatch means move generation or flipping is
+// broken somewhere.
+//
+//   java Perft depth [threads] [positionFile]
+//
+// positionFile holds 8 rows of '-', 'W' and 'B' followed by a line with the
+// side to move ('B' or 'W'); without it the starting position is used.
+public class Perft implements OthelloConstants {
+
+    // leaf counts from the starting position for depths 0 to 14
+    private static final long[] KNOWN = {
+        1L, 4L, 12L, 56L, 244L, 1396L, 8200L, 55092L, 390216L, 3005288L, 24571284L,
+        212258800L, 1939886636L, 18429641748L, 184042084512L
+    };
+
+    // below this depth a parallel search stops splitting and counts on one thread
+    private static final int SPLIT_DEPTH = 5;
+
+    private Perft() {
+    }
+
+    // pre: depth >= 0
+    // post: returns the number of leaves 'depth' plies below the board's position;
+    //  the board is back in its original state afterwards
+    public static long perft(OthelloBoard board, int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+
+        long moves = board.legalMoves(board.currentTurn());
+
+        if (moves == 0) {
+            if (board.legalMoves(board.nextTurn()) == 0) {
+                return 1; // the game is over
+            }
+
+            board.makeMove(PASS);
+            long leaves = perft(board, depth - 1);
+            board.undoMove();
+            return leaves;
+        }
+
+        // every move one ply from the end is a leaf, no need to play them
+        if (depth == 1) {
+            return Long.bitCount(moves);
+        }
+
+        long leaves = 0;
+        while (moves != 0) {
+            board.makeMove(Long.numberOfTrailingZeros(moves));
+            leaves += perft(board, depth - 1);
+            board.undoMove();
+
+            moves &= moves - 1;
+        }
+
+        return leaves;
+    }
+
+    // pre: depth >= 0
+    // post: same as perft, but the top of the tree is split into fork/join tasks on 'pool'
+    public static long parallelPerft(OthelloBoard board, int depth, ForkJoinPool pool) {
+        return pool.invoke(new PerftTask(new OthelloBoard(board), depth));
+    }
+
+    private static class PerftTask extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+
+        private final OthelloBoard board;
+        private final int depth;
+
+        PerftTask(OthelloBoard board, int depth) {
+            this.board = board;
+            this.depth = depth;
+        }
+
+        protected Long compute() {
+            if (depth <= SPLIT_DEPTH) {
+                return perft(board, depth);
+            }
+
+            long moves = board.legalMoves(board.currentTurn());
+
+            if (moves == 0) {
+                if (board.legalMoves(board.nextTurn()) == 0) {
+                    return 1L;
+                }
+
+                board.makeMove(PASS);
+                return new PerftTask(board, depth - 1).compute();
+            }
+
+            // one subtask per move, each with its own copy of the board
+            PerftTask[] tasks = new PerftTask[Long.bitCount(moves)];
+            for (int i = 0; i < tasks.length; i++) {
+                OthelloBoard child = new OthelloBoard(board);
+                child.makeMove(Long.numberOfTrailingZeros(moves));
+                tasks[i] = new PerftTask(child, depth - 1);
+
+                moves &= moves - 1;
+            }
+
+            invokeAll(tasks);
+
+            long leaves = 0;
+            for (PerftTask task: tasks) {
+                leaves += task.join();
+            }
+
+            return leaves;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int depth = 9;
+        int threads = Runtime.getRuntime().availableProcessors();
+        OthelloBoard board = new OthelloBoard();
+        boolean fromStart = true;
+
+        try {
+            if (args.length >= 1) {
+                depth = Integer.parseInt(args[0]);
+            }
+            if (args.length >= 2) {
+                threads = Integer.parseInt(args[1]);
+            }
+            if (args.length >= 3) {
+                board = readPosition(args[2]);
+                fromStart = false;
+            }
+        } catch (RuntimeException e) {
+            System.out.println("Something went wrong with the formatting: " + e.getMessage());
+            System.out.println("usage: java Perft depth [threads] [positionFile]");
+            System.exit(2);
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        boolean allMatched = true;
+
+        System.out.printf("%5s %16s %16s %16s\n", "depth", "leaves", "leaves/sec", "parallel/sec");
+        for (int d = 1; d <= depth; d++) {
+            long start = System.nanoTime();
+            long leaves = perft(board, d);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            start = System.nanoTime();
+            long parallelLeaves = parallelPerft(board, d, pool);
+            double parallelSeconds = (System.nanoTime() - start) / 1e9;
+
+            String check = "";
+            if (parallelLeaves != leaves) {
+                check = " PARALLEL MISMATCH (" + parallelLeaves + ")";
+                allMatched = false;
+            } else if (fromStart && d < KNOWN.length) {
+                boolean matched = leaves == KNOWN[d];
+                check = matched? " ok": " WRONG, expected " + KNOWN[d];
+                allMatched &= matched;
+            }
+
+            System.out.printf("%5d %16d %16.0f %16.0f%s\n", d, leaves, leaves / seconds, leaves / parallelSeconds, check);
+        }
+
+        pool.shutdown();
+
+        if (!allMatched) {
+            System.exit(1);
+        }
+    }
+
+    private static OthelloBoard readPosition(String path) throws IOException {
+        List<String> lines = Files.readAllLines(Paths.get(path), StandardCharsets.UTF_8);
+
+        if (lines.size() < SIZE + 1) {
+            throw new IllegalArgumentException("position file needs 8 rows and a side to move");
+        }
+
+        String[] rows = lines.subList(0, SIZE).toArray(new String[0]);
+        char turn = lines.get(SIZE).trim().charAt(0);
+
+        return PositionFixtures.parse(rows, turn);
+    }
+}
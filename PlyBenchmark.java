@@ -0,0 +1,210 @@
+import java.util.Random;
+
+// Plays the same random games three ways and reports plies per second:
+//  - on CharArrayBoard, the original board, the way OthelloBoardTester used to
+//  - on raw bitboards, recomputing both sides' moves every ply like the
+//    uncached isGameOver did, then again to choose and to check the move
+//    (keeping a Zobrist hash too, so only the caching differs)
+//  - on OthelloBoard, which caches each side's moves until the pieces change
+// and then plays random games on OthelloBoards of every size from 8 x 8 to
+// 16 x 16, the larger ones running on WideBitBoard, reporting plies per
+// second for each.
+public class PlyBenchmark implements OthelloConstants {
+    public static void main(String[] args) {
+
+        int N = 20_000; // games per measurement
+        long seed = 1;
+
+        // check if args passed into command line
+        // first argument will be N, second argument will be the random seed
+        if (args.length == 2) {
+            try {
+                N = Integer.parseInt(args[0]);
+                seed = Long.parseLong(args[1]);
+            } catch (Exception e) {
+                System.out.println("Something went wrong with the formatting");
+                System.out.println("Going back to default settings");
+            }
+        }
+
+        // warm up every variant before measuring
+        charArrayGames(N / 10 + 1, seed);
+        uncachedGames(N / 10 + 1, seed);
+        cachedGames(N / 10 + 1, seed);
+
+        // the char[][] board is much slower, so it plays fewer games
+        report("char[][] board", N / 10 + 1, seed, 0);
+        report("bitboard, no mobility cache", N, seed, 1);
+        report("OthelloBoard, cached mobility", N, seed, 2);
+
+        // larger boards take more plies per game, so they play fewer games
+        int[] sizes = {8, 10, 12, 16};
+        for (int size: sizes) {
+            sizedGames(size, N * 64 / (size * size * 4) / 2 + 1, seed);
+        }
+
+        for (int size: sizes) {
+            int games = N * 64 / (size * size * 4) + 1;
+            long start = System.nanoTime();
+            long plies = sizedGames(size, games, seed);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%-32s %,12.0f plies/sec (%d games)\n",
+                "OthelloBoard, " + size + " x " + size, plies / seconds, games);
+        }
+    }
+
+    private static void report(String name, int games, long seed, int variant) {
+        long start = System.nanoTime();
+        long plies;
+
+        if (variant == 0) {
+            plies = charArrayGames(games, seed);
+        } else if (variant == 1) {
+            plies = uncachedGames(games, seed);
+        } else {
+            plies = cachedGames(games, seed);
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-32s %,12.0f plies/sec (%d games)\n", name, plies / seconds, games);
+    }
+
+    private static long charArrayGames(int games, long seed) {
+        Random random = new Random(seed);
+        CharArrayBoard board = new CharArrayBoard();
+        int[] moves = new int[BitBoard.SQUARES];
+        long plies = 0;
+
+        for (int i = 0; i < games; i++) {
+            board.resetBoard();
+
+            while (!board.isGameOver()) {
+                char piece = board.currentTurn();
+                int count = 0;
+
+                for (int r = 0; r < SIZE; r++) {
+                    for (int c = 0; c < SIZE; c++) {
+                        if (board.canBePlaced(r, c, piece)) {
+                            moves[count++] = BitBoard.square(r, c);
+                        }
+                    }
+                }
+
+                if (count > 0) {
+                    int move = moves[random.nextInt(count)];
+                    board.placePiece(BitBoard.row(move), BitBoard.col(move), piece);
+                }
+
+                board.switchTurns();
+                plies++;
+            }
+        }
+
+        return plies;
+    }
+
+    private static long uncachedGames(int games, long seed) {
+        Random random = new Random(seed);
+        long plies = 0;
+        long hashes = 0;
+
+        for (int i = 0; i < games; i++) {
+            long player = BitBoard.START_BLACK;
+            long opponent = BitBoard.START_WHITE;
+            long hash = Zobrist.hash(player, opponent, false);
+
+            // isGameOver
+            while (BitBoard.legalMoves(opponent, player) != 0 || BitBoard.legalMoves(player, opponent) != 0) {
+
+                // choosing a move
+                long moves = BitBoard.legalMoves(player, opponent);
+
+                if (moves != 0) {
+                    int move = nthSquare(moves, random.nextInt(Long.bitCount(moves)));
+
+                    // placePiece checking the move is legal
+                    if ((BitBoard.legalMoves(player, opponent) & (1L << move)) == 0) {
+                        throw new IllegalStateException("picked an illegal move");
+                    }
+
+                    long flipped = BitBoard.flips(player, opponent, move);
+                    player |= (1L << move) | flipped;
+                    opponent &= ~flipped;
+                    hash ^= Zobrist.BLACK[move] ^ Zobrist.flipKey(flipped);
+                }
+
+                long swap = player;
+                player = opponent;
+                opponent = swap;
+                hash ^= Zobrist.SIDE;
+                plies++;
+            }
+
+            hashes += hash;
+        }
+
+        // use the hashes so the JIT cannot drop them
+        return hashes == 42? plies + 1: plies;
+    }
+
+    private static long cachedGames(int games, long seed) {
+        Random random = new Random(seed);
+        OthelloBoard board = new OthelloBoard();
+        long plies = 0;
+
+        for (int i = 0; i < games; i++) {
+            board.resetBoard();
+
+            while (!board.isGameOver()) {
+                char piece = board.currentTurn();
+                long moves = board.legalMoves(piece);
+
+                if (moves != 0) {
+                    int move = nthSquare(moves, random.nextInt(Long.bitCount(moves)));
+                    board.placePiece(BitBoard.row(move), BitBoard.col(move), piece);
+                }
+
+                board.switchTurns();
+                plies++;
+            }
+        }
+
+        return plies;
+    }
+
+    // the same games on a board of any size, through the calls that work on every size
+    private static long sizedGames(int size, int games, long seed) {
+        Random random = new Random(seed);
+        OthelloBoard board = new OthelloBoard(size);
+        int[] moves = new int[size * size];
+        long plies = 0;
+
+        for (int i = 0; i < games; i++) {
+            board.resetBoard();
+
+            while (!board.isGameOver()) {
+                char piece = board.currentTurn();
+                int count = board.legalMoves(piece, moves);
+
+                if (count > 0) {
+                    int move = moves[random.nextInt(count)];
+                    board.placePiece(move / size, move % size, piece);
+                }
+
+                board.switchTurns();
+                plies++;
+            }
+        }
+
+        return plies;
+    }
+
+    // post: returns the square of the n-th set bit of moves, counting from 0
+    private static int nthSquare(long moves, int n) {
+        for (int i = 0; i < n; i++) {
+            moves &= moves - 1;
+        }
+
+        return Long.numberOfTrailingZeros(moves);
+    }
+}
@@ -0,0 +1,172 @@
+// An Othello position that never changes: the pieces, the side to move and its hash.
+//
+// OthelloBoard is built to be changed in place and caches its legal moves as
+// it is read, so one board cannot be shared between threads. A Position can:
+// every field is final, so once a thread has a reference it sees the whole
+// position, with no copying or locking. Playing a move gives a new Position.
+//
+// Two positions are equal when they have the same pieces and side to move.
+// hashCode comes from the Zobrist hash, the same key OthelloBoard.hashKey()
+// gives for the position, which is worked out move by move as on the board.
+public final class Position implements OthelloConstants {
+
+    public static final Position START = new Position(BitBoard.START_BLACK, BitBoard.START_WHITE, false,
+        Zobrist.hash(BitBoard.START_BLACK, BitBoard.START_WHITE, false));
+
+    private final long black;
+    private final long white;
+    private final boolean isWhiteTurn;
+    private final long hash;
+
+    // pre: black and white do not overlap, turn is a black or white piece
+    // post: creates the position with bit (row * 8 + col) set for each occupied square
+    public Position(long black, long white, char turn) {
+        if ((black & white) != 0) {
+            throw new IllegalArgumentException("a square cannot hold both a black and a white piece");
+        }
+
+        if (turn != BLACK_PIECE && turn != WHITE_PIECE) {
+            throw new IllegalArgumentException("turn must be either black or white piece");
+        }
+
+        this.black = black;
+        this.white = white;
+        isWhiteTurn = turn == WHITE_PIECE;
+        hash = Zobrist.hash(black, white, isWhiteTurn);
+    }
+
+    private Position(long black, long white, boolean isWhiteTurn, long hash) {
+        this.black = black;
+        this.white = white;
+        this.isWhiteTurn = isWhiteTurn;
+        this.hash = hash;
+    }
+
+    // pre: none
+    // post: returns the position on the board now; later changes to the board do not affect it
+    public static Position of(OthelloBoard board) {
+        return new Position(board.piecesOf(BLACK_PIECE), board.piecesOf(WHITE_PIECE),
+            board.currentTurn() == WHITE_PIECE, board.hashKey());
+    }
+
+    // pre: none
+    // post: returns a new board holding this position
+    public OthelloBoard toBoard() {
+        return new OthelloBoard(black, white, currentTurn());
+    }
+
+    // pre: piece must be a black or white piece
+    // post: returns the mask of squares 'piece' occupies
+    public long piecesOf(char piece) {
+        if (piece == BLACK_PIECE) {
+            return black;
+        } else if (piece == WHITE_PIECE) {
+            return white;
+        }
+
+        throw new IllegalArgumentException("piece must be either black or white piece");
+    }
+
+    public char currentTurn() {
+        return isWhiteTurn? WHITE_PIECE: BLACK_PIECE;
+    }
+
+    public char nextTurn() {
+        return isWhiteTurn? BLACK_PIECE: WHITE_PIECE;
+    }
+
+    // post: returns the same key as OthelloBoard.hashKey() for this position
+    public long hashKey() {
+        return hash;
+    }
+
+    // pre: none
+    // post: returns a mask of the squares the side to move can play on
+    public long legalMoves() {
+        return isWhiteTurn? BitBoard.legalMoves(white, black): BitBoard.legalMoves(black, white);
+    }
+
+    // pre: piece must be a black, white or blank piece
+    // post: returns how many squares hold 'piece'
+    public int countPieces(char piece) {
+        if (piece == BLANK_PIECE) {
+            return BitBoard.SQUARES - BitBoard.count(black | white);
+        }
+
+        return BitBoard.count(piecesOf(piece));
+    }
+
+    // pre: none
+    // post: returns whether neither side can move
+    public boolean isGameOver() {
+        return BitBoard.legalMoves(black, white) == 0 && BitBoard.legalMoves(white, black) == 0;
+    }
+
+    // pre: square (row * 8 + col) is a legal move for the side to move, or PASS when it has none
+    // post: returns the position after the move, with the other side to move
+    public Position play(int square) {
+        long player = isWhiteTurn? white: black;
+        long opponent = isWhiteTurn? black: white;
+
+        if (square == PASS) {
+            if (BitBoard.legalMoves(player, opponent) != 0) {
+                throw new IllegalArgumentException(currentTurn() + " cannot pass while it has moves");
+            }
+
+            return new Position(black, white, !isWhiteTurn, hash ^ Zobrist.SIDE);
+        }
+
+        if (square < 0 || square >= BitBoard.SQUARES) {
+            throw new IllegalArgumentException("cannot access square " + square);
+        }
+
+        long placed = 1L << square;
+        long flipped = ((player | opponent) & placed) == 0? BitBoard.flips(player, opponent, square): 0;
+
+        // a move that flips nothing is not a legal move
+        if (flipped == 0) {
+            throw new IllegalArgumentException(currentTurn() + " cannot be placed at ("
+                + BitBoard.row(square) + ", " + BitBoard.col(square) + ")");
+        }
+
+        long key = hash ^ Zobrist.flipKey(flipped) ^ Zobrist.SIDE;
+        if (isWhiteTurn) {
+            return new Position(black & ~flipped, white | placed | flipped, false, key ^ Zobrist.WHITE[square]);
+        }
+
+        return new Position(black | placed | flipped, white & ~flipped, true, key ^ Zobrist.BLACK[square]);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof Position)) {
+            return false;
+        }
+
+        // equal positions have equal hashes, so that check turns most others away first
+        Position position = (Position) other;
+        return hash == position.hash && black == position.black && white == position.white
+            && isWhiteTurn == position.isWhiteTurn;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    // post: returns the 64 squares row by row and the side to move, as read by BatchAnalyzer
+    @Override
+    public String toString() {
+        StringBuilder output = new StringBuilder(BitBoard.SQUARES + 2);
+
+        for (int square = 0; square < BitBoard.SQUARES; square++) {
+            long bit = 1L << square;
+            output.append((black & bit) != 0? BLACK_PIECE: (white & bit) != 0? WHITE_PIECE: BLANK_PIECE);
+        }
+
+        return output.append(' ').append(currentTurn()).toString();
+    }
+}
@@ -0,0 +1,77 @@
+import java.nio.ByteBuffer;
+
+// Compact binary encoding of positions and moves.
+//
+// A position takes 17 bytes: the black mask followed by the white mask, both
+// as big-endian longs, and a byte for the side to move (WHITE_TO_MOVE or
+// BLACK_TO_MOVE). Any position can be encoded, including ones set up by hand
+// with empty centre squares.
+//
+// A move takes one byte: the square (row * 8 + col), or PASS_BYTE for a pass.
+public final class PositionCodec implements OthelloConstants {
+
+    public static final int POSITION_BYTES = 17;
+    public static final byte PASS_BYTE = 64;
+
+    public static final byte BLACK_TO_MOVE = 0;
+    public static final byte WHITE_TO_MOVE = 1;
+
+    private PositionCodec() {
+    }
+
+    // pre: black and white do not overlap, buffer has POSITION_BYTES bytes left
+    // post: writes the position to the buffer
+    public static void encode(long black, long white, boolean isWhiteTurn, ByteBuffer buffer) {
+        if ((black & white) != 0) {
+            throw new IllegalArgumentException("a square cannot hold both a black and a white piece");
+        }
+
+        buffer.putLong(black);
+        buffer.putLong(white);
+        buffer.put(isWhiteTurn? WHITE_TO_MOVE: BLACK_TO_MOVE);
+    }
+
+    // pre: the board is 8 x 8, buffer has POSITION_BYTES bytes left
+    // post: writes the board's position and side to move to the buffer
+    public static void encode(OthelloBoard board, ByteBuffer buffer) {
+        encode(board.piecesOf(BLACK_PIECE), board.piecesOf(WHITE_PIECE), board.currentTurn() == WHITE_PIECE, buffer);
+    }
+
+    // pre: buffer holds a position written by encode
+    // post: reads the position and returns it as a new board
+    public static OthelloBoard decode(ByteBuffer buffer) {
+        long black = buffer.getLong();
+        long white = buffer.getLong();
+        byte side = buffer.get();
+
+        if (side != BLACK_TO_MOVE && side != WHITE_TO_MOVE) {
+            throw new IllegalArgumentException("bad side to move byte " + side);
+        }
+
+        return new OthelloBoard(black, white, side == WHITE_TO_MOVE? WHITE_PIECE: BLACK_PIECE);
+    }
+
+    // pre: square is between 0 and 63, or PASS
+    public static byte encodeMove(int square) {
+        if (square == PASS) {
+            return PASS_BYTE;
+        }
+        if (square < 0 || square >= BitBoard.SQUARES) {
+            throw new IllegalArgumentException("cannot encode square " + square);
+        }
+
+        return (byte) square;
+    }
+
+    // pre: move was written by encodeMove
+    public static int decodeMove(byte move) {
+        if (move == PASS_BYTE) {
+            return PASS;
+        }
+        if (move < 0 || move >= BitBoard.SQUARES) {
+            throw new IllegalArgumentException("bad move byte " + move);
+        }
+
+        return move;
+    }
+}
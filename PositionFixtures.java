@@ -0,0 +1,68 @@
+// Fixed positions used by the benchmarks, one from each stage of the game.
+// They come from seeded random games and never change, so numbers measured
+// on different builds can be compared.
+public final class PositionFixtures implements OthelloConstants {
+
+    // 10 plies in, black to move with 9 moves
+    private static final String[] OPENING = {
+        "--------",
+        "--------",
+        "--BBB---",
+        "---WW---",
+        "-WWWWW--",
+        "-WB-----",
+        "W-B-----",
+        "--------"
+    };
+
+    // 30 plies in, black to move with 11 moves
+    private static final String[] MIDGAME = {
+        "--------",
+        "-------B",
+        "B---W-B-",
+        "-B-WWW-B",
+        "--WWBBW-",
+        "BWBBWWWW",
+        "WWWBBW--",
+        "BW-WBWW-"
+    };
+
+    // 48 plies in, black to move with 7 moves
+    private static final String[] ENDGAME = {
+        "B-WBBBBB",
+        "-BB-BWWW",
+        "BBWBWWWW",
+        "BBBWBWWB",
+        "BWBBWBW-",
+        "WWBWBB-W",
+        "-WWWBB--",
+        "W--WBB--"
+    };
+
+    private PositionFixtures() {
+    }
+
+    public static OthelloBoard opening() {
+        return parse(OPENING, BLACK_PIECE);
+    }
+
+    public static OthelloBoard midgame() {
+        return parse(MIDGAME, BLACK_PIECE);
+    }
+
+    public static OthelloBoard endgame() {
+        return parse(ENDGAME, BLACK_PIECE);
+    }
+
+    // pre: rows holds 8 strings of 8 characters, each '-', 'W' or 'B'
+    // post: returns a board with that position and 'turn' to move
+    public static OthelloBoard parse(String[] rows, char turn) {
+        char[][] board = new char[rows.length][];
+
+        for (int row = 0; row < rows.length; row++) {
+            board[row] = rows[row].toCharArray();
+        }
+
+        return new OthelloBoard(board, turn);
+    }
+}
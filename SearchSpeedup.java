@@ -0,0 +1,110 @@
+import java.util.Random;
+
+// Measures how much faster ParallelSearch reaches a fixed depth as threads are added.
+//
+//   java SearchSpeedup [depth] [maxThreads] [hashMegabytes]
+//
+// Every position of a fixed suite (the three PositionFixtures and five
+// positions from a seeded random game) is searched to 'depth' with 1, 2, 4, ...
+// up to maxThreads threads, each time starting from an empty table. The time
+// to reach the depth is what counts: Lazy SMP threads search many of the same
+// nodes, so nodes per second alone would flatter it. Speedup is the one thread
+// time divided by the time with more threads.
+public class SearchSpeedup implements OthelloConstants {
+
+    // plies into the seeded game of the extra positions
+    private static final int[] SUITE_PLIES = {14, 20, 26, 34, 40};
+
+    // long enough that only the depth limit ends a search
+    private static final long NO_TIME_LIMIT = 1L << 40;
+
+    public static void main(String[] args) {
+        int depth = 8;
+        int maxThreads = 16;
+        int hashSize = 64;
+
+        try {
+            if (args.length >= 1) {
+                depth = Integer.parseInt(args[0]);
+            }
+            if (args.length >= 2) {
+                maxThreads = Integer.parseInt(args[1]);
+            }
+            if (args.length >= 3) {
+                hashSize = Integer.parseInt(args[2]);
+            }
+        } catch (NumberFormatException e) {
+            System.out.println("Something went wrong with the formatting");
+            System.out.println("usage: java SearchSpeedup [depth] [maxThreads] [hashMegabytes]");
+            System.exit(2);
+        }
+
+        OthelloBoard[] suite = suite();
+        TranspositionTable table = new TranspositionTable(hashSize);
+
+        System.out.printf("%d positions to depth %d, %d cores available\n",
+            suite.length, depth, Runtime.getRuntime().availableProcessors());
+        System.out.printf("%8s %12s %14s %14s %10s\n", "threads", "seconds", "nodes", "nodes/sec", "speedup");
+
+        double baseline = 0;
+
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            ParallelSearch search = new ParallelSearch(threads, table);
+            search.setMaxDepth(depth);
+
+            // one untimed pass over the suite lets the JIT settle before measuring
+            if (threads == 1) {
+                run(search, table, suite);
+            }
+
+            long nodes = 0;
+            long start = System.nanoTime();
+
+            for (OthelloBoard position: suite) {
+                table.clear();
+                search.search(position, NO_TIME_LIMIT);
+                nodes += search.getNodes();
+            }
+
+            double seconds = (System.nanoTime() - start) / 1e9;
+            if (threads == 1) {
+                baseline = seconds;
+            }
+
+            System.out.printf("%8d %12.3f %14d %14.0f %10.2f\n", threads, seconds, nodes, nodes / seconds, baseline / seconds);
+            search.close();
+        }
+    }
+
+    private static void run(ParallelSearch search, TranspositionTable table, OthelloBoard[] suite) {
+        for (OthelloBoard position: suite) {
+            table.clear();
+            search.search(position, NO_TIME_LIMIT);
+        }
+    }
+
+    // post: returns the positions searched, always the same ones
+    private static OthelloBoard[] suite() {
+        OthelloBoard[] suite = new OthelloBoard[3 + SUITE_PLIES.length];
+        suite[0] = PositionFixtures.opening();
+        suite[1] = PositionFixtures.midgame();
+        suite[2] = PositionFixtures.endgame();
+
+        Random random = new Random(15);
+        OthelloBoard board = new OthelloBoard();
+        int[] moves = new int[BitBoard.SQUARES];
+        int ply = 0;
+
+        for (int i = 0; i < SUITE_PLIES.length; i++) {
+            while (ply < SUITE_PLIES[i]) {
+                int count = board.legalMoves(board.currentTurn(), moves);
+                board.makeMove(count == 0? PASS: moves[random.nextInt(count)]);
+                ply++;
+            }
+
+            suite[3 + i] = new OthelloBoard(board);
+        }
+
+        return suite;
+    }
+}
@@ -0,0 +1,657 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+// Checks the search code against plain reference versions: the transposition
+// table against what was stored in it, and OthelloSearch against a fixed depth
+// alpha-beta search with no table, no move ordering and no time limit, which
+// gives the same score as looking at every line. An opening book built from
+// random games must give back moves that lead where the games went, from every
+// symmetric copy of their positions, and MonteCarloSearch must play a legal
+// move, or pass exactly when it has to. EndgameSolver must agree with a brute
+// force search over every line of small endgames, and its moves must reach
+// the margin it reports. ParallelSearch must match OthelloSearch at a fixed
+// depth and stop all its threads when told. Positions come from seeded random
+// games.
+//
+//   java SearchTester [positions seed]
+public class SearchTester implements OthelloConstants {
+    public static void main(String[] args) throws IOException {
+
+        int N = 200; // positions to search
+        long seed = 42;
+
+        // check if args passed into command line
+        // first argument will be N, second argument will be the random seed
+        if (args.length == 2) {
+            try {
+                N = Integer.parseInt(args[0]);
+                seed = Long.parseLong(args[1]);
+            } catch (Exception e) {
+                System.out.println("Something went wrong with the formatting");
+                System.out.println("Going back to default settings");
+            }
+        }
+
+        Random random = new Random(seed);
+
+        if (!tableMatches(random)) {
+            System.exit(1);
+        }
+        System.out.println("The transposition table gave back what was stored and replaced entries as it should.");
+
+        OthelloSearch search = new OthelloSearch(new TranspositionTable(4));
+        int[] moves = new int[BitBoard.SQUARES];
+
+        for (int i = 1; i <= N; i++) {
+            OthelloBoard board = randomPosition(random);
+            String before = board.toString();
+
+            // deeper results of earlier searches would rightly change the scores, so start afresh;
+            // within one search a position is always met with the same depth left
+            search.getTable().clear();
+
+            int depth = 1 + random.nextInt(6);
+            search.setMaxDepth(depth);
+            int move = search.search(board, 60_000);
+
+            if (!board.toString().equals(before)) {
+                System.out.printf("OthelloSearch did not hand back position %d unchanged\n", i);
+                System.exit(1);
+            }
+
+            int count = board.legalMoves(board.currentTurn(), moves);
+            if (count == 0) {
+                if (move != PASS) {
+                    System.out.printf("OthelloSearch played %d in position %d, which has no moves\n", move, i);
+                    System.exit(1);
+                }
+                continue;
+            }
+
+            // a search that reaches the end of the game or a certain win stops before its max depth
+            int reached = search.getDepthReached();
+            if (reached < 1 || reached > depth) {
+                System.out.printf("OthelloSearch reports depth %d of %d in position %d\n", reached, depth, i);
+                System.exit(1);
+            }
+
+            int expected = reference(board, reached, -OthelloSearch.INFINITY, OthelloSearch.INFINITY);
+            if (search.getBestScore() != expected) {
+                System.out.printf("OthelloSearch scored position %d at depth %d as %d, the reference says %d\n%s\n",
+                    i, reached, search.getBestScore(), expected, board);
+                System.exit(1);
+            }
+
+            if ((board.legalMoves(board.currentTurn()) & (1L << move)) == 0) {
+                System.out.printf("OthelloSearch played %d in position %d, which is not legal\n", move, i);
+                System.exit(1);
+            }
+
+            board.makeMove(move);
+            int moveScore = -reference(board, reached - 1, -OthelloSearch.INFINITY, OthelloSearch.INFINITY);
+            board.undoMove();
+
+            if (moveScore != expected) {
+                System.out.printf("OthelloSearch played %d in position %d, worth %d instead of the best %d\n",
+                    move, i, moveScore, expected);
+                System.exit(1);
+            }
+        }
+
+        System.out.printf("All %d searches matched the reference search.\n", N);
+
+        int games = Math.max(1, N / 10);
+        if (!bookMatches(random, games)) {
+            System.exit(1);
+        }
+        System.out.printf("Opening books from %d games gave back their moves from every symmetric copy.\n", games);
+
+        if (!monteCarloMatches(random, N)) {
+            System.exit(1);
+        }
+        System.out.printf("MonteCarloSearch played a legal move or passed in all %d positions.\n", N);
+
+        int endgames = Math.max(1, N / 5);
+        if (!endgameMatches(random, endgames)) {
+            System.exit(1);
+        }
+        System.out.printf("EndgameSolver matched a brute force search in %d endgames.\n", endgames);
+
+        int parallel = Math.max(1, N / 10);
+        if (!parallelMatches(random, parallel) || !parallelStops()) {
+            System.exit(1);
+        }
+        System.out.printf("ParallelSearch matched OthelloSearch in %d positions and stopped every thread when told.\n",
+            parallel);
+    }
+
+    // post: returns whether a ParallelSearch on four threads gives each of 'positions' random
+    //  positions the depth and score of OthelloSearch at the same fixed depth, or of the
+    //  reference search when it went past where OthelloSearch ended, and a legal move worth that
+    //  score. Within one search a position always has the same depth left, so what one thread
+    //  stores in the shared table cannot change the scores of another
+    private static boolean parallelMatches(Random random, int positions) {
+        OthelloSearch single = new OthelloSearch(new TranspositionTable(4));
+        ParallelSearch parallel = new ParallelSearch(4, new TranspositionTable(4));
+
+        try {
+            for (int i = 1; i <= positions; i++) {
+                OthelloBoard board = randomPosition(random);
+                if (board.legalMoves(board.currentTurn()) == 0) {
+                    continue;
+                }
+
+                int depth = 1 + random.nextInt(6);
+                single.getTable().clear();
+                single.setMaxDepth(depth);
+                single.search(board, 60_000);
+                parallel.getTable().clear();
+                parallel.setMaxDepth(depth);
+                int move = parallel.search(board, 60_000);
+
+                // a helper starts a ply deeper, so it may finish one more depth than the main
+                //  search needed once that reached the end of the game or a certain win
+                int reached = parallel.getDepthReached();
+                int score = parallel.getBestScore();
+                boolean ended = single.getDepthReached() < depth;
+                int expected = reached == single.getDepthReached()? single.getBestScore()
+                    : reference(board, reached, -OthelloSearch.INFINITY, OthelloSearch.INFINITY);
+
+                if (ended? reached < single.getDepthReached() || reached > depth: reached != depth) {
+                    System.out.printf("ParallelSearch reached depth %d in position %d, OthelloSearch depth %d of %d\n",
+                        reached, i, single.getDepthReached(), depth);
+                    return false;
+                }
+                if (score != expected) {
+                    System.out.printf("ParallelSearch scored position %d at depth %d as %d, not %d\n%s\n",
+                        i, reached, score, expected, board);
+                    return false;
+                }
+
+                if ((board.legalMoves(board.currentTurn()) & (1L << move)) == 0) {
+                    System.out.printf("ParallelSearch played %d in position %d, which is not legal\n", move, i);
+                    return false;
+                }
+
+                board.makeMove(move);
+                int moveScore = -reference(board, reached - 1, -OthelloSearch.INFINITY, OthelloSearch.INFINITY);
+                board.undoMove();
+
+                if (moveScore != score) {
+                    System.out.printf("ParallelSearch played %d in position %d, worth %d instead of the best %d\n",
+                        move, i, moveScore, score);
+                    return false;
+                }
+            }
+        } finally {
+            parallel.close();
+        }
+
+        return true;
+    }
+
+    // post: returns whether stop, called from another thread during a search with no limits in
+    //  sight, ends the search on every thread soon after, and close then ends the helper threads
+    private static boolean parallelStops() {
+        ParallelSearch parallel = new ParallelSearch(4, new TranspositionTable(4));
+        OthelloBoard board = new OthelloBoard();
+        long[] returned = new long[1];
+
+        // search() only returns once every helper has finished its search
+        Thread searcher = new Thread(() -> {
+            parallel.search(board, 600_000);
+            returned[0] = System.nanoTime();
+        });
+        searcher.start();
+
+        try {
+            Thread.sleep(200);
+            long stopped = System.nanoTime();
+            parallel.stop();
+            searcher.join(5_000);
+
+            if (searcher.isAlive()) {
+                System.out.println("ParallelSearch was still searching 5 s after it was told to stop");
+                parallel.close();
+                return false;
+            }
+            if (returned[0] - stopped > 1_000_000_000L) {
+                System.out.printf("ParallelSearch took %.1f s to stop\n", (returned[0] - stopped) / 1e9);
+                return false;
+            }
+
+            parallel.close();
+            long deadline = System.nanoTime() + 5_000_000_000L;
+            while (helpersAlive() && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+
+        if (helpersAlive()) {
+            System.out.println("ParallelSearch helper threads were still alive 5 s after close");
+            return false;
+        }
+
+        return true;
+    }
+
+    // post: returns whether any ParallelSearch helper thread is alive
+    private static boolean helpersAlive() {
+        for (Thread thread: Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().equals("search-helper") && thread.isAlive()) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    // post: returns whether EndgameSolver gives each of 'positions' endgames with at most 10
+    //  empties, from random games and from lopsided random boards, the margin of a brute force
+    //  search, and whether following its best moves for both sides to the end of the game gives
+    //  that margin; one solver is used for them all, so results it keeps from earlier positions
+    //  must still be right
+    private static boolean endgameMatches(Random random, int positions) {
+        EndgameSolver solver = new EndgameSolver(1);
+        int[] moves = new int[BitBoard.SQUARES];
+
+        for (int i = 1; i <= positions; i++) {
+            int empties = 1 + random.nextInt(10);
+            OthelloBoard board = i % 2 == 0? endgame(random, empties, moves): lopsided(random, empties);
+
+            char me = board.currentTurn();
+            char other = board.nextTurn();
+            int expected = exact(board.piecesOf(me), board.piecesOf(other));
+            int score = solver.solve(board);
+
+            if (score != expected) {
+                System.out.printf("EndgameSolver scored endgame %d as %d, brute force says %d\n%s\n",
+                    i, score, expected, board);
+                return false;
+            }
+
+            // play the solver's choice for whichever side is to move until the game ends
+            while (!board.isGameOver()) {
+                solver.solve(board);
+                int move = solver.getBestMove();
+                long legal = board.legalMoves(board.currentTurn());
+
+                if (legal == 0? move != PASS: move == PASS || (legal & (1L << move)) == 0) {
+                    System.out.printf("EndgameSolver played %d in endgame %d, which is not legal\n%s\n", move, i, board);
+                    return false;
+                }
+                board.makeMove(move);
+            }
+
+            int margin = margin(board.piecesOf(me), board.piecesOf(other));
+            if (margin != expected) {
+                System.out.printf("EndgameSolver's moves ended endgame %d with margin %d, not the %d it scored\n",
+                    i, margin, expected);
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    // post: returns a position of a random game once it has 'empties' empty squares or has ended
+    private static OthelloBoard endgame(Random random, int empties, int[] moves) {
+        OthelloBoard board = new OthelloBoard();
+
+        while (board.countPieces(BLANK_PIECE) > empties && !board.isGameOver()) {
+            int count = board.legalMoves(board.currentTurn(), moves);
+            board.makeMove(count == 0? PASS: moves[random.nextInt(count)]);
+        }
+
+        return board;
+    }
+
+    // post: returns a board with 'empties' random empty squares and the rest filled at random,
+    //  mostly with one colour, so that games often end with squares left for the winner
+    private static OthelloBoard lopsided(Random random, int empties) {
+        long empty = 0;
+        while (Long.bitCount(empty) < empties) {
+            empty |= 1L << random.nextInt(BitBoard.SQUARES);
+        }
+
+        double blackShare = random.nextBoolean()? 0.95: 0.05;
+        long black = 0;
+        for (int square = 0; square < BitBoard.SQUARES; square++) {
+            if ((empty & (1L << square)) == 0 && random.nextDouble() < blackShare) {
+                black |= 1L << square;
+            }
+        }
+
+        return new OthelloBoard(black, ~empty & ~black, random.nextBoolean()? BLACK_PIECE: WHITE_PIECE);
+    }
+
+    // post: returns the final margin for player, who is to move, with perfect play from both
+    //  sides, found by playing out every line
+    private static int exact(long player, long opponent) {
+        long moves = BitBoard.legalMoves(player, opponent);
+
+        if (moves == 0) {
+            return BitBoard.legalMoves(opponent, player) == 0? margin(player, opponent): -exact(opponent, player);
+        }
+
+        int best = -BitBoard.SQUARES;
+        for (; moves != 0; moves &= moves - 1) {
+            int square = Long.numberOfTrailingZeros(moves);
+            long flipped = BitBoard.flips(player, opponent, square);
+            best = Math.max(best, -exact(opponent & ~flipped, player | flipped | (1L << square)));
+        }
+
+        return best;
+    }
+
+    // post: returns player's margin at the end of the game, with the empty squares going to the winner
+    private static int margin(long player, long opponent) {
+        int margin = Long.bitCount(player) - Long.bitCount(opponent);
+        int empties = BitBoard.SQUARES - Long.bitCount(player | opponent);
+        return margin > 0? margin + empties: margin < 0? margin - empties: 0;
+    }
+
+    // post: returns whether a short MonteCarloSearch hands back each of 'positions' random positions
+    //  unchanged with a legal move for the side to move, and PASS exactly when it has none; half
+    //  the positions are ones where the side to move has to pass or the game is over
+    private static boolean monteCarloMatches(Random random, int positions) {
+        MonteCarloSearch search = new MonteCarloSearch(1, 1);
+        search.setSeed(random.nextLong());
+        search.setPlayoutLimit(200);
+
+        try {
+            for (int i = 1; i <= positions; i++) {
+                OthelloBoard board = i % 2 == 0? randomPosition(random): passPosition(random);
+                String before = board.toString();
+                long legal = board.legalMoves(board.currentTurn());
+                int move = search.search(board, 60_000);
+
+                if (!board.toString().equals(before)) {
+                    System.out.printf("MonteCarloSearch did not hand back position %d unchanged\n", i);
+                    return false;
+                }
+
+                if (legal == 0? move != PASS: move == PASS || (legal & (1L << move)) == 0) {
+                    System.out.printf("MonteCarloSearch played %d in position %d, which is not legal\n%s\n",
+                        move, i, board);
+                    return false;
+                }
+            }
+        } finally {
+            search.close();
+        }
+
+        return true;
+    }
+
+    // post: returns the first position of a random game where the side to move has no move,
+    //  which is the end of the game if nobody ever has to pass before it
+    private static OthelloBoard passPosition(Random random) {
+        OthelloBoard board = new OthelloBoard();
+        int[] moves = new int[BitBoard.SQUARES];
+        int count = board.legalMoves(board.currentTurn(), moves);
+
+        while (count > 0) {
+            board.makeMove(moves[random.nextInt(count)]);
+            count = board.legalMoves(board.currentTurn(), moves);
+        }
+
+        return board;
+    }
+
+    // post: builds opening books from one and from 'games' random games and returns whether
+    //  each gives, for every position in their opening plies and all its symmetric copies, a
+    //  legal move that leads to the same position as a move played there (the one move with the
+    //  one game book), and nothing once moves need more games than there were; and whether a
+    //  book counts moves that are symmetries of each other in their position as one
+    private static boolean bookMatches(Random random, int games) throws IOException {
+        int maxPly = 12;
+        byte[][] records = new byte[games][];
+        int[] moves = new int[BitBoard.SQUARES];
+        OthelloBoard board = new OthelloBoard();
+
+        for (int g = 0; g < games; g++) {
+            byte[] record = new byte[GameRecordWriter.MAX_MOVES];
+            int length = 0;
+
+            board.resetBoard();
+            while (!board.isGameOver()) {
+                int count = board.legalMoves(board.currentTurn(), moves);
+                int move = count == 0? PASS: moves[random.nextInt(count)];
+                record[length++] = PositionCodec.encodeMove(move);
+                board.makeMove(move);
+            }
+
+            records[g] = Arrays.copyOf(record, length);
+        }
+
+        Path path = Files.createTempFile("othello", ".book");
+        try {
+            for (int bookGames: new int[] {1, games}) {
+                OpeningBookBuilder builder = new OpeningBookBuilder(maxPly);
+                for (int g = 0; g < bookGames; g++) {
+                    builder.addGame(records[g], records[g].length, board);
+                }
+                builder.write(path, 1);
+                OpeningBook book = OpeningBook.load(path);
+
+                for (int g = 0; g < bookGames; g++) {
+                    board.resetBoard();
+
+                    for (int ply = 0; ply < maxPly && ply < records[g].length; ply++) {
+                        int played = PositionCodec.decodeMove(records[g][ply]);
+                        long player = board.piecesOf(board.currentTurn());
+                        long opponent = board.piecesOf(board.nextTurn());
+
+                        for (int transform = 0; played != PASS && transform < Symmetry.TRANSFORMS; transform++) {
+                            long turnedPlayer = Symmetry.transform(player, transform);
+                            long turnedOpponent = Symmetry.transform(opponent, transform);
+                            int move = book.probe(turnedPlayer, turnedOpponent);
+
+                            if (move == PASS || (BitBoard.legalMoves(turnedPlayer, turnedOpponent) & (1L << move)) == 0) {
+                                System.out.printf("The book gave %d, not a legal move, at ply %d of game %d turned by %d\n",
+                                    move, ply, g, transform);
+                                return false;
+                            }
+
+                            // with more games it may pick another move played from the same position
+                            if (bookGames == 1 && !sameAfter(turnedPlayer, turnedOpponent, move,
+                                    Symmetry.transformSquare(played, transform))) {
+                                System.out.printf("The book gave %d instead of %d at ply %d turned by %d\n",
+                                    move, Symmetry.transformSquare(played, transform), ply, transform);
+                                return false;
+                            }
+                        }
+
+                        board.makeMove(played);
+                    }
+                }
+
+                book.setMinGames(bookGames + 1);
+                board.resetBoard();
+                if (book.probe(board.piecesOf(board.currentTurn()), board.piecesOf(board.nextTurn())) != PASS) {
+                    System.out.println("The book gave a move seen in fewer games than it was asked for");
+                    return false;
+                }
+            }
+
+            // the four first moves are symmetries of each other, so four games each opening with
+            // a different one are four games of the same move
+            OpeningBookBuilder builder = new OpeningBookBuilder(maxPly);
+            board.resetBoard();
+            int count = board.legalMoves(board.currentTurn(), moves);
+            for (int i = 0; i < count; i++) {
+                builder.addGame(new byte[] {PositionCodec.encodeMove(moves[i])}, 1, board);
+            }
+            builder.write(path, count);
+
+            OpeningBook book = OpeningBook.load(path);
+            board.resetBoard();
+            int move = book.probe(board.piecesOf(board.currentTurn()), board.piecesOf(board.nextTurn()));
+            if (move == PASS || (board.legalMoves(board.currentTurn()) & (1L << move)) == 0) {
+                System.out.printf("The book gave %d, not one of the %d first moves it saw once each\n", move, count);
+                return false;
+            }
+        } finally {
+            Files.delete(path);
+        }
+
+        return true;
+    }
+
+    // post: returns whether playing 'first' and playing 'second' for player lead to positions
+    //  that are symmetric copies of each other
+    private static boolean sameAfter(long player, long opponent, int first, int second) {
+        long[] firstCanonical = new long[2];
+        long[] secondCanonical = new long[2];
+
+        long flipped = BitBoard.flips(player, opponent, first);
+        Symmetry.canonicalize(opponent & ~flipped, player | flipped | (1L << first), firstCanonical);
+        flipped = BitBoard.flips(player, opponent, second);
+        Symmetry.canonicalize(opponent & ~flipped, player | flipped | (1L << second), secondCanonical);
+
+        return firstCanonical[0] == secondCanonical[0] && firstCanonical[1] == secondCanonical[1];
+    }
+
+    // post: returns whether the table gives back every field stored for a key, misses keys it
+    //  does not have, and keeps the deepest and the newest entry of each bucket
+    private static boolean tableMatches(Random random) {
+        TranspositionTable table = new TranspositionTable(1);
+        int buckets = table.capacity() / 2;
+        int[] bounds = {TranspositionTable.EXACT, TranspositionTable.LOWER_BOUND, TranspositionTable.UPPER_BOUND};
+
+        for (int i = 0; i < 1000; i++) {
+            long key = random.nextLong();
+            if (key == 0) {
+                continue;
+            }
+
+            int depth = random.nextInt(256);
+            int bound = bounds[random.nextInt(bounds.length)];
+            int score = random.nextInt(2 * OthelloSearch.INFINITY + 1) - OthelloSearch.INFINITY;
+            int move = random.nextInt(BitBoard.SQUARES + 1) - 1; // PASS is -1
+
+            table.clear();
+            if (table.probe(key) != TranspositionTable.MISS) {
+                System.out.println("An empty transposition table found a key");
+                return false;
+            }
+
+            table.store(key, depth, bound, score, move);
+            long entry = table.probe(key);
+            if (entry == TranspositionTable.MISS || TranspositionTable.depth(entry) != depth
+                    || TranspositionTable.bound(entry) != bound || TranspositionTable.score(entry) != score
+                    || TranspositionTable.move(entry) != move) {
+                System.out.printf("The transposition table did not give back depth %d, bound %d, score %d, move %d\n",
+                    depth, bound, score, move);
+                return false;
+            }
+
+            // a key in the same bucket, and one in another
+            if (table.probe(key + buckets) != TranspositionTable.MISS || table.probe(key + 1) != TranspositionTable.MISS) {
+                System.out.println("The transposition table found a key that was never stored");
+                return false;
+            }
+        }
+
+        // four positions that share one bucket of two slots
+        long deep = random.nextLong() | 1;
+        long newer = deep + buckets;
+        long newest = deep + 2L * buckets;
+        long deeper = deep + 3L * buckets;
+        table.clear();
+
+        table.store(deep, 5, TranspositionTable.EXACT, 1, 0);
+        table.store(newer, 3, TranspositionTable.EXACT, 2, 1);
+        if (!holds(table, deep, 1) || !holds(table, newer, 2)) {
+            System.out.println("The transposition table lost an entry when the second slot was free");
+            return false;
+        }
+
+        // a shallower search only takes the newest slot
+        table.store(newest, 2, TranspositionTable.EXACT, 3, 2);
+        if (!holds(table, deep, 1) || !holds(table, newest, 3) || table.probe(newer) != TranspositionTable.MISS) {
+            System.out.println("The transposition table did not replace the newest entry with a shallower one");
+            return false;
+        }
+
+        // a deeper search takes the deep slot
+        table.store(deeper, 6, TranspositionTable.EXACT, 4, 3);
+        if (!holds(table, deeper, 4) || !holds(table, newest, 3) || table.probe(deep) != TranspositionTable.MISS) {
+            System.out.println("The transposition table did not replace the deepest entry with a deeper one");
+            return false;
+        }
+
+        // the same position replaces its own entry, however shallow
+        table.store(deeper, 1, TranspositionTable.UPPER_BOUND, 5, 4);
+        long entry = table.probe(deeper);
+        if (!holds(table, deeper, 5) || TranspositionTable.depth(entry) != 1 || !holds(table, newest, 3)) {
+            System.out.println("The transposition table did not replace an entry for the same position");
+            return false;
+        }
+
+        return true;
+    }
+
+    // post: returns whether the table has an entry for 'key' with 'score'
+    private static boolean holds(TranspositionTable table, long key, int score) {
+        long entry = table.probe(key);
+        return entry != TranspositionTable.MISS && TranspositionTable.score(entry) == score;
+    }
+
+    // post: returns a position from a random game, anywhere from the start to the end
+    private static OthelloBoard randomPosition(Random random) {
+        OthelloBoard board = new OthelloBoard();
+        int[] moves = new int[BitBoard.SQUARES];
+        int plies = random.nextInt(60);
+
+        for (int ply = 0; ply < plies && !board.isGameOver(); ply++) {
+            int count = board.legalMoves(board.currentTurn(), moves);
+            board.makeMove(count == 0? PASS: moves[random.nextInt(count)]);
+        }
+
+        return board;
+    }
+
+    // post: returns the score of the side to move 'depth' plies ahead if it is between alpha and
+    //  beta, else a bound beyond them, with the same evaluation and end of game scores as
+    //  OthelloSearch; passing does not use up a ply
+    private static int reference(OthelloBoard board, int depth, int alpha, int beta) {
+        char me = board.currentTurn();
+        char other = board.nextTurn();
+        int[] moves = new int[BitBoard.SQUARES];
+        int count = board.legalMoves(me, moves);
+
+        if (count == 0) {
+            if (board.legalMoves(other) == 0) {
+                int difference = board.countPieces(me) - board.countPieces(other);
+                return difference > 0? OthelloSearch.WIN + difference
+                    : difference < 0? -OthelloSearch.WIN + difference: 0;
+            }
+
+            board.makeMove(PASS);
+            int score = -reference(board, depth, -beta, -alpha);
+            board.undoMove();
+            return score;
+        }
+
+        if (depth == 0) {
+            return OthelloSearch.evaluate(board);
+        }
+
+        int best = -OthelloSearch.INFINITY;
+        for (int i = 0; i < count && best < beta; i++) {
+            board.makeMove(moves[i]);
+            best = Math.max(best, -reference(board, depth - 1, -beta, -Math.max(alpha, best)));
+            board.undoMove();
+        }
+
+        return best;
+    }
+}
@@ -0,0 +1,234 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Plays many AI vs AI games spread over a pool of threads.
+//
+// Every worker owns its own board and pair of AIs, and takes games in chunks
+// from a shared counter. Each game reseeds both AIs from the runner's seed and
+// the game number, so the totals only depend on the seed and never on how the
+// games were split between threads. Games can also be written to a
+// game-record file; each worker batches its games before handing them over,
+// so the order of games in the file depends on thread timing.
+public class SelfPlayRunner implements OthelloConstants {
+
+    private static final int CHUNK_SIZE = 256;
+    private static final int RECORD_BUFFER_SIZE = 64 * 1024;
+
+    private final int threads;
+    private final long seed;
+    private OthelloAI.AIDifficulty blackDifficulty;
+    private OthelloAI.AIDifficulty whiteDifficulty;
+    private GameRecordWriter records;
+
+    // pre: threads > 0
+    public SelfPlayRunner(int threads, long seed) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("thread count must be positive");
+        }
+
+        this.threads = threads;
+        this.seed = seed;
+        blackDifficulty = OthelloAI.AIDifficulty.RANDOM;
+        whiteDifficulty = OthelloAI.AIDifficulty.RANDOM;
+    }
+
+    public void setDifficulties(OthelloAI.AIDifficulty black, OthelloAI.AIDifficulty white) {
+        blackDifficulty = black;
+        whiteDifficulty = white;
+    }
+
+    // pre: none
+    // post: every game played from now on is also written to 'records' (null to stop);
+    //  the caller still owns the writer and closes it
+    public void setGameRecords(GameRecordWriter records) {
+        this.records = records;
+    }
+
+    // pre: games >= 0, moduloMessage > 0
+    // post: plays 'games' games and returns the totals, printing progress every 'moduloMessage' games
+    public Results run(long games, long moduloMessage) throws InterruptedException {
+        LongAdder blackWins = new LongAdder();
+        LongAdder whiteWins = new LongAdder();
+        AtomicLong nextGame = new AtomicLong();
+        AtomicLong gamesPlayed = new AtomicLong();
+
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                workers.add(pool.submit(() -> {
+                    play(games, moduloMessage, start, nextGame, gamesPlayed, blackWins, whiteWins);
+                }));
+            }
+
+            for (Future<?> worker: workers) {
+                worker.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw (UncheckedIOException) e.getCause();
+            }
+            throw new IllegalStateException("a self-play worker failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        long elapsed = System.nanoTime() - start;
+        long black = blackWins.sum();
+        long white = whiteWins.sum();
+
+        return new Results(games, black, white, games - black - white, elapsed);
+    }
+
+    // the body of one worker thread
+    private void play(long games, long moduloMessage, long start, AtomicLong nextGame, AtomicLong gamesPlayed,
+                      LongAdder blackWins, LongAdder whiteWins) {
+
+        OthelloBoard board = new OthelloBoard();
+        OthelloAI ai = new OthelloAI(BLACK_PIECE);
+        OthelloAI otherAI = new OthelloAI(WHITE_PIECE);
+        ai.showMessages(false);
+        otherAI.showMessages(false);
+        ai.setDifficulty(blackDifficulty);
+        otherAI.setDifficulty(whiteDifficulty);
+
+        GameRecordWriter records = this.records;
+        ByteBuffer recordBuffer = records == null? null: ByteBuffer.allocate(RECORD_BUFFER_SIZE);
+        byte[] gameMoves = new byte[GameRecordWriter.MAX_MOVES];
+        int bufferedGames = 0;
+
+        long first;
+        while ((first = nextGame.getAndAdd(CHUNK_SIZE)) < games) {
+            long last = Math.min(games, first + CHUNK_SIZE);
+            int localBlackWins = 0;
+            int localWhiteWins = 0;
+
+            for (long game = first; game < last; game++) {
+                long allocated = Metrics.ENABLED? Metrics.allocatedBytes(): 0;
+                ai.setSeed(mix(seed, 2 * game));
+                otherAI.setSeed(mix(seed, 2 * game + 1));
+                board.resetBoard();
+                int length = 0;
+
+                while (!board.isGameOver()) {
+
+                    // let AI play until the game is over
+                    OthelloAI player = ai.getPiece() == board.currentTurn()? ai: otherAI;
+                    player.playPiece(board);
+
+                    if (records != null) {
+                        gameMoves[length++] = PositionCodec.encodeMove(player.getLastMove());
+                    }
+
+                    board.switchTurns();
+                }
+
+                if (records != null) {
+                    if (!GameRecordWriter.append(recordBuffer, gameMoves, length)) {
+                        writeRecords(records, recordBuffer, bufferedGames);
+                        bufferedGames = 0;
+                        GameRecordWriter.append(recordBuffer, gameMoves, length);
+                    }
+                    bufferedGames++;
+                }
+
+                int blackCount = board.countPieces(BLACK_PIECE);
+                int whiteCount = board.countPieces(WHITE_PIECE);
+
+                if (blackCount > whiteCount) {
+                    localBlackWins++;
+                }
+                if (whiteCount > blackCount) {
+                    localWhiteWins++;
+                }
+
+                if (Metrics.ENABLED) {
+                    Metrics.GAMES.increment();
+                    Metrics.GAME_BYTES.record(Metrics.allocatedBytes() - allocated);
+                }
+
+                long played = gamesPlayed.incrementAndGet();
+                if (played % moduloMessage == 0) {
+                    double seconds = (System.nanoTime() - start) / 1e9;
+                    System.out.printf("%d games played so far (%.0f games/sec)...\n%s", played, played / seconds,
+                        Metrics.ENABLED? Metrics.report(): "");
+                }
+            }
+
+            // merge once per chunk so workers rarely touch shared state
+            blackWins.add(localBlackWins);
+            whiteWins.add(localWhiteWins);
+        }
+
+        if (records != null && bufferedGames > 0) {
+            writeRecords(records, recordBuffer, bufferedGames);
+        }
+    }
+
+    private static void writeRecords(GameRecordWriter records, ByteBuffer buffer, int games) {
+        try {
+            records.write(buffer, games);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // SplitMix64 finalizer, turns (seed, n) into a well spread seed for game n
+    private static long mix(long seed, long n) {
+        long z = seed + (n + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    public static class Results {
+        private final long games;
+        private final long blackWins;
+        private final long whiteWins;
+        private final long ties;
+        private final long elapsedNanos;
+
+        public Results(long games, long blackWins, long whiteWins, long ties, long elapsedNanos) {
+            this.games = games;
+            this.blackWins = blackWins;
+            this.whiteWins = whiteWins;
+            this.ties = ties;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public long getGames() {
+            return games;
+        }
+
+        public long getBlackWins() {
+            return blackWins;
+        }
+
+        public long getWhiteWins() {
+            return whiteWins;
+        }
+
+        public long getTies() {
+            return ties;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public double gamesPerSecond() {
+            return games / (elapsedNanos / 1e9);
+        }
+    }
+}
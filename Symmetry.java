@@ -0,0 +1,191 @@
+// The eight symmetries of the board, as bit operations on 64-bit masks.
+//
+// A transform is a number from 0 to 7 made of three flags, applied in this order:
+//   TRANSPOSE   swap rows and columns, (row, col) -> (col, row)
+//   MIRROR      reverse the columns,   (row, col) -> (row, 7 - col)
+//   FLIP        reverse the rows,      (row, col) -> (7 - row, col)
+// Transform 0 is the identity. Nothing here allocates.
+//
+// The canonical form of a position is the one of its eight images with the
+// smallest (player, opponent) pair; caches and books that store only canonical
+// forms keep one entry where they would otherwise keep up to eight. A move
+// found for the canonical form is mapped back to the real board with
+// fromCanonical.
+public final class Symmetry {
+
+    public static final int TRANSFORMS = 8;
+
+    public static final int MIRROR = 1;
+    public static final int FLIP = 2;
+    public static final int TRANSPOSE = 4;
+
+    // where every transform moves every square, transform * 64 + square
+    private static final byte[] SQUARE_MAP = new byte[TRANSFORMS * BitBoard.SQUARES];
+
+    static {
+        for (int t = 0; t < TRANSFORMS; t++) {
+            for (int square = 0; square < BitBoard.SQUARES; square++) {
+                int row = BitBoard.row(square);
+                int col = BitBoard.col(square);
+
+                if ((t & TRANSPOSE) != 0) {
+                    int swap = row;
+                    row = col;
+                    col = swap;
+                }
+                if ((t & MIRROR) != 0) {
+                    col = 7 - col;
+                }
+                if ((t & FLIP) != 0) {
+                    row = 7 - row;
+                }
+
+                SQUARE_MAP[t * BitBoard.SQUARES + square] = (byte) BitBoard.square(row, col);
+            }
+        }
+    }
+
+    private Symmetry() {
+    }
+
+    // post: returns the mask with its rows in reverse order
+    public static long flip(long mask) {
+        return Long.reverseBytes(mask);
+    }
+
+    // post: returns the mask with its columns in reverse order
+    public static long mirror(long mask) {
+        mask = ((mask >>> 1) & 0x5555555555555555L) | ((mask & 0x5555555555555555L) << 1);
+        mask = ((mask >>> 2) & 0x3333333333333333L) | ((mask & 0x3333333333333333L) << 2);
+        mask = ((mask >>> 4) & 0x0F0F0F0F0F0F0F0FL) | ((mask & 0x0F0F0F0F0F0F0F0FL) << 4);
+        return mask;
+    }
+
+    // post: returns the mask mirrored along the diagonal from (0, 0) to (7, 7)
+    public static long transpose(long mask) {
+        long t = 0x0F0F0F0F00000000L & (mask ^ (mask << 28));
+        mask ^= t ^ (t >>> 28);
+        t = 0x3333000033330000L & (mask ^ (mask << 14));
+        mask ^= t ^ (t >>> 14);
+        t = 0x5500550055005500L & (mask ^ (mask << 7));
+        mask ^= t ^ (t >>> 7);
+        return mask;
+    }
+
+    // pre: 0 <= transform < 8
+    // post: returns the mask with the transform applied
+    public static long transform(long mask, int transform) {
+        if ((transform & TRANSPOSE) != 0) {
+            mask = transpose(mask);
+        }
+        if ((transform & MIRROR) != 0) {
+            mask = mirror(mask);
+        }
+        if ((transform & FLIP) != 0) {
+            mask = flip(mask);
+        }
+
+        return mask;
+    }
+
+    // pre: 0 <= transform < 8, square is between 0 and 63 or OthelloConstants.PASS
+    // post: returns where the transform moves 'square' to
+    public static int transformSquare(int square, int transform) {
+        if (square == OthelloConstants.PASS) {
+            return square;
+        }
+
+        return SQUARE_MAP[transform * BitBoard.SQUARES + square];
+    }
+
+    // pre: 0 <= transform < 8, square is between 0 and 63 or OthelloConstants.PASS
+    // post: returns the square of the canonical form that 'square' of the original
+    //  position became, 'transform' being the one canonicalize returned
+    public static int toCanonical(int square, int transform) {
+        return transformSquare(square, transform);
+    }
+
+    // pre: 0 <= transform < 8, square is between 0 and 63 or OthelloConstants.PASS
+    // post: returns the square of the original position that became 'square' of the
+    //  canonical form, 'transform' being the one canonicalize returned
+    public static int fromCanonical(int square, int transform) {
+        return transformSquare(square, inverse(transform));
+    }
+
+    // pre: 0 <= transform < 8
+    // post: returns the transform that undoes 'transform'
+    public static int inverse(int transform) {
+        if ((transform & TRANSPOSE) == 0) {
+            return transform;
+        }
+
+        // undoing a transpose last swaps which flag acts on rows and which on columns
+        int mirror = (transform & FLIP) != 0? MIRROR: 0;
+        int flip = (transform & MIRROR) != 0? FLIP: 0;
+        return TRANSPOSE | mirror | flip;
+    }
+
+    // pre: player and opponent do not overlap
+    // post: returns the transform that gives the smallest (player, opponent) pair,
+    //  comparing player first and both as unsigned numbers. Every position that is a
+    //  symmetry of this one gives the same pair after its own canonical transform.
+    public static int canonicalTransform(long player, long opponent) {
+        // the eight images of player are built from one transpose and two mirrors;
+        // flipping is a single byte swap, so it is done last
+        long transposed = transpose(player);
+        long mirrored = mirror(player);
+        long transposedMirrored = mirror(transposed);
+
+        int best = 0;
+        long bestPlayer = player;
+
+        for (int t = 1; t < TRANSFORMS; t++) {
+            long p;
+            if ((t & TRANSPOSE) != 0) {
+                p = (t & MIRROR) != 0? transposedMirrored: transposed;
+            } else {
+                p = (t & MIRROR) != 0? mirrored: player;
+            }
+            if ((t & FLIP) != 0) {
+                p = flip(p);
+            }
+
+            int compare = Long.compareUnsigned(p, bestPlayer);
+
+            // equal players only happen for symmetric positions, then the opponent decides
+            if (compare < 0 || (compare == 0
+                    && Long.compareUnsigned(transform(opponent, t), transform(opponent, best)) < 0)) {
+                best = t;
+                bestPlayer = p;
+            }
+        }
+
+        return best;
+    }
+
+    // pre: player and opponent do not overlap, canonical has room for 2 masks
+    // post: stores the canonical form of the position in canonical[0] (player) and
+    //  canonical[1] (opponent) and returns the transform that produced it
+    public static int canonicalize(long player, long opponent, long[] canonical) {
+        int transform = canonicalTransform(player, opponent);
+        canonical[0] = transform(player, transform);
+        canonical[1] = transform(opponent, transform);
+        return transform;
+    }
+
+    // pre: player and opponent do not overlap, square is between 0 and 63 or OthelloConstants.PASS
+    // post: returns the smallest square that 'square' becomes under a transform that leaves
+    //  the position as it is, so that moves which are symmetries of each other in this
+    //  position give the same square
+    public static int smallestEquivalent(long player, long opponent, int square) {
+        int smallest = square;
+
+        for (int t = 1; t < TRANSFORMS; t++) {
+            if (transform(player, t) == player && transform(opponent, t) == opponent) {
+                smallest = Math.min(smallest, transformSquare(square, t));
+            }
+        }
+
+        return smallest;
+    }
+}
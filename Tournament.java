@@ -0,0 +1,447 @@
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Plays matches between AI configurations and says which is stronger.
+//
+//   java Tournament [-mode roundrobin|gauntlet] [-games n] [-threads n] [-openings plies]
+//                   [-seed s] [-sprt elo0:elo1|off] [-alpha a] [-beta b] engine engine ...
+//
+// An engine is a difficulty followed by any of time=ms, depth=d, hash=mb,
+// threads=n, endgame=empties, playouts=n, weights=file and name=label, all
+// separated by commas, for example "SEARCH,time=50,weights=trained.bin".
+//
+// A round robin plays a match between every two engines; a gauntlet plays the
+// first engine against each of the others. Games come in pairs: a random
+// opening of a few plies is played once with each engine as black, so neither
+// the opening nor the colour favours one side. The pairs of a match are shared
+// out between the threads, each with its own AIs.
+//
+// Every match reports its score and Elo difference with a 95% confidence
+// interval. Unless turned off, a sequential probability ratio test runs after
+// every pair, on the scores of the pairs since the two games of a pair are not
+// independent: it stops the match as soon as the games so far make "the first
+// engine is elo1 stronger" (H1) or "it is only elo0 stronger" (H0) likely
+// enough, with false positive and false negative rates alpha and beta.
+// -games is then only the most a match may take.
+public class Tournament implements OthelloConstants {
+
+    private static final double Z_95 = 1.96;
+
+    // pairs added to each outcome of a pair when the SPRT measures the variance
+    private static final double PAIR_PRIOR = 0.2;
+
+    private static int games = 1000;
+    private static int threads = Runtime.getRuntime().availableProcessors();
+    private static int openingPlies = 6;
+    private static long seed = 1;
+    private static boolean sprt = true;
+    private static double elo0 = 0;
+    private static double elo1 = 10;
+    private static double alpha = 0.05;
+    private static double beta = 0.05;
+
+    public static void main(String[] args) throws InterruptedException {
+        boolean gauntlet = false;
+        List<Engine> engines = new ArrayList<>();
+
+        try {
+            int i = 0;
+            while (i < args.length && args[i].startsWith("-")) {
+                String value = args[i + 1];
+
+                switch (args[i]) {
+                    case "-mode":
+                        if (!value.equals("roundrobin") && !value.equals("gauntlet")) {
+                            throw new IllegalArgumentException("mode must be roundrobin or gauntlet");
+                        }
+                        gauntlet = value.equals("gauntlet");
+                        break;
+                    case "-games": games = Integer.parseInt(value); break;
+                    case "-threads": threads = Integer.parseInt(value); break;
+                    case "-openings": openingPlies = Integer.parseInt(value); break;
+                    case "-seed": seed = Long.parseLong(value); break;
+                    case "-sprt": parseSprt(value); break;
+                    case "-alpha": alpha = Double.parseDouble(value); break;
+                    case "-beta": beta = Double.parseDouble(value); break;
+                    default: throw new IllegalArgumentException("unknown option " + args[i]);
+                }
+
+                i += 2;
+            }
+
+            for (; i < args.length; i++) {
+                engines.add(Engine.parse(args[i]));
+            }
+
+            if (engines.size() < 2) {
+                throw new IllegalArgumentException("at least two engines are needed");
+            }
+            if (games < 2 || threads <= 0 || openingPlies < 0 || alpha <= 0 || alpha >= 1 || beta <= 0 || beta >= 1) {
+                throw new IllegalArgumentException("games must be at least 2, threads positive, "
+                    + "openings not negative, and alpha and beta between 0 and 1");
+            }
+        } catch (RuntimeException e) {
+            System.out.println("Something went wrong with the formatting: " + e.getMessage());
+            System.out.println("usage: java Tournament [-mode roundrobin|gauntlet] [-games n] [-threads n] "
+                + "[-openings plies] [-seed s] [-sprt elo0:elo1|off] [-alpha a] [-beta b] engine engine ...");
+            System.exit(2);
+        }
+
+        // the games of every match share this pool; the daemon threads never hold up the program
+        ExecutorService pool = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "tournament");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        System.out.printf("%s of %d engines, at most %d games per match on %d threads, %s\n",
+            gauntlet? "Gauntlet": "Round robin", engines.size(), games, threads,
+            sprt? String.format("SPRT elo0 %.1f elo1 %.1f alpha %.2f beta %.2f", elo0, elo1, alpha, beta): "no SPRT");
+
+        // totals for each engine from its own side, against every opponent it met
+        int[][] totals = new int[engines.size()][3];
+        long start = System.nanoTime();
+
+        try {
+            for (int a = 0; a < engines.size(); a++) {
+                for (int b = a + 1; b < engines.size(); b++) {
+                    if (gauntlet && a > 0) {
+                        break;
+                    }
+
+                    Match match = new Match(engines.get(a), engines.get(b));
+                    match.play(pool);
+                    System.out.println(match);
+
+                    for (int r = 0; r < 3; r++) {
+                        totals[a][r] += match.results[r];
+                        totals[b][2 - r] += match.results[r];
+                    }
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        System.out.printf("\nStandings after %.1f s, Elo against the field each engine played:\n",
+            (System.nanoTime() - start) / 1e9);
+        System.out.printf("%-32s %7s %7s %7s %8s %22s\n", "Engine", "wins", "ties", "losses", "score", "Elo");
+        for (int e = 0; e < engines.size(); e++) {
+            int[] total = totals[e];
+            System.out.printf("%-32s %7d %7d %7d %7.1f%% %22s\n", engines.get(e).name, total[0], total[1], total[2],
+                100 * score(total), describeElo(total));
+        }
+    }
+
+    private static void parseSprt(String value) {
+        if (value.equals("off")) {
+            sprt = false;
+            return;
+        }
+
+        String[] bounds = value.split(":");
+        if (bounds.length != 2) {
+            throw new IllegalArgumentException("SPRT bounds must look like elo0:elo1");
+        }
+
+        elo0 = Double.parseDouble(bounds[0]);
+        elo1 = Double.parseDouble(bounds[1]);
+        if (elo1 <= elo0) {
+            throw new IllegalArgumentException("elo1 must be above elo0");
+        }
+        sprt = true;
+    }
+
+    // post: returns the share of the points won, ties counting half, from wins, ties and losses
+    static double score(int[] results) {
+        int n = results[0] + results[1] + results[2];
+        return n == 0? 0.5: (results[0] + 0.5 * results[1]) / n;
+    }
+
+    // post: returns the variance of a single game's score (1, 0.5 or 0) in these results
+    private static double variance(int[] results) {
+        int n = results[0] + results[1] + results[2];
+        double s = score(results);
+        return n == 0? 0: (results[0] * (1 - s) * (1 - s) + results[1] * (0.5 - s) * (0.5 - s)
+            + results[2] * s * s) / n;
+    }
+
+    // post: returns the Elo difference that gives 'score' as the expected score, capped
+    //  so that winning or losing every game does not come out infinite
+    static double elo(double score) {
+        double s = Math.min(Math.max(score, 1e-3), 1 - 1e-3);
+        return -400 * Math.log10(1 / s - 1) + 0.0; // + 0.0 turns -0.0 into 0.0
+    }
+
+    // post: returns the expected score of an engine 'elo' points stronger
+    static double expectedScore(double elo) {
+        return 1 / (1 + Math.pow(10, -elo / 400));
+    }
+
+    // post: returns the Elo difference and the low and high ends of its 95% confidence interval.
+    //  The interval is the Wilson score interval with the measured variance of a game, which
+    //  stays inside [0, 1] and keeps a width when every game had the same result
+    static double[] eloInterval(int[] results) {
+        int n = results[0] + results[1] + results[2];
+        double s = score(results);
+        if (n == 0) {
+            return new double[] {0, elo(0), elo(1)};
+        }
+
+        double z2 = Z_95 * Z_95 / n;
+        double center = (s + z2 / 2) / (1 + z2);
+        double margin = Z_95 * Math.sqrt(variance(results) / n + z2 / (4 * n)) / (1 + z2);
+
+        return new double[] {elo(s), elo(center - margin), elo(center + margin)};
+    }
+
+    // post: returns "elo [low, high]" with the 95% confidence interval
+    private static String describeElo(int[] results) {
+        double[] interval = eloInterval(results);
+        return String.format("%+.1f [%+.1f, %+.1f]", interval[0], interval[1], interval[2]);
+    }
+
+    // post: returns the log likelihood ratio of "the first engine is elo1 stronger" against "it
+    //  is elo0 stronger" from the number of pairs in which it scored 0 to 4 half points, under
+    //  the normal approximation of the score of a pair. The two games of a pair share their
+    //  opening, so the pairs and not the games are the independent trials. Each of the five
+    //  outcomes counts a fifth of a pair more for the variance, so that a match where every
+    //  pair ended alike still has a spread and can be decided
+    static double llr(int[] pairs, double elo0, double elo1) {
+        int n = 0;
+        double mean = 0;
+        for (int k = 0; k < pairs.length; k++) {
+            n += pairs[k];
+            mean += pairs[k] * k / 4.0;
+        }
+        if (n == 0) {
+            return 0;
+        }
+        mean /= n;
+
+        double regularizedMean = (mean * n + PAIR_PRIOR * 0.5 * pairs.length) / (n + PAIR_PRIOR * pairs.length);
+        double variance = 0;
+        for (int k = 0; k < pairs.length; k++) {
+            double d = k / 4.0 - regularizedMean;
+            variance += (pairs[k] + PAIR_PRIOR) * d * d;
+        }
+        variance /= n + PAIR_PRIOR * pairs.length;
+
+        double s0 = expectedScore(elo0);
+        double s1 = expectedScore(elo1);
+        return n * (s1 - s0) * (2 * mean - s0 - s1) / (2 * variance);
+    }
+
+    // One AI configuration from the command line.
+    private static class Engine {
+        private String name;
+        private OthelloAI.AIDifficulty difficulty;
+        private long time = 10;
+        private int depth = 60;
+        private int hash = 16;
+        private int threads = 1;
+        private int endgame = -1;
+        private long playouts;
+        private PatternWeights weights;
+
+        // pre: spec is "DIFFICULTY[,key=value...]"
+        private static Engine parse(String spec) {
+            String[] parts = spec.split(",");
+            Engine engine = new Engine();
+            engine.name = spec;
+            engine.difficulty = OthelloAI.AIDifficulty.valueOf(parts[0].toUpperCase());
+
+            for (int i = 1; i < parts.length; i++) {
+                String[] option = parts[i].split("=", 2);
+                if (option.length != 2) {
+                    throw new IllegalArgumentException("engine option " + parts[i] + " must look like key=value");
+                }
+
+                switch (option[0]) {
+                    case "time": engine.time = Long.parseLong(option[1]); break;
+                    case "depth": engine.depth = Integer.parseInt(option[1]); break;
+                    case "hash": engine.hash = Integer.parseInt(option[1]); break;
+                    case "threads": engine.threads = Integer.parseInt(option[1]); break;
+                    case "endgame": engine.endgame = Integer.parseInt(option[1]); break;
+                    case "playouts": engine.playouts = Long.parseLong(option[1]); break;
+                    case "name": engine.name = option[1]; break;
+                    case "weights":
+                        try {
+                            engine.weights = PatternWeights.load(Paths.get(option[1]));
+                        } catch (IOException e) {
+                            throw new IllegalArgumentException("cannot read weights " + option[1] + ": " + e.getMessage());
+                        }
+                        break;
+                    default: throw new IllegalArgumentException("unknown engine option " + option[0]);
+                }
+            }
+
+            // building one now checks every setting before any game starts
+            engine.create();
+            return engine;
+        }
+
+        // post: returns a new AI with this configuration; every thread playing games needs its own
+        private OthelloAI create() {
+            OthelloAI ai = new OthelloAI();
+            ai.showMessages(false);
+            ai.setDifficulty(difficulty);
+            ai.setThinkingTime(time);
+            ai.setMaxDepth(depth);
+            ai.setHashSize(hash);
+            ai.setThreads(threads);
+            ai.setPlayoutLimit(playouts);
+            ai.setWeights(weights);
+            if (endgame >= 0) {
+                ai.setEndgameEmpties(endgame);
+            }
+            return ai;
+        }
+    }
+
+    // The games between two engines, from the first engine's side.
+    private static class Match {
+        private final Engine first;
+        private final Engine second;
+        private final AtomicInteger nextPair = new AtomicInteger();
+
+        // wins, ties and losses of the first engine, and the pairs in which it scored 0 to 4
+        //  half points, guarded by this match
+        private final int[] results = new int[3];
+        private final int[] pairs = new int[5];
+        private double llr;
+        private String verdict;
+
+        private Match(Engine first, Engine second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        // post: plays pairs of games on the pool's threads until -games games are played
+        //  or the SPRT has decided the match
+        private void play(ExecutorService pool) throws InterruptedException {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                workers.add(pool.submit(this::work));
+            }
+
+            try {
+                for (Future<?> worker: workers) {
+                    worker.get();
+                }
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("a tournament worker failed", e.getCause());
+            }
+        }
+
+        // the body of one thread: whole pairs of games until there are none left
+        private void work() {
+            OthelloBoard board = new OthelloBoard();
+            OthelloAI firstAI = first.create();
+            OthelloAI secondAI = second.create();
+            int[] opening = new int[openingPlies];
+            int[] moves = new int[BitBoard.SQUARES];
+
+            int pair;
+            while ((pair = nextPair.getAndIncrement()) < games / 2 && !isDecided()) {
+                int length = chooseOpening(board, new Random(seed + pair * 0x9E3779B97F4A7C15L), opening, moves);
+
+                int firstAsBlack = playGame(board, firstAI, secondAI, opening, length, pair);
+                int firstAsWhite = 2 - playGame(board, secondAI, firstAI, opening, length, pair);
+                record(firstAsBlack, firstAsWhite);
+            }
+        }
+
+        // post: plays random moves from the start into 'opening' and returns how many, fewer
+        //  than asked only when the game ends first
+        private int chooseOpening(OthelloBoard board, Random random, int[] opening, int[] moves) {
+            board.resetBoard();
+
+            int length = 0;
+            while (length < opening.length && !board.isGameOver()) {
+                int count = board.legalMoves(board.currentTurn(), moves);
+                int move = count == 0? PASS: moves[random.nextInt(count)];
+
+                opening[length++] = move;
+                play(board, move);
+            }
+
+            return length;
+        }
+
+        // post: plays the opening then lets the AIs finish the game, and returns 2, 1 or 0
+        //  for a win, tie or loss of 'black'
+        private int playGame(OthelloBoard board, OthelloAI black, OthelloAI white, int[] opening, int length, int pair) {
+            black.setPiece(BLACK_PIECE);
+            white.setPiece(WHITE_PIECE);
+            black.setSeed(seed ^ (2L * pair));
+            white.setSeed(seed ^ (2L * pair + 1));
+
+            // neither side may remember positions from the other game of the pair
+            black.clearHash();
+            white.clearHash();
+
+            board.resetBoard();
+            for (int i = 0; i < length; i++) {
+                play(board, opening[i]);
+            }
+
+            while (!board.isGameOver()) {
+                OthelloAI player = board.currentTurn() == BLACK_PIECE? black: white;
+                player.playPiece(board);
+                board.switchTurns();
+            }
+
+            int margin = board.countPieces(BLACK_PIECE) - board.countPieces(WHITE_PIECE);
+            return margin > 0? 2: margin == 0? 1: 0;
+        }
+
+        private static void play(OthelloBoard board, int move) {
+            if (move != PASS) {
+                board.placePiece(BitBoard.row(move), BitBoard.col(move), board.currentTurn());
+            }
+            board.switchTurns();
+        }
+
+        private synchronized boolean isDecided() {
+            return verdict != null;
+        }
+
+        // post: adds a finished pair, each game 2, 1 or 0 for the first engine, and runs the SPRT
+        private synchronized void record(int firstAsBlack, int firstAsWhite) {
+            results[2 - firstAsBlack]++;
+            results[2 - firstAsWhite]++;
+            pairs[firstAsBlack + firstAsWhite]++;
+
+            if (!sprt || verdict != null) {
+                return;
+            }
+
+            llr = llr(pairs, elo0, elo1);
+            if (llr >= Math.log((1 - beta) / alpha)) {
+                verdict = "H1 accepted";
+            } else if (llr <= Math.log(beta / (1 - alpha))) {
+                verdict = "H0 accepted";
+            }
+        }
+
+        @Override
+        public synchronized String toString() {
+            int n = results[0] + results[1] + results[2];
+            String test = !sprt? "": String.format(", LLR %.2f [%.2f, %.2f] %s", llr,
+                Math.log(beta / (1 - alpha)), Math.log((1 - beta) / alpha), verdict == null? "undecided": verdict);
+
+            return String.format("%s vs %s: %d games, +%d =%d -%d, pairs %d %d %d %d %d, score %.1f%%, Elo %s%s",
+                first.name, second.name, n, results[0], results[1], results[2], pairs[0], pairs[1], pairs[2], pairs[3],
+                pairs[4], 100 * score(results), describeElo(results), test);
+        }
+    }
+}
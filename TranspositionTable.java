@@ -0,0 +1,135 @@
+import java.util.Arrays;
+
+// A fixed-size hash table of search results, keyed by OthelloBoard.hashKey().
+//
+// Entries live in two parallel long arrays and are grouped into buckets of two:
+// the first slot keeps the deepest result seen for its bucket and the second
+// slot always takes the newest one. Each entry is written as (key ^ data, data),
+// so a reader that races with a writer sees a key that does not match and
+// treats the entry as a miss. That lets several searchers share one table
+// without locking.
+public class TranspositionTable {
+
+    // the score is a lower bound, an upper bound, or exact
+    public static final int EXACT = 1;
+    public static final int LOWER_BOUND = 2;
+    public static final int UPPER_BOUND = 3;
+
+    // returned by probe when the position is not in the table
+    public static final long MISS = 0;
+
+    private static final int BYTES_PER_ENTRY = 16;
+
+    private final long[] keys;
+    private final long[] data;
+    private final int bucketMask;
+
+    // statistics, approximate when the table is shared between threads
+    private long hits;
+    private long misses;
+    private long collisions;
+
+    // pre: megabytes > 0
+    // post: creates a table using at most 'megabytes' MB, rounded down to a power of two buckets
+    public TranspositionTable(int megabytes) {
+        if (megabytes <= 0) {
+            throw new IllegalArgumentException("table size must be positive");
+        }
+
+        long buckets = Long.highestOneBit((long) megabytes * 1024 * 1024 / (2 * BYTES_PER_ENTRY));
+        buckets = Math.min(buckets, 1 << 29);
+
+        keys = new long[(int) buckets * 2];
+        data = new long[(int) buckets * 2];
+        bucketMask = (int) buckets - 1;
+    }
+
+    // pre: none
+    // post: returns the packed entry stored for 'key', or MISS
+    public long probe(long key) {
+        int slot = ((int) key & bucketMask) << 1;
+
+        for (int i = slot; i < slot + 2; i++) {
+            long entry = data[i];
+
+            if (entry != MISS && (keys[i] ^ entry) == key) {
+                hits++;
+                return entry;
+            }
+        }
+
+        if (data[slot] != MISS || data[slot + 1] != MISS) {
+            collisions++;
+        }
+        misses++;
+
+        return MISS;
+    }
+
+    // pre: bound is EXACT, LOWER_BOUND or UPPER_BOUND, 0 <= depth < 256, move is a square or PASS
+    // post: remembers the search result for 'key'
+    public void store(long key, int depth, int bound, int score, int move) {
+        int slot = ((int) key & bucketMask) << 1;
+        long entry = pack(depth, bound, score, move);
+
+        // the deep slot is replaced by the same position or by an equal or deeper search
+        long deep = data[slot];
+        if (deep == MISS || (keys[slot] ^ deep) == key || depth(deep) <= depth) {
+            keys[slot] = key ^ entry;
+            data[slot] = entry;
+        } else {
+            keys[slot + 1] = key ^ entry;
+            data[slot + 1] = entry;
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(data, 0);
+        hits = 0;
+        misses = 0;
+        collisions = 0;
+    }
+
+    public int capacity() {
+        return keys.length;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    // number of misses where the bucket was holding other positions
+    public long getCollisions() {
+        return collisions;
+    }
+
+    // packed layout: score in bits 0-31, depth in 32-39, bound in 40-41, move + 1 in 42-48
+    private static long pack(int depth, int bound, int score, int move) {
+        return (score & 0xFFFFFFFFL)
+            | ((long) depth << 32)
+            | ((long) bound << 40)
+            | ((long) (move + 1) << 42);
+    }
+
+    public static int score(long entry) {
+        return (int) entry;
+    }
+
+    public static int depth(long entry) {
+        return (int) (entry >>> 32) & 0xFF;
+    }
+
+    public static int bound(long entry) {
+        return (int) (entry >>> 40) & 0x3;
+    }
+
+    // returns a square, or OthelloConstants.PASS if no move was stored
+    public static int move(long entry) {
+        return ((int) (entry >>> 42) & 0x7F) - 1;
+    }
+}
@@ -0,0 +1,234 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+// Fits PatternWeights to the results of recorded games.
+//
+//   java WeightTrainer weights epochs threads learningRate records...
+//
+// Every position of every game is an example: its pattern codes and mobility
+// should predict the game's final disc margin for black. Each position is also
+// used with the colours swapped and the margin negated. The weights are fitted
+// by stochastic gradient descent on a float array shared by all threads
+// without locking; threads can overwrite each other's small updates now and
+// then, which costs nothing noticeable and avoids any synchronisation.
+//
+// Games are streamed from the record files a batch at a time, so memory use is
+// the weights plus one batch however large the files are. Every epoch reads
+// the files again.
+public class WeightTrainer implements OthelloConstants {
+
+    private static final int BATCH_GAMES = 4096;
+
+    // mobility differences run into the tens while pattern features are 0 or 1,
+    // so mobility weights take smaller steps
+    private static final float MOBILITY_STEP = 1 / 64f;
+
+    private final float[] weights;
+    private final int threads;
+    private final float learningRate;
+
+    // one batch of games, refilled from the record files
+    private final byte[] batchMoves = new byte[BATCH_GAMES * GameRecordWriter.MAX_MOVES];
+    private final int[] batchLengths = new int[BATCH_GAMES];
+    private final byte[] readMoves = new byte[GameRecordWriter.MAX_MOVES];
+
+    private long examplesTrained;
+
+    // pre: threads > 0, learningRate > 0
+    // post: creates a trainer starting from 'start'
+    public WeightTrainer(PatternWeights start, int threads, float learningRate) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("thread count must be positive");
+        }
+        if (!(learningRate > 0)) {
+            throw new IllegalArgumentException("learning rate must be positive");
+        }
+
+        weights = start.toArray();
+        this.threads = threads;
+        this.learningRate = learningRate;
+    }
+
+    // post: returns how many examples the last epoch trained on
+    public long getExamplesTrained() {
+        return examplesTrained;
+    }
+
+    public PatternWeights getWeights() {
+        return new PatternWeights(weights);
+    }
+
+    // pre: every path is a game-record file
+    // post: makes one pass over every game in the files and returns the root mean
+    //  squared error of the predictions made along the way, in discs
+    public double trainEpoch(List<Path> files) throws IOException, InterruptedException {
+        DoubleAdder squaredError = new DoubleAdder();
+        LongAdder examples = new LongAdder();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+
+        try {
+            for (Path file: files) {
+                try (GameRecordReader reader = new GameRecordReader(file)) {
+                    int games;
+                    while ((games = readBatch(reader)) > 0) {
+                        trainBatch(pool, games, squaredError, examples);
+                    }
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        long count = examples.sum();
+        examplesTrained = count;
+        return count == 0? 0: Math.sqrt(squaredError.sum() / count);
+    }
+
+    // post: fills the batch with the next games of 'reader' and returns how many were read
+    private int readBatch(GameRecordReader reader) throws IOException {
+        int games = 0;
+        int length;
+
+        while (games < BATCH_GAMES && (length = reader.next(readMoves)) >= 0) {
+            System.arraycopy(readMoves, 0, batchMoves, games * GameRecordWriter.MAX_MOVES, length);
+            batchLengths[games++] = length;
+        }
+
+        return games;
+    }
+
+    // post: trains on the first 'games' games of the batch, split evenly between the threads
+    private void trainBatch(ExecutorService pool, int games, DoubleAdder squaredError, LongAdder examples)
+            throws InterruptedException {
+
+        List<Future<?>> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            int first = (int) ((long) games * i / threads);
+            int last = (int) ((long) games * (i + 1) / threads);
+
+            workers.add(pool.submit(() -> trainGames(first, last, squaredError, examples)));
+        }
+
+        try {
+            for (Future<?> worker: workers) {
+                worker.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("a training worker failed", e.getCause());
+        }
+    }
+
+    // the body of one worker: trains on games first to last - 1 of the batch
+    private void trainGames(int first, int last, DoubleAdder squaredError, LongAdder examples) {
+        OthelloBoard board = new OthelloBoard();
+        board.trackPatterns(true);
+        byte[] moves = new byte[GameRecordWriter.MAX_MOVES];
+        int[] swapped = new int[Patterns.INSTANCES];
+
+        double error = 0;
+        long count = 0;
+
+        for (int game = first; game < last; game++) {
+            int length = batchLengths[game];
+            System.arraycopy(batchMoves, game * GameRecordWriter.MAX_MOVES, moves, 0, length);
+
+            // play the game through once to learn how it ended
+            GameRecordReader.replay(moves, length, board);
+            float margin = board.countPieces(BLACK_PIECE) - board.countPieces(WHITE_PIECE);
+
+            board.resetBoard();
+            for (int ply = 0; ply < length; ply++) {
+                int move = PositionCodec.decodeMove(moves[ply]);
+                board.makeMove(move);
+
+                // a pass leaves the pieces as they were, nothing new to learn
+                if (move == PASS) {
+                    continue;
+                }
+
+                long black = board.piecesOf(BLACK_PIECE);
+                long white = board.piecesOf(WHITE_PIECE);
+                int base = PatternWeights.stage(board.countPieces(BLANK_PIECE)) * PatternWeights.FEATURES;
+                int mobility = BitBoard.count(board.legalMoves(BLACK_PIECE)) - BitBoard.count(board.legalMoves(WHITE_PIECE));
+
+                error += train(board.patternCodes(), base, mobility, margin);
+
+                Patterns.compute(white, black, swapped);
+                error += train(swapped, base, -mobility, -margin);
+                count += 2;
+            }
+        }
+
+        squaredError.add(error);
+        examples.add(count);
+    }
+
+    // post: moves the weights of one example towards 'target' and returns the squared error before the step
+    private float train(int[] codes, int base, int mobility, float target) {
+        float prediction = weights[base + PatternWeights.MOBILITY] * mobility;
+        for (int i = 0; i < codes.length; i++) {
+            prediction += weights[base + PatternWeights.instanceOffset(i) + codes[i]];
+        }
+
+        float error = target - prediction;
+        float step = learningRate * error;
+
+        for (int i = 0; i < codes.length; i++) {
+            weights[base + PatternWeights.instanceOffset(i) + codes[i]] += step;
+        }
+        weights[base + PatternWeights.MOBILITY] += step * mobility * MOBILITY_STEP;
+
+        return error * error;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 5) {
+            System.out.println("usage: java WeightTrainer weights epochs threads learningRate records...");
+            System.exit(2);
+        }
+
+        Path output = Paths.get(args[0]);
+        int epochs = 0;
+        int threads = 0;
+        float learningRate = 0;
+
+        try {
+            epochs = Integer.parseInt(args[1]);
+            threads = Integer.parseInt(args[2]);
+            learningRate = Float.parseFloat(args[3]);
+        } catch (NumberFormatException e) {
+            System.out.println("Something went wrong with the formatting: " + e.getMessage());
+            System.exit(2);
+        }
+
+        List<Path> files = new ArrayList<>();
+        for (int i = 4; i < args.length; i++) {
+            files.add(Paths.get(args[i]));
+        }
+
+        // start from zero, every weight is learned from the games
+        WeightTrainer trainer = new WeightTrainer(new PatternWeights(new float[PatternWeights.STAGES * PatternWeights.FEATURES]),
+            threads, learningRate);
+
+        for (int epoch = 1; epoch <= epochs; epoch++) {
+            long start = System.nanoTime();
+            double error = trainer.trainEpoch(files);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            System.out.printf("Epoch %d: error %.3f discs over %d positions in %.1f s (%.0f positions/sec)\n",
+                epoch, error, trainer.getExamplesTrained(), seconds, trainer.getExamplesTrained() / seconds);
+        }
+
+        trainer.getWeights().save(output);
+        System.out.printf("Wrote weights to %s\n", output);
+    }
+}
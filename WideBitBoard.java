@@ -0,0 +1,261 @@
+import java.util.Arrays;
+
+// Move generation for boards of other sizes than 8 x 8, kept as bitsets of several longs.
+//
+// Square (row, col) of a size x size board is bit (row * size + col), counting
+// through the longs of a long[] from the lowest bit of the first, so a 10 x 10
+// board takes two longs, 12 x 12 three and 16 x 16 four. As in BitBoard, every
+// method takes the pieces of the side we are asking about ("player") and of the
+// other side ("opponent"), and nothing allocates after construction.
+//
+// Legal moves shift the whole bitset one square at a time in each direction, so
+// a call costs a few operations per long for every step of the longest run of
+// opponent pieces, and stops as soon as no run goes on: the cost grows with the
+// lines that are actually occupied, not with the number of squares. Flips walk
+// out from the one square played.
+//
+// An instance holds the masks for one size and a little scratch space, so it
+// must not be shared between threads.
+public final class WideBitBoard {
+
+    public static final int MIN_SIZE = 4;
+    public static final int MAX_SIZE = 16;
+
+    // the eight directions as (row, col) steps, in the same order as the shift masks
+    private static final int[] ROW_STEPS = {0, 0, 1, -1, 1, -1, 1, -1};
+    private static final int[] COL_STEPS = {1, -1, 0, 0, 1, -1, -1, 1};
+
+    private final int size;
+    private final int squares;
+    private final int words;
+
+    // for each direction the squares a piece may be shifted onto: ones on the board that
+    // a sideways step cannot have reached by wrapping around from the row before or after
+    private final long[][] shiftMasks;
+    private final int[] shifts;
+
+    private final long[] run;
+    private final long[] frontier;
+
+    // pre: size is even and MIN_SIZE <= size <= MAX_SIZE
+    // post: creates the move generator for size x size boards
+    public WideBitBoard(int size) {
+        if (!isSupportedSize(size)) {
+            throw new IllegalArgumentException("board size must be even and between " + MIN_SIZE + " and " + MAX_SIZE);
+        }
+
+        this.size = size;
+        squares = size * size;
+        words = (squares + 63) / 64;
+
+        shifts = new int[ROW_STEPS.length];
+        shiftMasks = new long[ROW_STEPS.length][words];
+        for (int dir = 0; dir < ROW_STEPS.length; dir++) {
+            shifts[dir] = ROW_STEPS[dir] * size + COL_STEPS[dir];
+
+            for (int square = 0; square < squares; square++) {
+                int col = square % size;
+                if ((COL_STEPS[dir] != 1 || col != 0) && (COL_STEPS[dir] != -1 || col != size - 1)) {
+                    set(shiftMasks[dir], square);
+                }
+            }
+        }
+
+        run = new long[words];
+        frontier = new long[words];
+    }
+
+    // post: returns whether boards of this size can be played
+    public static boolean isSupportedSize(int size) {
+        return size >= MIN_SIZE && size <= MAX_SIZE && size % 2 == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int squares() {
+        return squares;
+    }
+
+    // post: returns how many longs a bitset of this board takes
+    public int words() {
+        return words;
+    }
+
+    // post: returns a new empty bitset for this board
+    public long[] newSet() {
+        return new long[words];
+    }
+
+    public int square(int row, int col) {
+        return row * size + col;
+    }
+
+    public int row(int square) {
+        return square / size;
+    }
+
+    public int col(int square) {
+        return square % size;
+    }
+
+    // pre: black and white hold words() longs
+    // post: sets them to the four pieces in the middle of the board that every game starts from
+    public void start(long[] black, long[] white) {
+        Arrays.fill(black, 0);
+        Arrays.fill(white, 0);
+
+        int middle = size / 2;
+        set(black, square(middle - 1, middle - 1));
+        set(black, square(middle, middle));
+        set(white, square(middle, middle - 1));
+        set(white, square(middle - 1, middle));
+    }
+
+    // pre: player and opponent do not overlap, all three hold words() longs
+    // post: sets moves to every empty square 'player' can legally play on
+    public void legalMoves(long[] player, long[] opponent, long[] moves) {
+        Arrays.fill(moves, 0);
+
+        for (int dir = 0; dir < shifts.length; dir++) {
+
+            // the runs of opponent pieces next to the player, grown a square at a time until none goes on
+            shift(player, frontier, dir);
+            boolean growing = false;
+            for (int i = 0; i < words; i++) {
+                frontier[i] &= opponent[i];
+                run[i] = frontier[i];
+                growing |= frontier[i] != 0;
+            }
+
+            while (growing) {
+                shift(frontier, frontier, dir);
+                growing = false;
+                for (int i = 0; i < words; i++) {
+                    frontier[i] &= opponent[i];
+                    run[i] |= frontier[i];
+                    growing |= frontier[i] != 0;
+                }
+            }
+
+            // an empty square just past the end of a run is a move
+            shift(run, frontier, dir);
+            for (int i = 0; i < words; i++) {
+                moves[i] |= frontier[i] & ~(player[i] | opponent[i]);
+            }
+        }
+    }
+
+    // pre: square is empty, flipped holds words() longs
+    // post: sets flipped to the opponent pieces that would be flipped if 'player' played
+    //  on 'square' and returns how many there are
+    public int flips(long[] player, long[] opponent, int square, long[] flipped) {
+        Arrays.fill(flipped, 0);
+        int row = row(square);
+        int col = col(square);
+        int count = 0;
+
+        for (int dir = 0; dir < ROW_STEPS.length; dir++) {
+            int r = row + ROW_STEPS[dir];
+            int c = col + COL_STEPS[dir];
+            int length = 0;
+
+            while (inBounds(r, c) && get(opponent, square(r, c))) {
+                r += ROW_STEPS[dir];
+                c += COL_STEPS[dir];
+                length++;
+            }
+
+            // the run only flips if a player piece closes it
+            if (length > 0 && inBounds(r, c) && get(player, square(r, c))) {
+                for (int i = 1; i <= length; i++) {
+                    set(flipped, square(row + i * ROW_STEPS[dir], col + i * COL_STEPS[dir]));
+                }
+                count += length;
+            }
+        }
+
+        return count;
+    }
+
+    // pre: square is a legal move for 'player'
+    // post: places the piece and flips the pieces it takes, returning how many were flipped
+    public int play(long[] player, long[] opponent, int square, long[] flipped) {
+        int count = flips(player, opponent, square, flipped);
+
+        set(player, square);
+        for (int i = 0; i < words; i++) {
+            player[i] |= flipped[i];
+            opponent[i] &= ~flipped[i];
+        }
+
+        return count;
+    }
+
+    // post: fills moves with the squares in 'set' in ascending order and returns how many there are
+    public static int squares(long[] set, int[] moves) {
+        int count = 0;
+
+        for (int i = 0; i < set.length; i++) {
+            long word = set[i];
+            while (word != 0) {
+                moves[count++] = i * 64 + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+        }
+
+        return count;
+    }
+
+    public static boolean get(long[] set, int square) {
+        return (set[square >>> 6] & (1L << square)) != 0;
+    }
+
+    public static void set(long[] set, int square) {
+        set[square >>> 6] |= 1L << square;
+    }
+
+    public static int count(long[] set) {
+        int count = 0;
+        for (long word: set) {
+            count += Long.bitCount(word);
+        }
+
+        return count;
+    }
+
+    public static boolean isEmpty(long[] set) {
+        for (long word: set) {
+            if (word != 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private boolean inBounds(int row, int col) {
+        return row >= 0 && row < size && col >= 0 && col < size;
+    }
+
+    // moves every square of 'source' one step in direction 'dir' into 'target', which may be
+    // the same array, dropping whatever leaves the board or would wrap around an edge
+    private void shift(long[] source, long[] target, int dir) {
+        int amount = shifts[dir];
+        long[] mask = shiftMasks[dir];
+
+        if (amount > 0) {
+            for (int i = words - 1; i > 0; i--) {
+                target[i] = (source[i] << amount | source[i - 1] >>> (64 - amount)) & mask[i];
+            }
+            target[0] = source[0] << amount & mask[0];
+        } else {
+            int right = -amount;
+            for (int i = 0; i < words - 1; i++) {
+                target[i] = (source[i] >>> right | source[i + 1] << (64 - right)) & mask[i];
+            }
+            target[words - 1] = source[words - 1] >>> right & mask[words - 1];
+        }
+    }
+}
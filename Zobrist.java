@@ -0,0 +1,65 @@
+import java.util.SplittableRandom;
+
+// Random keys for Zobrist hashing of Othello positions.
+//
+// The hash of a position is the xor of one key per occupied square (one set of
+// keys for each colour) and SIDE if white is to move. Because xor is its own
+// inverse, OthelloBoard can keep the hash up to date as pieces are placed and
+// flipped without rehashing the whole board.
+public final class Zobrist {
+
+    public static final long[] BLACK = new long[BitBoard.SQUARES];
+    public static final long[] WHITE = new long[BitBoard.SQUARES];
+
+    // BLACK[square] ^ WHITE[square], applied when a piece on 'square' is flipped
+    public static final long[] FLIP = new long[BitBoard.SQUARES];
+
+    public static final long SIDE;
+
+    static {
+        // a fixed seed keeps hashes the same from run to run
+        SplittableRandom random = new SplittableRandom(0x0DE110L);
+
+        for (int square = 0; square < BitBoard.SQUARES; square++) {
+            BLACK[square] = random.nextLong();
+            WHITE[square] = random.nextLong();
+            FLIP[square] = BLACK[square] ^ WHITE[square];
+        }
+
+        SIDE = random.nextLong();
+    }
+
+    private Zobrist() {
+    }
+
+    // pre: black and white do not overlap
+    // post: returns the hash of the position from scratch
+    public static long hash(long black, long white, boolean isWhiteTurn) {
+        long hash = isWhiteTurn? SIDE: 0;
+
+        while (black != 0) {
+            hash ^= BLACK[Long.numberOfTrailingZeros(black)];
+            black &= black - 1;
+        }
+
+        while (white != 0) {
+            hash ^= WHITE[Long.numberOfTrailingZeros(white)];
+            white &= white - 1;
+        }
+
+        return hash;
+    }
+
+    // pre: none
+    // post: returns the xor of FLIP for every square in 'flipped'
+    public static long flipKey(long flipped) {
+        long key = 0;
+
+        while (flipped != 0) {
+            key ^= FLIP[Long.numberOfTrailingZeros(flipped)];
+            flipped &= flipped - 1;
+        }
+
+        return key;
+    }
+}
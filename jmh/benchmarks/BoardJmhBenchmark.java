@@ -0,0 +1,73 @@
+package benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// The BoardBenchmark operations run under JMH.
+//
+// JMH will not take benchmarks in the default package, and code in a package
+// cannot name the engine's classes there, so the operations are looked up by
+// name through BoardBenchmark.operations() once per trial and called as
+// LongSupplier. The parameter below lists the board and AI hot paths on the
+// opening, midgame and endgame fixtures; any other name from operations() can
+// be given with -p name=... Run with the Maven jmh profile, which also turns
+// on the GC profiler for allocation rates:
+//
+//   mvn -P jmh verify
+//   mvn -P jmh verify -Djmh.args="-p name=randomGame -prof gc"
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardJmhBenchmark {
+
+    @Param({
+        "canBePlaced/opening", "canBePlaced/midgame", "canBePlaced/endgame",
+        "findMaxPieces/opening", "findMaxPieces/midgame", "findMaxPieces/endgame",
+        "placePiece/opening", "placePiece/midgame", "placePiece/endgame",
+        "isGameOver/opening", "isGameOver/midgame", "isGameOver/endgame",
+        "countPieces/opening", "countPieces/midgame", "countPieces/endgame",
+        "playPiece.BEST_MOVE/opening", "playPiece.BEST_MOVE/midgame", "playPiece.BEST_MOVE/endgame",
+        "playPiece.RANDOM/opening", "playPiece.RANDOM/midgame", "playPiece.RANDOM/endgame",
+        "playPiece.SEARCH/opening", "playPiece.SEARCH/midgame", "playPiece.SEARCH/endgame",
+        "playPiece.ENDGAME/opening", "playPiece.ENDGAME/midgame", "playPiece.ENDGAME/endgame",
+        "playPiece.MCTS/opening", "playPiece.MCTS/midgame", "playPiece.MCTS/endgame",
+        "randomGame"
+    })
+    public String name;
+
+    private LongSupplier operation;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() throws ReflectiveOperationException {
+        Map<String, LongSupplier> operations =
+            (Map<String, LongSupplier>) Class.forName("BoardBenchmark").getMethod("operations").invoke(null);
+
+        operation = operations.get(name);
+        if (operation == null) {
+            throw new IllegalArgumentException("no benchmark named " + name + ", there are " + operations.keySet());
+        }
+    }
+
+    // the result goes back to JMH, which keeps the JIT from dropping the work
+    @Benchmark
+    public long run() {
+        return operation.getAsLong();
+    }
+}